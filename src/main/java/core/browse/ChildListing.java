@@ -0,0 +1,52 @@
+package core.browse;
+
+import java.util.List;
+import java.util.Map;
+
+import core.model.Resource;
+import core.security.ResourceGrants;
+
+/**
+ * Visible child resources of a {@link Node}, together with the grants of the
+ * current user for each of them. Both are built in a single pass over the
+ * children.
+ * 
+ * @author jani
+ * 
+ */
+public class ChildListing {
+	private final List<Resource> resources;
+	private final Map<String, ResourceGrants> grants;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param resources
+	 *            Visible child resources.
+	 * @param grants
+	 *            Grants for the visible resources, by resource ID.
+	 */
+	public ChildListing(List<Resource> resources,
+			Map<String, ResourceGrants> grants) {
+		this.resources = resources;
+		this.grants = grants;
+	}
+
+	/**
+	 * Gets the visible child resources.
+	 * 
+	 * @return List of resources.
+	 */
+	public List<Resource> getResources() {
+		return resources;
+	}
+
+	/**
+	 * Gets the grants for the visible child resources.
+	 * 
+	 * @return Map of {@link ResourceGrants}, by resource ID.
+	 */
+	public Map<String, ResourceGrants> getGrants() {
+		return grants;
+	}
+}
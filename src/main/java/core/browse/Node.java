@@ -1,23 +1,39 @@
 package core.browse;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileFilter;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import core.config.Constants;
 import core.config.ResourceFileConfig;
+import core.model.Contest;
+import core.model.FileName;
+import core.model.FileRole;
 import core.model.Resource;
+import core.model.ResourceCache;
 import core.model.ResourceKind;
 import core.model.ResourceUtil;
 import core.security.AccessRight;
+import core.security.ResourceGrants;
+import core.security.SecurityIndex;
+import core.util.BlobStore;
 import core.util.CollectionUtil;
+import core.util.ContentVersions;
+import core.util.DirectoryIndex;
 import core.util.FileUtil;
 import core.util.JsonUtil;
 import core.util.ReflectionUtil;
+import core.util.StringUtil;
 import core.util.Validator;
+import core.web.util.ArchiveCache;
+import core.web.util.Download;
 import core.web.util.FileUpload;
 
 /**
@@ -76,13 +92,13 @@ public class Node {
 		boolean systemFile = false;
 		for (String part : splitPath(path)) {
 			if (!additionalFile && parts.size() < ResourceKind.NESTING.size()
-					&& part.matches(ResourceFileConfig.RESOURCE_ID)) {
+					&& FileName.isResourceId(part)) {
 				// part is a resource identifier
 				parts.add(part);
 				resourceParts.add(part);
 			} else if (!additionalFile
 					&& parts.size() == ResourceKind.NESTING.size()
-					&& part.matches(ResourceFileConfig.PROBLEM_EXTRA_FILES)) {
+					&& FileName.parse(part).getRole().isProblemFile()) {
 				// part is a problem-specific file
 				problemFile = true;
 				parts.add(part);
@@ -98,8 +114,8 @@ public class Node {
 				parts.add(part);
 				break;
 			} else if (additionalFile
-					|| (parts.size() > 0 && part
-							.matches(ResourceFileConfig.ADDITIONAL_FILES))) {
+					|| (parts.size() > 0 && FileName.parse(part).getRole()
+							.isAdditionalDirectory())) {
 				// part is an additional file
 				additionalFile = true;
 				parts.add(part);
@@ -331,7 +347,10 @@ public class Node {
 						&& (access.includes(AccessRight.VIEW_FULL) || additionalParts
 								.get(0)
 								.equals(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME))) {
-					res.addAll(FileUtil.getDirectoryFiles(getFile()));
+					for (DirectoryIndex.Entry entry : DirectoryIndex
+							.getInstance().getEntries(getFile())) {
+						res.add(entry.getFile());
+					}
 				}
 			}
 		}
@@ -339,46 +358,93 @@ public class Node {
 		return res;
 	}
 
+	/**
+	 * Gets all visible child files together with their attributes, as read
+	 * with the directory listing.
+	 * 
+	 * @return List of {@link DirectoryIndex.Entry}.
+	 */
+	public List<DirectoryIndex.Entry> getFileEntries() {
+		Set<String> names = new HashSet<String>();
+		for (File file : getFiles()) {
+			names.add(file.getName());
+		}
+
+		List<DirectoryIndex.Entry> res = new ArrayList<DirectoryIndex.Entry>();
+		if (!names.isEmpty()) {
+			for (DirectoryIndex.Entry entry : DirectoryIndex.getInstance()
+					.getEntries(getFile())) {
+				if (names.contains(entry.getName())) {
+					res.add(entry);
+				}
+			}
+		}
+		return res;
+	}
+
 	/**
 	 * Converts the node to byte array, according to the permissions.
 	 * 
 	 * @return Byte array.
 	 */
 	public byte[] getDownload() {
-		byte[] res = null;
+		Download download = openDownload();
+		if (download != null) {
+			ByteArrayOutputStream res = new ByteArrayOutputStream();
+			try {
+				download.writeTo(res);
+				return res.toByteArray();
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets a streaming {@link Download} of the node, according to the
+	 * permissions. Nothing is read until the download is written.
+	 * 
+	 * @return {@link Download} or null, if the node cannot be downloaded.
+	 */
+	public Download openDownload() {
+		Download res = null;
 		if (access.includes(AccessRight.VIEW)) {
 			if (type == NodeType.RESOURCE) {
 				Resource resource = ResourceUtil.loadResource(
 						getResourceDirectory(), getResouceKind());
 
 				if (resource != null) {
-					res = resource.getDownloader(login, access).toZip();
+					res = ArchiveCache.getInstance().get(getResourcePath(),
+							access, resource.getDownloader(login, access));
 				}
 			} else if (type == NodeType.PROBLEM_FILE) {
 				Resource problem = ResourceUtil.loadResource(
 						getResourceDirectory(), getResouceKind());
 				List<File> files = problem.getFilesList(access);
-				if (files.contains(getFile())) {
-					res = FileUtil.read(getFile());
+				if (files.contains(getFile()) && getFile().exists()) {
+					res = Download.ofFile(getFile());
 				}
 			} else if (type == NodeType.SYSTEM_FILE) {
 				if (getFile().getName().equals(
 						ResourceFileConfig.SECURITY_FILENAME)) {
-					if (access.includes(AccessRight.VIEW_FULL)) {
-						res = FileUtil.read(getFile());
+					if (access.includes(AccessRight.VIEW_FULL)
+							&& getFile().exists()) {
+						res = Download.ofFile(getFile());
 					}
 				} else {
 					Resource problem = ResourceUtil.loadResource(
 							getResourceDirectory(), getResouceKind());
 					String json = problem.getJsonString(access);
-					res = json.getBytes();
+					res = Download.ofInline(json.getBytes());
 				}
 			} else {
 				if (type == NodeType.SYSTEM_DIRECTORY
 						&& (access.includes(AccessRight.VIEW_FULL) || additionalParts
 								.get(0)
-								.equals(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME))) {
-					res = FileUtil.read(getFile());
+								.equals(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME))
+						&& getFile().exists()) {
+					res = Download.ofFile(getFile());
 				}
 			}
 		}
@@ -414,6 +480,7 @@ public class Node {
 					&& getType() == NodeType.SYSTEM_DIRECTORY) {
 				if (name.matches(ResourceFileConfig.NEW_DIRECTORY)) {
 					res = FileUtil.createDirectory(getFile(), name);
+					changed(this);
 				} else {
 					res.addError("name", "Invalid directory name");
 				}
@@ -485,19 +552,26 @@ public class Node {
 					} else {
 						JsonUtil.writeJsonFile(new File(getResourceDirectory(),
 								ResourceFileConfig.SECURITY_FILENAME), o);
+						SecurityIndex.forRoot(seriesRoot).invalidate(
+								getResourceDirectory());
 					}
 				} else if (isProblemFile) {
-					if (destination.getName().matches(
-							ResourceFileConfig.PROBLEM_EXTRA_FILES)) {
+					FileRole role = FileName.parse(destination.getName())
+							.getRole();
+					if (role.isTest()) {
+						// test data is often shared between problems
+						res = BlobStore.getInstance().saveStream(input,
+								destination, overwrite);
+					} else if (role.isProblemFile()) {
 						res = FileUtil
 								.saveStream(input, destination, overwrite);
 					} else {
 						res.addError("file", "File not allowed");
 					}
-					return res;
 				} else {
 					res.addError("file", "File not allowed");
 				}
+				changed(this);
 			} else {
 				res.addError("access", "No permission ot add file.");
 			}
@@ -520,50 +594,20 @@ public class Node {
 		if (getAccess().includes(AccessRight.VIEW_FULL)) {
 			ResourceKind successor = getSuccessorKind();
 
-			File tmp = FileUtil.getTempDirectory();
-			File zip = new File(tmp, Constants.TEMP_ZIP_FILENAME);
-			FileUtil.saveStream(input, zip, false);
 			if (successor == null) {
 				// TODO: non-resource zip
 			} else {
 				// resource
-				if (FileUtil.unzipArchive(zip, tmp)) {
-					List<File> files = FileUtil.getDirectoryFiles(tmp,
-							new FileFilter() {
-								@Override
-								public boolean accept(File arg0) {
-									return arg0.isDirectory();
-								}
-							});
-					if (files.size() == 1) {
-						Resource resource = ResourceUtil.loadResource(
-								files.get(0), successor);
-						if (resource == null) {
-							res.addError("json", "Unable to parse resource.");
-						} else {
-							res = resource.validate();
-							if (res.isValid()) {
-								Node child = getChild(resource.getId());
-								if (child.getFile().exists()) {
-									FileUtil.delete(child.getFile());
-								}
-								if (!FileUtil.copyDirectory(files.get(0),
-										child.getFile())) {
-									res.addError("copy",
-											"Unable to move zipped files");
-								}
-							}
-						}
-
-					} else {
-						res.addError("root",
-								"Zip should contains only one root directory.");
-					}
-				} else {
-					res.addError("zip", "Unable to open zip.");
+				ResourceImport resourceImport = new ResourceImport(seriesRoot,
+						getResourceDirectory(), successor);
+				res = resourceImport.run(input);
+				File target = resourceImport.getTarget();
+				if (res.isValid() && target != null) {
+					ResourceCache.getInstance().invalidate(target);
+					SecurityIndex.forRoot(seriesRoot).invalidate(target);
+					changed(getChild(target.getName()));
 				}
 			}
-			FileUtil.delete(tmp);
 		} else {
 			res.addError("access", "No permission to zip.");
 		}
@@ -585,6 +629,7 @@ public class Node {
 				if (successor != null) {
 					res = ResourceUtil.createResource(getResourceDirectory(),
 							name, successor);
+					changed(this);
 				}
 			} else {
 				res.addError("access", "No permission to add resource.");
@@ -614,6 +659,7 @@ public class Node {
 
 			if (res.isValid()) {
 				resource.save();
+				changed(this);
 			}
 
 		} else {
@@ -633,6 +679,11 @@ public class Node {
 		Node parent = getParent();
 		if (parent.getAccess().includes(AccessRight.VIEW_FULL)) {
 			boolean success = FileUtil.delete(getFile());
+			ResourceCache.getInstance().invalidate(getFile());
+			SecurityIndex.forRoot(seriesRoot).invalidate(getFile());
+			changed(this);
+			// stored test contents of the deleted files are unused now
+			BlobStore.getInstance().collectLater();
 			if (!success) {
 				res.addError("delete", "Unable to delete resource");
 			}
@@ -648,7 +699,19 @@ public class Node {
 	 * @return List of visible resources.
 	 */
 	public List<Resource> loadChildResources() {
+		return loadChildListing().getResources();
+	}
+
+	/**
+	 * Loads all visible child resources together with their grants. The
+	 * rights inherited from the ancestors are evaluated only once for all
+	 * children.
+	 * 
+	 * @return {@link ChildListing}
+	 */
+	public ChildListing loadChildListing() {
 		List<Resource> res = new ArrayList<Resource>();
+		Map<String, AccessRight> rights = new HashMap<String, AccessRight>();
 		if (getSuccessorKind() != null) {
 			List<Resource> list = new ArrayList<Resource>();
 			if (isRoot()) {
@@ -657,19 +720,106 @@ public class Node {
 			} else if (resource != null) {
 				list = resource.loadChildren();
 			}
+
+			List<String> ids = new ArrayList<String>();
 			for (Resource resource : list) {
-				File directory = new File(getResourceDirectory(),
-						resource.getId());
-				AccessRight access = ResourceUtil.getAccessRight(seriesRoot,
-						directory, login);
-				if (access.includes(AccessRight.LIST)) {
+				ids.add(resource.getId());
+			}
+			rights = SecurityIndex.forRoot(seriesRoot).getChildAccessRights(
+					getResourceDirectory(), ids, login);
+
+			for (Resource resource : list) {
+				if (rights.get(resource.getId()).includes(AccessRight.LIST)) {
 					res.add(resource);
 				}
 			}
 		}
+
+		AccessRight parentAccess = SecurityIndex.forRoot(seriesRoot)
+				.getAccessRight(getResourceDirectory(), login);
+		return new ChildListing(res, ResourceGrants.createMap(parentAccess,
+				res, rights));
+	}
+
+	/**
+	 * Gets the version of the node, as seen by the current user. It covers the
+	 * content of the subtree, the rights of the user and the states of the
+	 * involved contests, so it changes whenever a representation of the node
+	 * may change. Cached resources are not parsed again.
+	 * 
+	 * @return {@link NodeVersion} or null, if the node does not exist.
+	 */
+	public NodeVersion getVersion() {
+		ContentVersions.Version content = ContentVersions.getInstance()
+				.getVersion(getFile());
+		if (content == null) {
+			return null;
+		}
+		long lastModified = content.getLastModified();
+
+		StringBuilder key = new StringBuilder();
+		key.append(getPath()).append('\n');
+		key.append(login).append('\n');
+		key.append(access).append('\n');
+		key.append(
+				SecurityIndex.forRoot(seriesRoot).getInheritedAccessRight(
+						getResourceDirectory(), login)).append('\n');
+		key.append(content.getHash());
+
+		// security files of the ancestors decide the inherited rights
+		File root = seriesRoot.getAbsoluteFile();
+		File dir = getFile().getAbsoluteFile().getParentFile();
+		while (dir != null && dir.getPath().startsWith(root.getPath())) {
+			lastModified = Math.max(lastModified, new File(dir,
+					ResourceFileConfig.SECURITY_FILENAME).lastModified());
+			dir = dir.getParentFile();
+		}
+
+		for (Contest contest : loadContests()) {
+			key.append('\n').append(contest.getId()).append(':')
+					.append(contest.getState());
+			lastModified = Math.max(lastModified, contest.getStateChangeTime());
+		}
+
+		return new NodeVersion(StringUtil.sha256(key.toString()), lastModified);
+	}
+
+	private List<Contest> loadContests() {
+		List<Contest> res = new ArrayList<Contest>();
+		ResourceKind kind = getResouceKind();
+		if (kind == ResourceKind.SERIES) {
+			Resource series = ResourceUtil.loadResource(getResourceDirectory(),
+					kind);
+			if (series != null) {
+				List<Contest> contests = series.loadChildren();
+				res.addAll(contests);
+			}
+		} else if (kind != null) {
+			File directory = getResourceDirectory();
+			if (kind == ResourceKind.PROBLEM) {
+				directory = directory.getParentFile();
+			}
+			Contest contest = ResourceUtil.loadResource(directory,
+					ResourceKind.CONTEST);
+			if (contest != null) {
+				res.add(contest);
+			}
+		}
 		return res;
 	}
 
+	/**
+	 * Drops the cached data, derived from a changed node and its ancestors.
+	 * 
+	 * @param node
+	 *            The changed node.
+	 */
+	private static void changed(Node node) {
+		DirectoryIndex.getInstance().invalidate(node.getFile());
+		ContentVersions.getInstance().invalidate(node.getFile());
+		ArchiveCache.getInstance().invalidate(node.getPath());
+	}
+
 	/**
 	 * Validates the resource associated with this node.
 	 * 
@@ -0,0 +1,86 @@
+package core.browse;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import core.util.CollectionUtil;
+
+/**
+ * Resolves paths to {@link Node}s for a sequence of operations of the same
+ * user, e.g. a REST batch. Every path is resolved once, until an operation
+ * changes it. Not thread-safe, a resolver belongs to a single request.
+ * 
+ * @author jani
+ * 
+ */
+public class NodeResolver {
+	private final File seriesRoot;
+	private final String login;
+	private final Map<String, Node> nodes;
+
+	/**
+	 * Creates a resolver.
+	 * 
+	 * @param seriesRoot
+	 *            The root directory for series in the repository.
+	 * @param login
+	 *            Current user login.
+	 */
+	public NodeResolver(File seriesRoot, String login) {
+		this.seriesRoot = seriesRoot;
+		this.login = login;
+		nodes = new HashMap<String, Node>();
+	}
+
+	/**
+	 * Gets the node of a path.
+	 * 
+	 * @param path
+	 *            Path of the node, relative to the root.
+	 * @return {@link Node}
+	 */
+	public Node get(String path) {
+		String key = normalize(path);
+		Node res = nodes.get(key);
+		if (res == null) {
+			res = new Node(seriesRoot, key, login);
+			nodes.put(key, res);
+		}
+		return res;
+	}
+
+	/**
+	 * Drops the nodes of a path and all paths below it. Should be called after
+	 * anything in the path is written or deleted.
+	 * 
+	 * @param path
+	 *            The changed path.
+	 */
+	public void invalidate(String path) {
+		String key = normalize(path);
+		String prefix = key + Node.PATH_SEPARATOR;
+		Iterator<String> it = nodes.keySet().iterator();
+		while (it.hasNext()) {
+			String current = it.next();
+			if (key.isEmpty() || current.equals(key)
+					|| current.startsWith(prefix)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of resolved nodes.
+	 * 
+	 * @return Number of nodes.
+	 */
+	public int size() {
+		return nodes.size();
+	}
+
+	private static String normalize(String path) {
+		return CollectionUtil.join(Node.splitPath(path), Node.PATH_SEPARATOR);
+	}
+}
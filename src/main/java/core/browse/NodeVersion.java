@@ -0,0 +1,56 @@
+package core.browse;
+
+/**
+ * Version of a {@link Node}, as seen by the current user. Used for HTTP
+ * conditional requests.
+ * 
+ * @author jani
+ * 
+ */
+public class NodeVersion {
+	private final String hash;
+	private final long lastModified;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param hash
+	 *            Hash of everything the representation depends on.
+	 * @param lastModified
+	 *            Latest modification time in milliseconds.
+	 */
+	public NodeVersion(String hash, long lastModified) {
+		this.hash = hash;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * Gets the hash of the version.
+	 * 
+	 * @return Hex string.
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * Gets the latest modification time of anything the representation
+	 * depends on.
+	 * 
+	 * @return Time in milliseconds.
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Builds a strong entity tag for a representation of the node.
+	 * 
+	 * @param representation
+	 *            Name of the representation, e.g. "json" or "zip".
+	 * @return Quoted entity tag.
+	 */
+	public String getEntityTag(String representation) {
+		return String.format("\"%s-%s\"", representation, hash);
+	}
+}
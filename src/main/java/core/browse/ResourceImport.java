@@ -0,0 +1,360 @@
+package core.browse;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import core.config.ResourceFileConfig;
+import core.model.FileName;
+import core.model.FileRole;
+import core.model.Resource;
+import core.model.ResourceCache;
+import core.model.ResourceKind;
+import core.model.ResourceUtil;
+import core.util.BlobStore;
+import core.util.DirectoryIndex;
+import core.util.FileUtil;
+import core.util.Validator;
+import core.util.WriteLocks;
+
+/**
+ * Imports a zipped resource into a parent directory. The zip is extracted
+ * straight from the stream into a staging directory on the same file system
+ * as the series root. Entry names are checked while streaming, so a zip with
+ * files which are not allowed in a resource is rejected before it is written
+ * completely. Test files are deduplicated through {@link BlobStore} while
+ * they are written. The resource is then loaded and validated in the staging
+ * directory and renamed to its place.
+ * 
+ * An existing resource is replaced by two renames: the old directory is moved
+ * to the staging directory and the new one in its place. No data is copied
+ * and the old resource is deleted only after the new one is in place. The
+ * replace is not atomic, because a directory cannot be renamed over a
+ * non-empty one: writers are held off by the write lock, but a reader may
+ * find no resource at all between the two renames. If the new one cannot be
+ * moved and the old one cannot be moved back either, the old one is kept in
+ * the staging directory and never removed automatically.
+ * 
+ * @author jani
+ * 
+ */
+public class ResourceImport {
+	private static Logger log = LoggerFactory.getLogger(ResourceImport.class);
+
+	private static final String OLD_DIRECTORY_NAME = "_old";
+
+	private final File seriesRoot;
+	private final File parentDirectory;
+	private final ResourceKind kind;
+	private File staging;
+	private String id;
+	private boolean keepOld;
+
+	/**
+	 * Creates an import.
+	 * 
+	 * @param seriesRoot
+	 *            The root directory for series in the repository.
+	 * @param parentDirectory
+	 *            Directory, to which the resource is imported.
+	 * @param kind
+	 *            {@link ResourceKind} of the imported resource.
+	 */
+	public ResourceImport(File seriesRoot, File parentDirectory,
+			ResourceKind kind) {
+		this.seriesRoot = seriesRoot;
+		this.parentDirectory = parentDirectory;
+		this.kind = kind;
+	}
+
+	/**
+	 * Runs the import. The staging directory is removed in any case, except
+	 * for an old resource, which could not be restored.
+	 * 
+	 * @param input
+	 *            Stream of the zip file.
+	 * @return {@link Validator}
+	 */
+	public Validator run(InputStream input) {
+		Validator res = new Validator();
+
+		staging = new File(new File(seriesRoot,
+				ResourceFileConfig.STAGING_DIRECTORY_NAME), UUID.randomUUID()
+				.toString());
+		if (!staging.mkdirs()) {
+			res.addError("staging", "Unable to create staging directory.");
+			return res;
+		}
+
+		try {
+			res = extract(input);
+			if (res.isValid()) {
+				File directory = new File(staging, id);
+				Resource resource = ResourceUtil
+						.loadResource(directory, kind);
+				if (resource == null) {
+					res.addError("json", "Unable to parse resource.");
+				} else {
+					res = resource.validate();
+					if (res.isValid()) {
+						res = swap(directory, getTarget());
+					}
+				}
+			}
+		} finally {
+			ResourceCache.getInstance().invalidate(staging);
+			DirectoryIndex.getInstance().invalidate(staging);
+			if (keepOld) {
+				for (File file : FileUtil.getDirectoryFiles(staging)) {
+					if (!file.getName().equals(OLD_DIRECTORY_NAME)) {
+						FileUtil.delete(file);
+					}
+				}
+			} else {
+				FileUtil.delete(staging);
+			}
+			// contents of a rejected or a replaced resource are unused now
+			BlobStore.getInstance().collectLater();
+		}
+		return res;
+	}
+
+	/**
+	 * Removes the staging directories of imports, which were interrupted
+	 * e.g. by a crash. Only directories older than
+	 * {@link ResourceFileConfig#STAGING_MAX_AGE} are removed, so imports in
+	 * progress are not affected. Old resources, which could not be restored,
+	 * are kept.
+	 * 
+	 * @param seriesRoot
+	 *            The root directory for series in the repository.
+	 */
+	public static void sweep(File seriesRoot) {
+		File root = new File(seriesRoot,
+				ResourceFileConfig.STAGING_DIRECTORY_NAME);
+		long limit = System.currentTimeMillis()
+				- ResourceFileConfig.STAGING_MAX_AGE;
+		for (File directory : FileUtil.getDirectoryFiles(root)) {
+			File old = new File(directory, OLD_DIRECTORY_NAME);
+			if (old.exists()) {
+				log.warn(String.format(
+						"ResourceImport.sweep(): Old resource kept in %s",
+						old));
+			} else if (directory.lastModified() < limit) {
+				log.info(String.format(
+						"ResourceImport.sweep(): Removing staging %s",
+						directory));
+				FileUtil.delete(directory);
+			}
+		}
+	}
+
+	/**
+	 * Gets the directory of the imported resource.
+	 * 
+	 * @return Directory or null, if the zip has not been read.
+	 */
+	public File getTarget() {
+		return id == null ? null : new File(parentDirectory, id);
+	}
+
+	private Validator extract(InputStream input) {
+		Validator res = new Validator();
+		ZipInputStream zip = new ZipInputStream(input);
+		try {
+			ZipEntry entry;
+			while (res.isValid() && (entry = zip.getNextEntry()) != null) {
+				List<String> parts = Node.splitPath(entry.getName());
+				if (!checkEntry(parts, entry.isDirectory(), res)) {
+					break;
+				}
+
+				File file = new File(staging, entry.getName());
+				if (entry.isDirectory()) {
+					file.mkdirs();
+				} else if (FileName.parse(file.getName()).getRole().isTest()) {
+					// test data is often shared between problems
+					file.getParentFile().mkdirs();
+					Validator saved = BlobStore.getInstance().saveStream(zip,
+							file, true);
+					if (!saved.isValid()) {
+						throw new IOException(saved.toString());
+					}
+				} else {
+					file.getParentFile().mkdirs();
+					OutputStream output = new BufferedOutputStream(
+							new FileOutputStream(file));
+					try {
+						IOUtils.copy(zip, output);
+					} finally {
+						output.close();
+					}
+				}
+			}
+		} catch (IOException e) {
+			log.info(String.format(
+					"ResourceImport.extract(): Unable to read zip: %s",
+					e.getMessage()));
+			res.addError("zip", "Unable to open zip.");
+		}
+
+		if (res.isValid() && id == null) {
+			res.addError("root",
+					"Zip should contains only one root directory.");
+		}
+		return res;
+	}
+
+	/**
+	 * Checks the path of a zip entry against the layout of resources.
+	 * 
+	 * @param parts
+	 *            Path of the entry.
+	 * @param directory
+	 *            Whether the entry is a directory.
+	 * @param validator
+	 *            {@link Validator} for errors.
+	 * @return Whether the entry is allowed.
+	 */
+	private boolean checkEntry(List<String> parts, boolean directory,
+			Validator validator) {
+		if (parts.isEmpty()) {
+			return true;
+		}
+		for (String part : parts) {
+			if (part.equals(".") || part.equals("..") || part.contains("\\")) {
+				validator.addError("zip", "Invalid entry in zip.");
+				return false;
+			}
+		}
+
+		String root = parts.get(0);
+		if (id == null && (directory || parts.size() > 1)) {
+			if (!FileName.isResourceId(root)) {
+				validator.addError("id",
+						String.format("Resource ID is invalid: %s", root));
+				return false;
+			}
+			id = root;
+		}
+		if (!root.equals(id)) {
+			validator.addError("root",
+					"Zip should contains only one root directory.");
+			return false;
+		}
+
+		ResourceKind current = kind;
+		List<String> rest = parts.subList(1, parts.size());
+		for (int i = 0; i < rest.size(); i++) {
+			FileName name = FileName.parse(rest.get(i));
+			boolean last = (i == rest.size() - 1);
+			boolean inner = !last || directory;
+			if (inner && name.getRole().isAdditionalDirectory()) {
+				// anything is allowed in additional directories
+				return true;
+			}
+			if (inner) {
+				current = current.getSuccessorKind();
+				if (current == null
+						|| !FileName.isResourceId(name.getName())) {
+					validator.addError("file_extra",
+							"contains unknown files");
+					return false;
+				}
+			} else if (!name.isAllowed(getFileRoles(current), current)) {
+				validator.addError("file_extra", "contains unknown files");
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Set<FileRole> getFileRoles(ResourceKind kind) {
+		Set<FileRole> res = EnumSet.of(FileRole.SECURITY,
+				FileRole.RESOURCE_FILE);
+		if (kind == ResourceKind.PROBLEM) {
+			for (FileRole role : FileRole.values()) {
+				if (role.isProblemFile()) {
+					res.add(role);
+				}
+			}
+		}
+		return res;
+	}
+
+	private Validator swap(File directory, File target) {
+		Validator res = new Validator();
+		File old = new File(staging, OLD_DIRECTORY_NAME);
+		// writers of the old resource finish before it is moved away
+		Lock lock = WriteLocks.forDirectory(target);
+		lock.lock();
+		boolean replace = target.exists();
+		try {
+			if (replace) {
+				move(target, old);
+			}
+			try {
+				move(directory, target);
+			} catch (IOException e) {
+				if (replace) {
+					restore(old, target);
+				}
+				throw e;
+			}
+		} catch (IOException e) {
+			log.error(String.format(
+					"ResourceImport.swap(): Unable to move %s to %s: %s",
+					directory, target, e.getMessage()));
+			res.addError("copy", "Unable to move zipped files");
+		} finally {
+			lock.unlock();
+		}
+		if (replace) {
+			ResourceCache.getInstance().invalidate(old);
+			DirectoryIndex.getInstance().invalidate(old);
+		}
+		return res;
+	}
+
+	/**
+	 * Moves the old resource back after a failed swap. If that fails too, the
+	 * old resource is kept out of the cleanup of the staging directory.
+	 */
+	private void restore(File old, File target) {
+		try {
+			move(old, target);
+		} catch (IOException e) {
+			keepOld = true;
+			log.error(String.format(
+					"ResourceImport.restore(): Unable to restore %s, the old resource is kept in %s: %s",
+					target, old, e.getMessage()));
+		}
+	}
+
+	private static void move(File source, File destination) throws IOException {
+		try {
+			Files.move(source.toPath(), destination.toPath(),
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			// staging and target on different file systems
+			Files.move(source.toPath(), destination.toPath());
+		}
+	}
+}
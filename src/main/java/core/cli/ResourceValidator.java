@@ -1,11 +1,19 @@
 package core.cli;
 
 import java.io.File;
+import java.util.List;
 import java.util.Map;
 
+import core.judge.CheckerCache;
+import core.judge.Judge;
+import core.model.Problem;
 import core.model.Resource;
 import core.model.ResourceKind;
 import core.model.ResourceUtil;
+import core.model.ValidationEngine;
+import core.model.ValidationManifest;
+import core.util.Parser;
+import core.util.Validator;
 
 /**
  * Command-line tool for validating resources.
@@ -18,25 +26,54 @@ public class ResourceValidator {
 	private static final String SERIES = "-s";
 	private static final String CONTEST = "-c";
 	private static final String PROBLEM = "-p";
+	private static final String REPOSITORY = "-r";
+	private static final String PARALLELISM = "-j";
+	private static final String MANIFEST = "-m";
+	private static final String FULL = "-f";
+	private static final String SOLUTIONS = "-t";
+	private static final String CHECKER_CACHE = "-c";
+	private static final String SERIES_DIRNAME = "series";
+	private static final String MANIFEST_FILENAME = ".validation.json";
 
 	/**
 	 * Validates the resource file structure and prints the result. Use the -s
 	 * option to validate a series, -c to validate a contest and -p to validate
-	 * a problem.
+	 * a problem. Use the -r option to validate all series of a repository in
+	 * parallel, optionally followed by -j and the number of threads, -m and
+	 * the manifest file of the previous run or -f to validate all resources.
+	 * Add the -t option to also judge the solutions of the valid problems on
+	 * their tests, which compiles and runs them. Compiled checkers are kept in
+	 * ~/.cache/core-checkers, use -c after the resource path to keep them in
+	 * another directory.
 	 * 
 	 * @param args
-	 *            args[0] = "-p | -c | -s"; args[1] = resource path
+	 *            args[0] = "-p | -c | -s | -r"; args[1] = resource path;
+	 *            args[2...] = "-t", "-c checker_cache_dir" or the options of
+	 *            -r
 	 */
 	public static void main(String[] args) {
-		if (args == null || args.length != 2) {
-			System.err
-					.println("Usage: java ResourceValidator -option <resource_path>");
-			System.err.println("valid options:");
-			System.err.println("\t -s\t\t indicates a series");
-			System.err.println("\t -c\t\t indicates a contest");
-			System.err.println("\t -p\t\t indicates a problem");
+		if (args != null && args.length >= 2
+				&& REPOSITORY.equalsIgnoreCase(args[0])) {
+			validateRepository(args);
 			return;
 		}
+		if (args == null || args.length < 2) {
+			printUsage();
+			return;
+		}
+		boolean solutions = false;
+		File checkerCache = CheckerCache.getDefaultDirectory();
+		for (int i = 2; i < args.length; i++) {
+			if (SOLUTIONS.equalsIgnoreCase(args[i])) {
+				solutions = true;
+			} else if (CHECKER_CACHE.equalsIgnoreCase(args[i])
+					&& i + 1 < args.length) {
+				checkerCache = new File(args[++i]);
+			} else {
+				printUsage();
+				return;
+			}
+		}
 
 		String option = args[0];
 		String resourcePath = args[1];
@@ -51,7 +88,18 @@ public class ResourceValidator {
 				System.err.println("Unable to load the specified resource.");
 				return;
 			}
-			Map<String, String> errors = resource.validate().getErrors();
+			Validator res = resource.validate();
+			if (solutions && res.isValid()) {
+				CheckerCache.getInstance().configure(checkerCache,
+						CheckerCache.DEFAULT_MAX_SIZE);
+				Judge judge = new Judge();
+				try {
+					res.merge(validateSolutions(resource, judge));
+				} finally {
+					judge.shutdown();
+				}
+			}
+			Map<String, String> errors = res.getErrors();
 			if (errors.size() == 0) {
 				System.out.println("The specified resource is valid.");
 			} else {
@@ -63,6 +111,162 @@ public class ResourceValidator {
 		}
 	}
 
+	/**
+	 * Validates all series of a repository in parallel and prints the errors
+	 * of each resource. The results are stored in a manifest file, so that the
+	 * next run validates only the resources which changed.
+	 * 
+	 * @param args
+	 *            args[1] = repository root; followed by the optional "-j
+	 *            threads", "-m manifest_file", "-f", "-t" and "-c
+	 *            checker_cache_dir"
+	 */
+	private static void validateRepository(String[] args) {
+		File repoRoot = new File(args[1]);
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		File manifestFile = new File(repoRoot, MANIFEST_FILENAME);
+		boolean full = false;
+		boolean solutions = false;
+		File checkerCache = CheckerCache.getDefaultDirectory();
+
+		for (int i = 2; i < args.length; i++) {
+			if (PARALLELISM.equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+				parallelism = Parser.readInteger(args[++i]);
+			} else if (MANIFEST.equalsIgnoreCase(args[i])
+					&& i + 1 < args.length) {
+				manifestFile = new File(args[++i]);
+			} else if (FULL.equalsIgnoreCase(args[i])) {
+				full = true;
+			} else if (SOLUTIONS.equalsIgnoreCase(args[i])) {
+				solutions = true;
+			} else if (CHECKER_CACHE.equalsIgnoreCase(args[i])
+					&& i + 1 < args.length) {
+				checkerCache = new File(args[++i]);
+			} else {
+				printUsage();
+				return;
+			}
+		}
+		if (parallelism <= 0) {
+			System.err.println("Invalid number of threads.");
+			return;
+		}
+
+		File seriesRoot = new File(repoRoot, SERIES_DIRNAME);
+		if (!seriesRoot.isDirectory()) {
+			System.err.println("Unable to find the series of the repository.");
+			return;
+		}
+
+		ValidationManifest manifest = full ? new ValidationManifest()
+				: ValidationManifest.load(manifestFile);
+		ValidationEngine engine = new ValidationEngine(parallelism);
+		Map<String, Validator> results;
+		try {
+			results = engine.validateAll(seriesRoot, manifest);
+		} finally {
+			engine.shutdown();
+		}
+		if (!manifest.save(manifestFile)) {
+			System.err.println("Unable to write the manifest file.");
+		}
+		if (solutions) {
+			// solutions are judged every time, their results are not stored
+			CheckerCache.getInstance().configure(checkerCache,
+					CheckerCache.DEFAULT_MAX_SIZE);
+			Judge judge = new Judge(parallelism);
+			try {
+				for (String path : results.keySet()) {
+					Validator validator = results.get(path);
+					if (validator.isValid() && isProblemPath(path)) {
+						Problem problem = ResourceUtil.loadResource(new File(
+								seriesRoot, path), ResourceKind.PROBLEM);
+						if (problem != null) {
+							validator.merge(problem.validateSolutions(judge));
+						}
+					}
+				}
+			} finally {
+				judge.shutdown();
+			}
+		}
+
+		int invalid = 0;
+		for (String path : results.keySet()) {
+			Map<String, String> errors = results.get(path).getErrors();
+			if (errors.size() > 0) {
+				invalid++;
+				System.out.println(path + ":");
+				for (String key : errors.keySet()) {
+					System.out.println("\t" + errors.get(key));
+				}
+			}
+		}
+		System.out.println(String.format(
+				"Validated %d of %d resources, reused %d results.",
+				results.size() - manifest.getHits(), results.size(),
+				manifest.getHits()));
+		if (invalid == 0) {
+			System.out.println(String.format(
+					"All %d resources are valid.", results.size()));
+		} else {
+			System.out.println(String.format(
+					"%d of %d resources are NOT valid.", invalid,
+					results.size()));
+		}
+	}
+
+	private static void printUsage() {
+		System.err
+				.println("Usage: java ResourceValidator -option <resource_path> [-t] [-c <checker_cache_dir>]");
+		System.err
+				.println("       java ResourceValidator -r <repo_root> [-j <threads>] [-m <manifest>] [-f] [-t] [-c <checker_cache_dir>]");
+		System.err.println("valid options:");
+		System.err.println("\t -s\t\t indicates a series");
+		System.err.println("\t -c\t\t indicates a contest, after the path"
+				+ " directory for compiled checkers");
+		System.err.println("\t -p\t\t indicates a problem");
+		System.err.println("\t -r\t\t indicates a whole repository");
+		System.err.println("\t -j\t\t number of threads for -r");
+		System.err.println("\t -m\t\t manifest file for -r, default "
+				+ MANIFEST_FILENAME + " in the repository");
+		System.err.println("\t -f\t\t validates all resources for -r");
+		System.err.println("\t -t\t\t judges the solutions of the problems");
+	}
+
+	/**
+	 * Judges the solutions of a problem or of all problems of a contest or a
+	 * series.
+	 * 
+	 * @param resource
+	 *            Validated resource.
+	 * @param judge
+	 *            {@link Judge} for the solutions.
+	 * @return {@link Validator} with the errors of the solutions.
+	 */
+	private static Validator validateSolutions(Resource resource, Judge judge) {
+		if (resource instanceof Problem) {
+			return ((Problem) resource).validateSolutions(judge);
+		}
+		Validator res = new Validator();
+		ResourceKind childKind = resource.getKind().getSuccessorKind();
+		List<Resource> children = ResourceUtil.loadChildResources(
+				resource.getDirectory(), childKind);
+		for (Resource child : children) {
+			Validator validator = validateSolutions(child, judge);
+			for (String key : validator.getErrors().keySet()) {
+				res.addError(child.getId() + "/" + key, child.getId() + ": "
+						+ validator.getError(key));
+			}
+		}
+		return res;
+	}
+
+	private static boolean isProblemPath(String path) {
+		return path.split("/").length == ResourceKind.NESTING
+				.indexOf(ResourceKind.PROBLEM) + 1;
+	}
+
 	/**
 	 * Gets the ResourceKind that corresponds to the cli tool option
 	 * 
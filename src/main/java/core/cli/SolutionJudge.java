@@ -0,0 +1,150 @@
+package core.cli;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import core.judge.CheckerCache;
+import core.judge.Judge;
+import core.judge.JudgeResult;
+import core.judge.TestResult;
+import core.judge.TokenChecker;
+import core.model.Problem;
+import core.model.ResourceKind;
+import core.model.ResourceUtil;
+import core.util.Parser;
+
+/**
+ * Command-line tool for judging solutions of a problem locally.
+ * 
+ * @author jani
+ * 
+ */
+public class SolutionJudge {
+
+	private static final String PARALLELISM = "-j";
+	private static final String TOKENS = "-w";
+	private static final String TOLERANCE = "-e";
+	private static final String CHECKER_CACHE = "-c";
+
+	/**
+	 * Judges solutions on all tests of a problem and prints the verdict and
+	 * the time of every test. Without solution files all solutions of the
+	 * problem are judged. Use the -j option to set the number of tests run in
+	 * parallel. Outputs of "diff" problems are compared by lines, use -w to
+	 * ignore line breaks and -e to accept numbers with an error. Compiled
+	 * checkers are kept in ~/.cache/core-checkers, use -c to keep them in
+	 * another directory, which is not used by other judges running at the same
+	 * time.
+	 * 
+	 * @param args
+	 *            args[0] = problem path; args[1...] = solution files, "-j
+	 *            threads", "-w", "-e tolerance" and "-c checker_cache_dir"
+	 */
+	public static void main(String[] args) {
+		if (args == null || args.length < 1) {
+			printUsage();
+			return;
+		}
+
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		TokenChecker.Mode mode = TokenChecker.Mode.LINES;
+		double tolerance = 0;
+		File checkerCache = CheckerCache.getDefaultDirectory();
+		List<File> solutions = new ArrayList<File>();
+		for (int i = 1; i < args.length; i++) {
+			if (PARALLELISM.equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+				parallelism = Parser.readInteger(args[++i]);
+			} else if (TOKENS.equalsIgnoreCase(args[i])) {
+				mode = TokenChecker.Mode.TOKENS;
+			} else if (TOLERANCE.equalsIgnoreCase(args[i])
+					&& i + 1 < args.length) {
+				tolerance = readTolerance(args[++i]);
+			} else if (CHECKER_CACHE.equalsIgnoreCase(args[i])
+					&& i + 1 < args.length) {
+				checkerCache = new File(args[++i]);
+			} else {
+				solutions.add(new File(args[i]));
+			}
+		}
+		if (parallelism <= 0) {
+			System.err.println("Invalid number of threads.");
+			return;
+		}
+		if (Double.isNaN(tolerance)) {
+			System.err.println("Invalid tolerance.");
+			return;
+		}
+
+		Problem problem = ResourceUtil.loadResource(new File(args[0]),
+				ResourceKind.PROBLEM);
+		if (problem == null) {
+			System.err.println("Unable to load the specified problem.");
+			return;
+		}
+		if (solutions.isEmpty()) {
+			solutions = problem.getSolutionFiles();
+		}
+		if (solutions.isEmpty()) {
+			System.err.println("The problem has no solutions.");
+			return;
+		}
+
+		CheckerCache.getInstance().configure(checkerCache,
+				CheckerCache.DEFAULT_MAX_SIZE);
+		Judge judge = new Judge(parallelism, new TokenChecker(mode, tolerance));
+		try {
+			for (File solution : solutions) {
+				print(solution, judge.judge(problem, solution));
+			}
+		} finally {
+			judge.shutdown();
+		}
+	}
+
+	/**
+	 * Reads the tolerance of numbers.
+	 * 
+	 * @param value
+	 *            Command-line value.
+	 * @return Tolerance or NaN, if the value is not a finite non-negative
+	 *         number.
+	 */
+	private static double readTolerance(String value) {
+		double res;
+		try {
+			res = Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+		if (Double.isInfinite(res) || res < 0) {
+			return Double.NaN;
+		}
+		return res;
+	}
+
+	private static void print(File solution, JudgeResult result) {
+		System.out.println(solution.getName() + ":");
+		for (TestResult test : result.getTests()) {
+			System.out.println(String.format("\ttest %02d: %s %.3fs",
+					test.getIndex(), test.getVerdict().getCode(),
+					test.getTime() / 1000.0));
+		}
+		if (!result.getMessage().isEmpty()) {
+			System.out.println(result.getMessage());
+		}
+		System.out.println(String.format("\t%s, score %d of %d", result
+				.getVerdict().getCode(), result.getScore(), result
+				.getMaxScore()));
+	}
+
+	private static void printUsage() {
+		System.err
+				.println("Usage: java SolutionJudge <problem_path> [<solution_file>...] [-j <threads>] [-w] [-e <tolerance>] [-c <checker_cache_dir>]");
+		System.err.println("valid options:");
+		System.err.println("\t -j\t\t number of tests run in parallel");
+		System.err.println("\t -w\t\t ignores line breaks of outputs");
+		System.err.println("\t -e\t\t tolerance of numbers in outputs");
+		System.err.println("\t -c\t\t directory for compiled checkers, not shared");
+	}
+}
@@ -7,6 +7,8 @@ import java.util.Properties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import core.util.Parser;
+
 /**
  * Provides configuration properties for the system.
  * 
@@ -19,6 +21,12 @@ public class ConfigurationManager {
 	private static final String USERS_ROOT_PROP_NAME = "users_root";
 	private static final String SERIES_DIRNAME_PROP_NAME = "series_dirname";
 	private static final String DEBUG_PROP_NAME = "debug";
+	private static final String ARCHIVE_CACHE_DIR_PROP_NAME = "archive_cache_dir";
+	private static final String ARCHIVE_CACHE_SIZE_PROP_NAME = "archive_cache_size";
+	private static final String ARCHIVE_CACHE_DEFAULT_DIRNAME = "core-archives";
+	private static final long ARCHIVE_CACHE_DEFAULT_SIZE = 512;
+	private static final String TEMPLATE_UPDATE_DELAY_PROP_NAME = "template_update_delay";
+	private static final String BLOB_STORE_DIR_PROP_NAME = "blob_store_dir";
 
 	private final static Logger log = LoggerFactory
 			.getLogger(ConfigurationManager.class);
@@ -29,6 +37,17 @@ public class ConfigurationManager {
 	 * Creates an instance of the configuration manager.
 	 */
 	public ConfigurationManager() {
+		this(new Properties());
+	}
+
+	/**
+	 * Creates an instance of the configuration manager, which overrides
+	 * properties of the config file.
+	 * 
+	 * @param overrides
+	 *            Properties, which replace the ones of the config file.
+	 */
+	public ConfigurationManager(Properties overrides) {
 		properties = new Properties();
 		try {
 			properties.load(getClass().getResourceAsStream(
@@ -38,6 +57,7 @@ public class ConfigurationManager {
 					"ConfigurationManager(): Could not load config file %s",
 					CONFIG_FILENAME));
 		}
+		properties.putAll(overrides);
 
 		if (!(getRepoRoot().exists() && getRepoRoot().isDirectory())) {
 			log.error(String
@@ -93,6 +113,68 @@ public class ConfigurationManager {
 		return "true".equals(getProperty(DEBUG_PROP_NAME));
 	}
 
+	/**
+	 * Gets the directory for cached resource archives. Defaults to a
+	 * directory in the system temp directory.
+	 * 
+	 * @return the directory for cached archives.
+	 */
+	public File getArchiveCacheDir() {
+		String dir = getProperty(ARCHIVE_CACHE_DIR_PROP_NAME);
+		if (dir == null || dir.trim().isEmpty()) {
+			return new File(System.getProperty("java.io.tmpdir"),
+					ARCHIVE_CACHE_DEFAULT_DIRNAME);
+		}
+		return new File(dir.trim());
+	}
+
+	/**
+	 * Gets the maximum total size of cached resource archives in bytes. The
+	 * property is in megabytes, 0 disables the cache.
+	 * 
+	 * @return the maximum size in bytes.
+	 */
+	public long getArchiveCacheSize() {
+		String value = getProperty(ARCHIVE_CACHE_SIZE_PROP_NAME);
+		long size = ARCHIVE_CACHE_DEFAULT_SIZE;
+		if (value != null) {
+			size = Parser.readLong(value.trim());
+		}
+		return size * 1024 * 1024;
+	}
+
+	/**
+	 * Gets the number of seconds between checks of a cached template for
+	 * changes. Defaults to 0 in debug mode and to never checking otherwise.
+	 * 
+	 * @return the template update delay in seconds.
+	 */
+	public int getTemplateUpdateDelay() {
+		String value = getProperty(TEMPLATE_UPDATE_DELAY_PROP_NAME);
+		if (value == null || value.trim().isEmpty()) {
+			return getDebug() ? 0 : Integer.MAX_VALUE;
+		}
+		return Parser.readInteger(value.trim());
+	}
+
+	/**
+	 * Gets the directory of the store for deduplicated test files. A relative
+	 * path is resolved against the repo root.
+	 * 
+	 * @return the directory of the store, or null if the store is disabled.
+	 */
+	public File getBlobStoreDir() {
+		String dir = getProperty(BLOB_STORE_DIR_PROP_NAME);
+		if (dir == null || dir.trim().isEmpty()) {
+			return null;
+		}
+		File res = new File(dir.trim());
+		if (!res.isAbsolute()) {
+			res = new File(getRepoRoot(), dir.trim());
+		}
+		return res;
+	}
+
 	/**
 	 * Gets the full path to the directory containing all the series.
 	 * 
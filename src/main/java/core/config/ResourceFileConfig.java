@@ -1,9 +1,5 @@
 package core.config;
 
-import java.util.Arrays;
-
-import core.util.CollectionUtil;
-
 /**
  * Contains definitions of specific constants related to resource files .
  * 
@@ -22,11 +18,6 @@ public class ResourceFileConfig {
 	 */
 	public static final String SECURITY_FILENAME = "_security.json";
 
-	/**
-	 * Regex for security filename.
-	 */
-	public static final String SECURITY_FILENAME_REGEX = "_security\\.json";
-
 	/**
 	 * File name of user json schema.
 	 */
@@ -42,51 +33,15 @@ public class ResourceFileConfig {
 	public static final String RESOURCE_PRIVATE_DIRECTORY_NAME = "_files";
 
 	/**
-	 * Regex for public and private directory of resources.
-	 */
-	public static final String ADDITIONAL_FILES = String.format("%s|%s",
-			RESOURCE_PUBLIC_DIRECTORY_NAME, RESOURCE_PRIVATE_DIRECTORY_NAME);
-
-	/**
-	 * Regex for problem test files.
-	 */
-	public static final String PROBLEM_TEST_FILE_REGEX = "(test\\.([0-9]{2}\\.)?(in|ans))";
-	/**
-	 * Regex for problem description files.
-	 */
-	public static final String PROBLEM_DESCRIPTION_FILE_REGEX = "(description(.*))";
-	/**
-	 * Regex for problem checker files.
-	 */
-	public static final String PROBLEM_CHECKER_FILE_REGEX = "(checker(.*))";
-	/**
-	 * Regex for problem solution files.
-	 */
-	public static final String PROBLEM_SOLUTION_FILE_REGEX = "(solution(.*))";
-	/**
-	 * Regex for a single test.in file.
-	 */
-	public static final String PROBLEM_TEST_IN_FILE_SINGLE_REGEX = "test\\.in";
-	/**
-	 * Regex for a single test.ans file.
-	 */
-	public static final String PROBLEM_TEST_ANS_FILE_SINGLE_REGEX = "test\\.ans";
-	/**
-	 * Regex for multiple single test.in files.
-	 */
-	public static final String PROBLEM_TEST_IN_FILE_MULTI_REGEX = "test\\.([0-9]{2})\\.in";
-	/**
-	 * Regex for multiple single test.ans files.
+	 * Directory name for staging imported resources, inside the series root.
 	 */
-	public static final String PROBLEM_TEST_ANS_FILE_MULTI_REGEX = "test\\.([0-9]{2})\\.ans";
+	public static final String STAGING_DIRECTORY_NAME = ".staging";
 
 	/**
-	 * Accumulation of regexes for problem extra files.
+	 * Age in milliseconds, after which a left over staging directory of an
+	 * interrupted import is removed.
 	 */
-	public static final String PROBLEM_EXTRA_FILES = CollectionUtil.join(
-			Arrays.asList(new String[] { PROBLEM_TEST_FILE_REGEX,
-					PROBLEM_DESCRIPTION_FILE_REGEX, PROBLEM_CHECKER_FILE_REGEX,
-					PROBLEM_SOLUTION_FILE_REGEX }), "|");
+	public static final long STAGING_MAX_AGE = 24 * 60 * 60 * 1000L;
 
 	/**
 	 * Regex for new directory.
@@ -32,5 +32,17 @@ public class RestConfig {
 	 * Prefix of the URI, indicating a zip-related request.
 	 */
 	public static final String ZIP_URI_PREFIX = "_zip";
+	/**
+	 * Prefix of the URI, indicating a batch of operations.
+	 */
+	public static final String BATCH_URI_PREFIX = "_batch";
+	/**
+	 * Maximum number of operations in a batch.
+	 */
+	public static final int BATCH_MAX_OPERATIONS = 1000;
+	/**
+	 * Maximum size of a file returned inline by a batch GET in bytes.
+	 */
+	public static final long BATCH_MAX_CONTENT_SIZE = 1024 * 1024;
 
 }
@@ -0,0 +1,69 @@
+package core.judge;
+
+/**
+ * Result of a {@link Checker}: the verdict and the reason of a rejection.
+ * 
+ * @author jani
+ * 
+ */
+public class CheckResult {
+	private static final CheckResult ACCEPTED = new CheckResult(
+			Verdict.ACCEPTED, "");
+
+	private final Verdict verdict;
+	private final String message;
+
+	private CheckResult(Verdict verdict, String message) {
+		this.verdict = verdict;
+		this.message = message;
+	}
+
+	/**
+	 * Gets the result of an accepted output.
+	 * 
+	 * @return {@link CheckResult}
+	 */
+	public static CheckResult accepted() {
+		return ACCEPTED;
+	}
+
+	/**
+	 * Creates the result of a rejected output.
+	 * 
+	 * @param message
+	 *            Reason of the rejection.
+	 * @return {@link CheckResult}
+	 */
+	public static CheckResult rejected(String message) {
+		return new CheckResult(Verdict.WRONG_ANSWER, message);
+	}
+
+	/**
+	 * Creates the result of a failed check.
+	 * 
+	 * @param message
+	 *            Reason of the failure.
+	 * @return {@link CheckResult}
+	 */
+	public static CheckResult failed(String message) {
+		return new CheckResult(Verdict.JUDGE_ERROR, message);
+	}
+
+	/**
+	 * Gets the verdict.
+	 * 
+	 * @return {@link Verdict}
+	 */
+	public Verdict getVerdict() {
+		return verdict;
+	}
+
+	/**
+	 * Gets the reason of the verdict.
+	 * 
+	 * @return Message, empty if accepted.
+	 */
+	public String getMessage() {
+		return message;
+	}
+}
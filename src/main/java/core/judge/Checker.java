@@ -0,0 +1,28 @@
+package core.judge;
+
+import java.io.File;
+import java.io.IOException;
+
+import core.model.TestCase;
+
+/**
+ * Decides whether the output of a solution is correct for a test. Checkers
+ * are shared by all tests of a run, so they are called in parallel.
+ * 
+ * @author jani
+ * 
+ */
+public interface Checker {
+
+	/**
+	 * Checks the output of a solution.
+	 * 
+	 * @param test
+	 *            The {@link TestCase}.
+	 * @param output
+	 *            Output of the solution.
+	 * @return {@link CheckResult}
+	 * @throws IOException
+	 */
+	CheckResult check(TestCase test, File output) throws IOException;
+}
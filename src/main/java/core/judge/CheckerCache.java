@@ -0,0 +1,442 @@
+package core.judge;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import core.util.FileUtil;
+
+/**
+ * Disk cache of compiled checkers. A checker is identified by the SHA-256
+ * hash of its source, its file name and the compiler command of its language,
+ * so a new version of the checker or of the compiler flags is compiled again.
+ * Each checker is compiled together with a copy of its source into its own
+ * directory, which is renamed into the cache when the compilation succeeds.
+ * 
+ * Concurrent requests for the same checker wait for a single compilation. The
+ * total size of the cached checkers is bounded, the least recently used ones
+ * are evicted first. An evicted checker, which is still used by a running
+ * judge, fails for the rest of that run. The cache is disabled until it is
+ * configured.
+ * 
+ * The cache coordinates only the threads of one process. Processes sharing a
+ * directory reuse each other's checkers, but the eviction of one process may
+ * delete a checker, which another one is running. So each user should have a
+ * separate directory and concurrent processes should not share one. As the
+ * cached checkers are run, a directory is created accessible only by its
+ * owner and refused, if it belongs to another user or others may write it.
+ * 
+ * @author jani
+ * 
+ */
+public class CheckerCache {
+	private static Logger log = LoggerFactory.getLogger(CheckerCache.class);
+
+	private static final CheckerCache instance = new CheckerCache();
+
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private static final long COMPILE_TIME_LIMIT = 60000;
+
+	private static final String DEFAULT_DIRECTORY = ".cache/core-checkers";
+
+	/**
+	 * Default maximum total size of the compiled checkers in bytes.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 256 * 1024 * 1024;
+
+	private File directory;
+
+	private long maxSize;
+
+	private long size;
+
+	private final LinkedHashMap<String, Entry> entries;
+
+	private final ConcurrentMap<String, FutureTask<Program>> compiling;
+
+	private final AtomicLong hits;
+
+	private final AtomicLong misses;
+
+	/**
+	 * Gets the shared instance of the cache.
+	 * 
+	 * @return {@link CheckerCache}
+	 */
+	public static CheckerCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Gets the default directory of the cache, which is in the home directory
+	 * of the user.
+	 * 
+	 * @return Directory for compiled checkers.
+	 */
+	public static File getDefaultDirectory() {
+		return new File(System.getProperty("user.home"), DEFAULT_DIRECTORY);
+	}
+
+	private CheckerCache() {
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		compiling = new ConcurrentHashMap<String, FutureTask<Program>>();
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+	}
+
+	/**
+	 * Configures the cache. Checkers, which are already in the directory, are
+	 * reused. Configuring with the current settings has no effect. A missing
+	 * directory is created accessible only by the user. The cache stays
+	 * disabled, if the directory belongs to another user or is writable by
+	 * others.
+	 * 
+	 * @param directory
+	 *            Directory for compiled checkers.
+	 * @param maxSize
+	 *            Maximum total size of the compiled checkers in bytes. Zero
+	 *            or less disables the cache.
+	 */
+	public synchronized void configure(File directory, long maxSize) {
+		File dir = directory.getAbsoluteFile();
+		if (dir.equals(this.directory) && maxSize == this.maxSize) {
+			return;
+		}
+
+		entries.clear();
+		size = 0;
+		this.maxSize = maxSize;
+		this.directory = null;
+		if (maxSize <= 0) {
+			return;
+		}
+
+		if (!createPrivate(dir)) {
+			log.error(String.format(
+					"CheckerCache.configure(): Unable to create %s", dir));
+			return;
+		}
+		if (!isPrivate(dir)) {
+			log.error(String.format(
+					"CheckerCache.configure(): %s is not owned by %s or writable by others, refusing it",
+					dir, System.getProperty("user.name")));
+			return;
+		}
+		this.directory = dir;
+
+		File[] files = dir.listFiles();
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				return Long.valueOf(o1.lastModified()).compareTo(
+						o2.lastModified());
+			}
+		});
+		for (File file : files) {
+			if (file.getName().endsWith(TEMP_EXTENSION)) {
+				FileUtil.delete(file);
+			} else if (file.isDirectory()) {
+				File source = findSource(file);
+				if (source != null) {
+					add(file.getName(), Program.load(source, file));
+				}
+			}
+		}
+		evict();
+	}
+
+	private static boolean createPrivate(File dir) {
+		if (dir.isDirectory()) {
+			return true;
+		}
+		dir.getParentFile().mkdirs();
+		try {
+			Files.createDirectory(dir.toPath(), PosixFilePermissions
+					.asFileAttribute(PosixFilePermissions
+							.fromString("rwx------")));
+		} catch (UnsupportedOperationException e) {
+			// no POSIX permissions
+			dir.mkdir();
+		} catch (IOException e) {
+			// created meanwhile or not creatable
+		}
+		return dir.isDirectory();
+	}
+
+	private static boolean isPrivate(File dir) {
+		Path path = dir.toPath();
+		String user = System.getProperty("user.name");
+		try {
+			Set<PosixFilePermission> permissions = Files
+					.getPosixFilePermissions(path);
+			return user.equals(Files.getOwner(path).getName())
+					&& user.equals(Files.getOwner(path,
+							LinkOption.NOFOLLOW_LINKS).getName())
+					&& !permissions.contains(PosixFilePermission.GROUP_WRITE)
+					&& !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+		} catch (UnsupportedOperationException e) {
+			// no POSIX permissions to check
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Checks whether the cache is configured and enabled.
+	 * 
+	 * @return Whether enabled.
+	 */
+	public synchronized boolean isEnabled() {
+		return directory != null;
+	}
+
+	/**
+	 * Gets a compiled checker. If the checker is not cached, it is compiled
+	 * and stored in the cache, if the compilation succeeds.
+	 * 
+	 * @param source
+	 *            Source file of the checker.
+	 * @return {@link Program}, check {@link Program#isCompiled()}.
+	 * @throws IOException
+	 *             If the source cannot be read or the cache is disabled.
+	 */
+	public Program get(final File source) throws IOException {
+		final String key = getKey(source);
+		synchronized (this) {
+			if (directory == null) {
+				throw new IOException("Checker cache is disabled");
+			}
+			Entry entry = entries.get(key);
+			if (entry != null && entry.program.getSource().isFile()) {
+				hits.incrementAndGet();
+				entry.program.getSource().getParentFile()
+						.setLastModified(System.currentTimeMillis());
+				return entry.program;
+			}
+		}
+
+		FutureTask<Program> task = new FutureTask<Program>(
+				new Callable<Program>() {
+					@Override
+					public Program call() throws IOException {
+						return compile(key, source);
+					}
+				});
+		FutureTask<Program> running = compiling.putIfAbsent(key, task);
+		if (running == null) {
+			try {
+				task.run();
+			} finally {
+				compiling.remove(key, task);
+			}
+			running = task;
+		}
+
+		try {
+			return running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while compiling");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Gets the total size of the cached checkers.
+	 * 
+	 * @return Size in bytes.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of requests served from the cache.
+	 * 
+	 * @return Number of hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of compilations.
+	 * 
+	 * @return Number of misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private Program compile(String key, File source) throws IOException {
+		File dir;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null && entry.program.getSource().isFile()) {
+				// compiled while this request was waiting
+				return entry.program;
+			}
+			dir = directory;
+		}
+		if (dir == null) {
+			throw new IOException("Checker cache is disabled");
+		}
+		misses.incrementAndGet();
+
+		File temp = new File(dir, key + "." + UUID.randomUUID()
+				+ TEMP_EXTENSION);
+		File target = new File(dir, key);
+		try {
+			temp.mkdirs();
+			File copy = new File(temp, source.getName());
+			Files.copy(source.toPath(), copy.toPath());
+			Program program = Program.compile(copy, temp, COMPILE_TIME_LIMIT);
+			if (!program.isCompiled()) {
+				return program;
+			}
+
+			// a checker of the same key has the same source, so one compiled
+			// meanwhile by another process is reused instead of replaced
+			if (!target.exists()) {
+				try {
+					Files.move(temp.toPath(), target.toPath(),
+							StandardCopyOption.ATOMIC_MOVE);
+				} catch (IOException e) {
+					if (!target.isDirectory()) {
+						throw e;
+					}
+				}
+			}
+			Program res = Program.load(new File(target, source.getName()),
+					target);
+			synchronized (this) {
+				if (dir.equals(directory)) {
+					add(key, res);
+					evict();
+				}
+			}
+			return res;
+		} finally {
+			FileUtil.delete(temp);
+		}
+	}
+
+	private void add(String key, Program program) {
+		File dir = program.getSource().getParentFile();
+		Entry old = entries.remove(key);
+		if (old != null) {
+			size -= old.size;
+		}
+		Entry entry = new Entry(program, FileUtils.sizeOfDirectory(dir));
+		entries.put(key, entry);
+		size += entry.size;
+	}
+
+	private void evict() {
+		Iterator<Entry> it = entries.values().iterator();
+		// the most recent checker is kept, it is about to be used
+		while (size > maxSize && entries.size() > 1 && it.hasNext()) {
+			Entry entry = it.next();
+			it.remove();
+			size -= entry.size;
+			File dir = entry.program.getSource().getParentFile();
+			if (!FileUtil.delete(dir) && dir.exists()) {
+				log.info(String.format(
+						"CheckerCache.evict(): Unable to delete %s", dir));
+			}
+		}
+	}
+
+	private static File findSource(File directory) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return null;
+		}
+		for (File file : files) {
+			if (file.isFile() && Language.forFile(file) != null) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Builds the cache key of a checker.
+	 * 
+	 * @param source
+	 * @return Hex SHA-256 key.
+	 * @throws IOException
+	 *             If the source cannot be read or its language is unknown.
+	 */
+	static String getKey(File source) throws IOException {
+		Language language = Language.forFile(source);
+		if (language == null) {
+			throw new IOException(String.format("Unknown language of %s",
+					source.getName()));
+		}
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			update(digest, language.name());
+			update(digest, source.getName());
+			List<String> command = language.getCompileCommand(new File(
+					source.getName()), new File("."));
+			update(digest, String.valueOf(command));
+			digest.update(Files.readAllBytes(source.toPath()));
+			return String.format("%064x", new BigInteger(1, digest.digest()));
+		} catch (NoSuchAlgorithmException e) {
+			assert false;
+		}
+		return null;
+	}
+
+	private static void update(MessageDigest digest, String value)
+			throws UnsupportedEncodingException {
+		digest.update(value.getBytes("UTF-8"));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * A cached checker.
+	 */
+	private static class Entry {
+		private final Program program;
+		private final long size;
+
+		Entry(Program program, long size) {
+			this.program = program;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package core.judge;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import core.config.ResourceConfig;
+import core.model.Problem;
+import core.model.TestCase;
+import core.util.FileUtil;
+
+/**
+ * Judges solutions of problems locally. The solution is compiled once per run
+ * in a temporary directory and the checker is taken from the
+ * {@link CheckerCache}, if it is enabled. Then all tests are run in
+ * parallel, one process per test, with the time and memory limits of the
+ * problem. The output of every test is checked by the checker of the problem
+ * as soon as the test finishes and removed afterwards.
+ * 
+ * Time is measured by the wall clock, so the parallelism should not exceed
+ * the number of cores, if the limits are tight.
+ * 
+ * @author jani
+ * 
+ */
+public class Judge {
+	private static Logger log = LoggerFactory.getLogger(Judge.class);
+
+	private static final long COMPILE_TIME_LIMIT = 60000;
+
+	private static final long CHECKER_TIME_LIMIT = 60000;
+
+	// problems without a time limit
+	private static final long DEFAULT_TIME_LIMIT = 10000;
+
+	private static final String OUT_OF_MEMORY = "OutOfMemoryError";
+
+	private final ExecutorService pool;
+
+	private final Checker diffChecker;
+
+	/**
+	 * Creates a judge, which uses all available processors.
+	 */
+	public Judge() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a judge with the specified parallelism.
+	 * 
+	 * @param parallelism
+	 *            Number of tests run at the same time.
+	 */
+	public Judge(int parallelism) {
+		this(parallelism, new TokenChecker());
+	}
+
+	/**
+	 * Creates a judge with the specified parallelism and checker of "diff"
+	 * problems.
+	 * 
+	 * @param parallelism
+	 *            Number of tests run at the same time.
+	 * @param diffChecker
+	 *            {@link Checker} of problems without a custom checker.
+	 */
+	public Judge(int parallelism, Checker diffChecker) {
+		pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+		this.diffChecker = diffChecker;
+	}
+
+	/**
+	 * Judges a solution on all tests of a problem.
+	 * 
+	 * @param problem
+	 *            The {@link Problem}.
+	 * @param solution
+	 *            Source file of the solution.
+	 * @return {@link JudgeResult}
+	 */
+	public JudgeResult judge(Problem problem, File solution) {
+		List<TestCase> tests = problem.getTestCases();
+		if (tests.isEmpty()) {
+			return new JudgeResult(Verdict.JUDGE_ERROR, "No tests found.");
+		}
+
+		File work = FileUtil.getTempDirectory();
+		try {
+			Program program = Program.compile(solution, new File(work,
+					"solution"), COMPILE_TIME_LIMIT);
+			if (!program.isCompiled()) {
+				return new JudgeResult(Verdict.COMPILATION_ERROR,
+						program.getMessage());
+			}
+
+			Checker checker = diffChecker;
+			if (ResourceConfig.PROBLEM_CUSTOM_CHECKERS.equals(problem
+					.getChecker())) {
+				File source = problem.getCheckerFile();
+				if (source == null) {
+					return new JudgeResult(Verdict.JUDGE_ERROR,
+							"Checker file is missing.");
+				}
+				Program compiled;
+				try {
+					compiled = compileChecker(source, work);
+				} catch (IOException e) {
+					return new JudgeResult(Verdict.JUDGE_ERROR,
+							"Unable to compile the checker: " + e.getMessage());
+				}
+				if (!compiled.isCompiled()) {
+					return new JudgeResult(Verdict.JUDGE_ERROR,
+							"Unable to compile the checker: "
+									+ compiled.getMessage());
+				}
+				checker = new ProgramChecker(compiled, CHECKER_TIME_LIMIT);
+			}
+
+			return new JudgeResult(runTests(problem, tests, program, checker,
+					work));
+		} finally {
+			FileUtil.delete(work);
+		}
+	}
+
+	/**
+	 * Stops the worker threads.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private static Program compileChecker(File source, File work)
+			throws IOException {
+		CheckerCache cache = CheckerCache.getInstance();
+		if (cache.isEnabled()) {
+			return cache.get(source);
+		}
+		return Program.compile(source, new File(work, "checker"),
+				COMPILE_TIME_LIMIT);
+	}
+
+	private List<TestResult> runTests(Problem problem, List<TestCase> tests,
+			Program program, Checker checker, File work) {
+		long timeLimit = Math.round(problem.getTimeLimit() * 1000);
+		if (timeLimit <= 0) {
+			timeLimit = DEFAULT_TIME_LIMIT;
+		}
+		int memoryLimit = problem.getMemoryLimit() == null ? 0 : problem
+				.getMemoryLimit();
+
+		List<Future<TestResult>> futures = new ArrayList<Future<TestResult>>();
+		for (TestCase test : tests) {
+			futures.add(pool.submit(new TestTask(test, program, checker,
+					work, timeLimit, memoryLimit)));
+		}
+
+		List<TestResult> res = new ArrayList<TestResult>();
+		for (int i = 0; i < futures.size(); i++) {
+			TestCase test = tests.get(i);
+			try {
+				res.add(futures.get(i).get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Future<TestResult> future : futures) {
+					future.cancel(true);
+				}
+				res.add(new TestResult(test.getIndex(), test.getWeight(),
+						Verdict.JUDGE_ERROR, 0, "Interrupted"));
+				break;
+			} catch (ExecutionException e) {
+				log.error(String.format("Judge.runTests(): Test %d failed",
+						test.getIndex()), e.getCause());
+				res.add(new TestResult(test.getIndex(), test.getWeight(),
+						Verdict.JUDGE_ERROR, 0, String.valueOf(e.getCause())));
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Runs and checks a single test.
+	 */
+	private static class TestTask implements Callable<TestResult> {
+		private final TestCase test;
+		private final Program program;
+		private final Checker checker;
+		private final File work;
+		private final long timeLimit;
+		private final int memoryLimit;
+
+		TestTask(TestCase test, Program program, Checker checker, File work,
+				long timeLimit, int memoryLimit) {
+			this.test = test;
+			this.program = program;
+			this.checker = checker;
+			this.work = work;
+			this.timeLimit = timeLimit;
+			this.memoryLimit = memoryLimit;
+		}
+
+		@Override
+		public TestResult call() {
+			File output = new File(work, String.format("test.%02d.out",
+					test.getIndex()));
+			try {
+				Program.Execution execution = program.run(test.getInput()
+						.getFile(), output, Collections.<String> emptyList(),
+						timeLimit, memoryLimit);
+				Verdict verdict;
+				String message = execution.getError();
+				if (execution.isMemoryExceeded()
+						|| execution.getError().contains(OUT_OF_MEMORY)) {
+					verdict = Verdict.MEMORY_LIMIT_EXCEEDED;
+				} else if (execution.isTimedOut()
+						|| execution.getTime() > timeLimit) {
+					verdict = Verdict.TIME_LIMIT_EXCEEDED;
+				} else if (execution.getExitCode() != 0) {
+					verdict = Verdict.RUNTIME_ERROR;
+				} else {
+					CheckResult result = checker.check(test, output);
+					verdict = result.getVerdict();
+					message = result.getMessage();
+				}
+				return new TestResult(test.getIndex(), test.getWeight(),
+						verdict, execution.getTime(), message);
+			} catch (IOException e) {
+				return new TestResult(test.getIndex(), test.getWeight(),
+						Verdict.JUDGE_ERROR, 0, e.getMessage());
+			} finally {
+				output.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package core.judge;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of judging a solution on all tests of a problem.
+ * 
+ * @author jani
+ * 
+ */
+public class JudgeResult {
+	private final Verdict verdict;
+	private final String message;
+	private final List<TestResult> tests;
+
+	JudgeResult(List<TestResult> tests) {
+		Verdict res = Verdict.ACCEPTED;
+		for (TestResult test : tests) {
+			if (test.getVerdict() != Verdict.ACCEPTED) {
+				res = test.getVerdict();
+				break;
+			}
+		}
+		this.verdict = res;
+		this.message = "";
+		this.tests = Collections.unmodifiableList(tests);
+	}
+
+	JudgeResult(Verdict verdict, String message) {
+		this.verdict = verdict;
+		this.message = message;
+		this.tests = Collections.emptyList();
+	}
+
+	/**
+	 * Gets the overall verdict: the verdict of the first test, which was not
+	 * accepted, or the verdict, which prevented running the tests.
+	 * 
+	 * @return {@link Verdict}
+	 */
+	public Verdict getVerdict() {
+		return verdict;
+	}
+
+	/**
+	 * Checks whether all tests were accepted.
+	 * 
+	 * @return Whether accepted.
+	 */
+	public boolean isAccepted() {
+		return verdict == Verdict.ACCEPTED;
+	}
+
+	/**
+	 * Gets the compiler output or the reason, why the tests were not run.
+	 * 
+	 * @return Message, possibly empty.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Gets the results of the tests, ordered by index.
+	 * 
+	 * @return Unmodifiable list of {@link TestResult}s.
+	 */
+	public List<TestResult> getTests() {
+		return tests;
+	}
+
+	/**
+	 * Gets the total weight of the accepted tests.
+	 * 
+	 * @return Score.
+	 */
+	public int getScore() {
+		int res = 0;
+		for (TestResult test : tests) {
+			if (test.getVerdict() == Verdict.ACCEPTED) {
+				res += test.getWeight();
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Gets the total weight of all tests.
+	 * 
+	 * @return Maximum score.
+	 */
+	public int getMaxScore() {
+		int res = 0;
+		for (TestResult test : tests) {
+			res += test.getWeight();
+		}
+		return res;
+	}
+}
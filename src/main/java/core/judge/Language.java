@@ -0,0 +1,169 @@
+package core.judge;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Languages of solutions and checkers, recognized by the extension of the
+ * source file.
+ * 
+ * @author jani
+ * 
+ */
+public enum Language {
+	/**
+	 * C, compiled with gcc.
+	 */
+	C("c") {
+		@Override
+		List<String> getCompileCommand(File source, File directory) {
+			return Arrays.asList("gcc", "-O2", "-std=gnu11", "-o",
+					getExecutable(directory).getPath(), source.getPath(),
+					"-lm");
+		}
+
+		@Override
+		List<String> getRunCommand(File source, File directory,
+				int memoryLimit) {
+			return nativeCommand(directory);
+		}
+	},
+	/**
+	 * C++, compiled with g++.
+	 */
+	CPP("cpp", "cc", "cxx") {
+		@Override
+		List<String> getCompileCommand(File source, File directory) {
+			return Arrays.asList("g++", "-O2", "-o", getExecutable(directory)
+					.getPath(), source.getPath());
+		}
+
+		@Override
+		List<String> getRunCommand(File source, File directory,
+				int memoryLimit) {
+			return nativeCommand(directory);
+		}
+	},
+	/**
+	 * Java, compiled with javac. The main class is named after the source
+	 * file.
+	 */
+	JAVA("java") {
+		@Override
+		List<String> getCompileCommand(File source, File directory) {
+			return Arrays.asList("javac", "-encoding", "UTF-8", "-d",
+					directory.getPath(), source.getPath());
+		}
+
+		@Override
+		List<String> getRunCommand(File source, File directory,
+				int memoryLimit) {
+			List<String> res = new ArrayList<String>();
+			res.add("java");
+			if (memoryLimit > 0) {
+				// the virtual machine reserves far more than its heap
+				res.add(String.format("-Xmx%dm", memoryLimit));
+			}
+			res.add("-cp");
+			res.add(directory.getPath());
+			String name = source.getName();
+			res.add(name.substring(0, name.lastIndexOf('.')));
+			return res;
+		}
+
+		@Override
+		boolean isAddressSpaceLimited() {
+			return false;
+		}
+	},
+	/**
+	 * Python 3, interpreted.
+	 */
+	PYTHON("py") {
+		@Override
+		List<String> getCompileCommand(File source, File directory) {
+			return null;
+		}
+
+		@Override
+		List<String> getRunCommand(File source, File directory,
+				int memoryLimit) {
+			return Arrays.asList("python3", source.getAbsolutePath());
+		}
+	};
+
+	private static final String EXECUTABLE_NAME = "program";
+
+	private final String[] extensions;
+
+	private Language(String... extensions) {
+		this.extensions = extensions;
+	}
+
+	/**
+	 * Finds the language of a source file.
+	 * 
+	 * @param source
+	 *            Source file.
+	 * @return {@link Language} or null, if the extension is unknown.
+	 */
+	public static Language forFile(File source) {
+		String name = source.getName();
+		int dot = name.lastIndexOf('.');
+		if (dot < 0) {
+			return null;
+		}
+		String extension = name.substring(dot + 1).toLowerCase();
+		for (Language language : values()) {
+			if (Arrays.asList(language.extensions).contains(extension)) {
+				return language;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the command, which compiles a source file into a directory.
+	 * 
+	 * @param source
+	 *            Source file.
+	 * @param directory
+	 *            Directory for the compiled program.
+	 * @return Command or null, if the language is not compiled.
+	 */
+	abstract List<String> getCompileCommand(File source, File directory);
+
+	/**
+	 * Gets the command, which runs a compiled program.
+	 * 
+	 * @param source
+	 *            Source file.
+	 * @param directory
+	 *            Directory of the compiled program.
+	 * @param memoryLimit
+	 *            Memory limit in mebibytes, zero for none.
+	 * @return Command.
+	 */
+	abstract List<String> getRunCommand(File source, File directory,
+			int memoryLimit);
+
+	/**
+	 * Checks whether the memory limit is enforced by limiting the address
+	 * space of the process.
+	 * 
+	 * @return Whether the address space is limited.
+	 */
+	boolean isAddressSpaceLimited() {
+		return true;
+	}
+
+	private static File getExecutable(File directory) {
+		return new File(directory, EXECUTABLE_NAME);
+	}
+
+	private static List<String> nativeCommand(File directory) {
+		return Arrays.asList(getExecutable(directory).getAbsolutePath());
+	}
+}
@@ -0,0 +1,407 @@
+package core.judge;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A compiled solution or checker. A program is compiled once into its own
+ * directory and can then be run any number of times, also in parallel.
+ * 
+ * Runs are limited in time by the wall clock: the process is killed when the
+ * limit is over. The memory limit of Java is enforced by limiting its heap.
+ * Other programs are started through the shell, which records their process
+ * id and limits their address space to a multiple of the memory limit, so a
+ * runaway program cannot exhaust the machine. Their peak resident memory is
+ * sampled from /proc while they run, and they are killed as soon as it is
+ * over the limit. A program, which fails to allocate below the address space
+ * limit, or which exceeds the limit only shortly before it ends, is not
+ * noticed by the samples.
+ * 
+ * @author jani
+ * 
+ */
+public class Program {
+	private static Logger log = LoggerFactory.getLogger(Program.class);
+
+	private static final File SHELL = new File("/bin/sh");
+
+	private static final String COMPILE_LOG_NAME = "compile.log";
+
+	private static final int MAX_MESSAGE_LENGTH = 4096;
+
+	private static final int ADDRESS_SPACE_FACTOR = 4;
+
+	private static final long SAMPLE_INTERVAL = 10;
+
+	private static final Pattern PEAK_MEMORY = Pattern
+			.compile("VmHWM:\\s+(\\d+) kB");
+
+	private static final ScheduledExecutorService watchdog = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread res = new Thread(r, "Program.watchdog");
+					res.setDaemon(true);
+					return res;
+				}
+			});
+
+	private final File source;
+	private final Language language;
+	private final File directory;
+	private boolean compiled;
+	private String message;
+
+	private Program(File source, Language language, File directory) {
+		this.source = source.getAbsoluteFile();
+		this.language = language;
+		this.directory = directory.getAbsoluteFile();
+		this.message = "";
+	}
+
+	/**
+	 * Compiles a source file.
+	 * 
+	 * @param source
+	 *            Source file.
+	 * @param directory
+	 *            Directory for the compiled program, created if missing.
+	 * @param timeLimit
+	 *            Time limit of the compiler in milliseconds.
+	 * @return {@link Program}, check {@link #isCompiled()}.
+	 */
+	public static Program compile(File source, File directory, long timeLimit) {
+		Language language = Language.forFile(source);
+		Program res = new Program(source, language, directory);
+		if (language == null) {
+			res.message = String.format("Unknown language of %s",
+					source.getName());
+			return res;
+		}
+		directory.mkdirs();
+
+		List<String> command = language.getCompileCommand(res.source,
+				res.directory);
+		if (command == null) {
+			res.compiled = true;
+			return res;
+		}
+
+		File output = new File(directory, COMPILE_LOG_NAME);
+		ProcessBuilder builder = new ProcessBuilder(command)
+				.directory(res.directory).redirectErrorStream(true)
+				.redirectOutput(output);
+		try {
+			Execution execution = execute(builder, timeLimit, null, 0);
+			res.compiled = !execution.isTimedOut()
+					&& execution.getExitCode() == 0;
+			res.message = execution.isTimedOut() ? "Compilation timed out"
+					: readTail(output);
+		} catch (IOException e) {
+			log.info(String.format("Program.compile(): Unable to compile %s",
+					source));
+			res.message = e.getMessage();
+		}
+		return res;
+	}
+
+	/**
+	 * Gets a program, which has already been compiled into a directory.
+	 * 
+	 * @param source
+	 *            Source file.
+	 * @param directory
+	 *            Directory of the compiled program.
+	 * @return {@link Program}
+	 */
+	static Program load(File source, File directory) {
+		Program res = new Program(source, Language.forFile(source), directory);
+		res.compiled = res.language != null;
+		return res;
+	}
+
+	/**
+	 * Checks whether the program is ready to run.
+	 * 
+	 * @return Whether compiled.
+	 */
+	public boolean isCompiled() {
+		return compiled;
+	}
+
+	/**
+	 * Gets the output of the compiler.
+	 * 
+	 * @return Message, possibly empty.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Gets the source file of the program.
+	 * 
+	 * @return {@link File}
+	 */
+	public File getSource() {
+		return source;
+	}
+
+	/**
+	 * Runs the program. The standard error is written next to the output
+	 * file, with the extension ".err".
+	 * 
+	 * @param input
+	 *            File for the standard input.
+	 * @param output
+	 *            File for the standard output.
+	 * @param args
+	 *            Arguments of the program.
+	 * @param timeLimit
+	 *            Time limit in milliseconds, zero for none.
+	 * @param memoryLimit
+	 *            Memory limit in mebibytes, zero for none.
+	 * @return {@link Execution}
+	 * @throws IOException
+	 *             If the program cannot be started.
+	 */
+	public Execution run(File input, File output, List<String> args,
+			long timeLimit, int memoryLimit) throws IOException {
+		if (!compiled) {
+			throw new IOException(String.format("%s is not compiled",
+					source.getName()));
+		}
+		List<String> command = new ArrayList<String>();
+		File pidFile = null;
+		if (memoryLimit > 0 && language.isAddressSpaceLimited()
+				&& SHELL.canExecute()) {
+			// the process id stays the same through exec
+			pidFile = new File(output.getPath() + ".pid");
+			command.add(SHELL.getPath());
+			command.add("-c");
+			command.add(String.format(
+					"echo $$ > \"$0\" && ulimit -v %d && exec \"$@\"",
+					memoryLimit * 1024L * ADDRESS_SPACE_FACTOR));
+			command.add(pidFile.getPath());
+		}
+		command.addAll(language.getRunCommand(source, directory, memoryLimit));
+		command.addAll(args);
+
+		File error = new File(output.getPath() + ".err");
+		ProcessBuilder builder = new ProcessBuilder(command)
+				.directory(directory).redirectInput(input)
+				.redirectOutput(output).redirectError(error);
+		Execution res;
+		try {
+			res = execute(builder, timeLimit, pidFile, memoryLimit * 1024L);
+		} finally {
+			if (pidFile != null) {
+				pidFile.delete();
+			}
+		}
+		res.error = readTail(error);
+		error.delete();
+		return res;
+	}
+
+	private static Execution execute(ProcessBuilder builder, long timeLimit,
+			File pidFile, long memoryLimit) throws IOException {
+		long start = System.nanoTime();
+		final Process process = builder.start();
+		final AtomicBoolean killed = new AtomicBoolean();
+		ScheduledFuture<?> timer = null;
+		if (timeLimit > 0) {
+			timer = watchdog.schedule(new Runnable() {
+				@Override
+				public void run() {
+					killed.set(true);
+					process.destroy();
+				}
+			}, timeLimit, TimeUnit.MILLISECONDS);
+		}
+		MemoryMonitor monitor = null;
+		ScheduledFuture<?> sampler = null;
+		if (pidFile != null) {
+			monitor = new MemoryMonitor(process, pidFile, memoryLimit);
+			sampler = watchdog.scheduleWithFixedDelay(monitor, 0,
+					SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+		}
+		try {
+			int exitCode = process.waitFor();
+			long time = (System.nanoTime() - start) / 1000000;
+			Execution res = new Execution(exitCode, time, killed.get());
+			if (monitor != null) {
+				res.peakMemory = monitor.peak;
+				res.memoryExceeded = monitor.exceeded;
+			}
+			return res;
+		} catch (InterruptedException e) {
+			process.destroy();
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while running");
+		} finally {
+			if (timer != null) {
+				timer.cancel(false);
+			}
+			if (sampler != null) {
+				sampler.cancel(false);
+			}
+		}
+	}
+
+	private static String readTail(File file) {
+		try {
+			RandomAccessFile f = new RandomAccessFile(file, "r");
+			try {
+				long length = f.length();
+				byte[] res = new byte[(int) Math.min(length,
+						MAX_MESSAGE_LENGTH)];
+				f.seek(length - res.length);
+				f.readFully(res);
+				return new String(res, "UTF-8");
+			} finally {
+				f.close();
+			}
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+	/**
+	 * Samples the peak resident memory of a running process and kills it,
+	 * when the peak is over the limit.
+	 */
+	private static class MemoryMonitor implements Runnable {
+		private final Process process;
+		private final File pidFile;
+		private final long limit;
+		private String pid;
+		private volatile long peak;
+		private volatile boolean exceeded;
+
+		MemoryMonitor(Process process, File pidFile, long limit) {
+			this.process = process;
+			this.pidFile = pidFile;
+			this.limit = limit;
+		}
+
+		@Override
+		public void run() {
+			try {
+				if (pid == null) {
+					String content = FileUtils.readFileToString(pidFile)
+							.trim();
+					if (!content.matches("\\d+")) {
+						// not written yet
+						return;
+					}
+					pid = content;
+				}
+				Matcher m = PEAK_MEMORY.matcher(FileUtils
+						.readFileToString(new File("/proc/" + pid
+								+ "/status")));
+				if (!m.find()) {
+					return;
+				}
+				peak = Math.max(peak, Long.parseLong(m.group(1)));
+			} catch (IOException e) {
+				// not started yet, ended or no /proc
+				return;
+			}
+			if (peak > limit && !exceeded) {
+				exceeded = true;
+				process.destroy();
+			}
+		}
+	}
+
+	/**
+	 * Result of a single run of a program.
+	 */
+	public static class Execution {
+		private final int exitCode;
+		private final long time;
+		private final boolean timedOut;
+		private String error;
+		private long peakMemory;
+		private boolean memoryExceeded;
+
+		Execution(int exitCode, long time, boolean timedOut) {
+			this.exitCode = exitCode;
+			this.time = time;
+			this.timedOut = timedOut;
+			this.error = "";
+		}
+
+		/**
+		 * Gets the exit code of the process.
+		 * 
+		 * @return Exit code.
+		 */
+		public int getExitCode() {
+			return exitCode;
+		}
+
+		/**
+		 * Gets the wall clock time of the run.
+		 * 
+		 * @return Time in milliseconds.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * Checks whether the process was killed at the time limit.
+		 * 
+		 * @return Whether timed out.
+		 */
+		public boolean isTimedOut() {
+			return timedOut;
+		}
+
+		/**
+		 * Gets the peak resident memory of the process, as far as it was
+		 * sampled.
+		 * 
+		 * @return Memory in kibibytes, zero if not sampled.
+		 */
+		public long getPeakMemory() {
+			return peakMemory;
+		}
+
+		/**
+		 * Checks whether the process was seen over the memory limit. Such a
+		 * process is killed.
+		 * 
+		 * @return Whether the memory limit was exceeded.
+		 */
+		public boolean isMemoryExceeded() {
+			return memoryExceeded;
+		}
+
+		/**
+		 * Gets the end of the standard error of the process.
+		 * 
+		 * @return Error output, possibly empty.
+		 */
+		public String getError() {
+			return error;
+		}
+	}
+}
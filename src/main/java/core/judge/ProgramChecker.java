@@ -0,0 +1,59 @@
+package core.judge;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import core.model.TestCase;
+
+/**
+ * Checker of "custom" problems, which runs the compiled checker of the
+ * problem with the input, the answer and the output file as arguments. Exit
+ * code 0 accepts the output, 1 and 2 reject it and anything else is an error
+ * of the checker.
+ * 
+ * @author jani
+ * 
+ */
+public class ProgramChecker implements Checker {
+	private final Program program;
+	private final long timeLimit;
+
+	/**
+	 * Creates a checker.
+	 * 
+	 * @param program
+	 *            The compiled checker.
+	 * @param timeLimit
+	 *            Time limit of the checker in milliseconds.
+	 */
+	public ProgramChecker(Program program, long timeLimit) {
+		this.program = program;
+		this.timeLimit = timeLimit;
+	}
+
+	@Override
+	public CheckResult check(TestCase test, File output) throws IOException {
+		File log = new File(output.getPath() + ".check");
+		try {
+			Program.Execution execution = program.run(test.getInput()
+					.getFile(), log, Arrays.asList(test.getInput().getFile()
+					.getAbsolutePath(), test.getAnswer().getFile()
+					.getAbsolutePath(), output.getAbsolutePath()), timeLimit, 0);
+			if (execution.isTimedOut()) {
+				return CheckResult.failed("Checker timed out");
+			}
+			switch (execution.getExitCode()) {
+			case 0:
+				return CheckResult.accepted();
+			case 1:
+			case 2:
+				return CheckResult.rejected(execution.getError());
+			default:
+				return CheckResult.failed(execution.getError());
+			}
+		} finally {
+			log.delete();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package core.judge;
+
+/**
+ * Result of judging a solution on a single test.
+ * 
+ * @author jani
+ * 
+ */
+public class TestResult {
+	private final int index;
+	private final int weight;
+	private final Verdict verdict;
+	private final long time;
+	private final String message;
+
+	TestResult(int index, int weight, Verdict verdict, long time,
+			String message) {
+		this.index = index;
+		this.weight = weight;
+		this.verdict = verdict;
+		this.time = time;
+		this.message = message;
+	}
+
+	/**
+	 * Gets the index of the test.
+	 * 
+	 * @return Index.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Gets the weight of the test.
+	 * 
+	 * @return Weight.
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Gets the verdict.
+	 * 
+	 * @return {@link Verdict}
+	 */
+	public Verdict getVerdict() {
+		return verdict;
+	}
+
+	/**
+	 * Gets the running time of the solution.
+	 * 
+	 * @return Time in milliseconds.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Gets the error output of the solution or the reason of the verdict.
+	 * 
+	 * @return Message, possibly empty.
+	 */
+	public String getMessage() {
+		return message;
+	}
+}
@@ -0,0 +1,342 @@
+package core.judge;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+import core.model.TestCase;
+
+/**
+ * Checker of "diff" problems, which compares the output to the answer token
+ * by token. Both files are read through memory-mapped windows of fixed size
+ * and scanned in small chunks, so the memory use does not depend on the size
+ * of the files.
+ * 
+ * In {@link Mode#LINES} line breaks have to match, while the amount of other
+ * whitespace between tokens and at the end of lines is ignored. In
+ * {@link Mode#TOKENS} only the sequence of tokens matters. Trailing empty
+ * lines are ignored in both modes. With a tolerance, numeric tokens, which
+ * differ, are accepted if they are close enough.
+ * 
+ * The check stops at the first mismatch and reports its byte offset.
+ * 
+ * @author jani
+ * 
+ */
+public class TokenChecker implements Checker {
+
+	/**
+	 * How whitespace is compared.
+	 */
+	public static enum Mode {
+		/**
+		 * Line breaks have to match.
+		 */
+		LINES,
+		/**
+		 * Whitespace is insignificant.
+		 */
+		TOKENS
+	}
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private static final long WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	// longer tokens are never compared as numbers
+	private static final int MAX_NUMBER_LENGTH = 64;
+
+	private static final int EOF = -1;
+
+	private static final boolean[] SPACES = new boolean[256];
+
+	static {
+		for (char c : " \n\r\t\f\u000b".toCharArray()) {
+			SPACES[c] = true;
+		}
+	}
+
+	private final Mode mode;
+	private final double tolerance;
+
+	/**
+	 * Creates a checker, which compares lines of tokens exactly.
+	 */
+	public TokenChecker() {
+		this(Mode.LINES, 0);
+	}
+
+	/**
+	 * Creates a checker.
+	 * 
+	 * @param mode
+	 *            {@link Mode} of comparing whitespace.
+	 * @param tolerance
+	 *            Maximum absolute or relative error of numbers, zero for exact
+	 *            comparison.
+	 */
+	public TokenChecker(Mode mode, double tolerance) {
+		this.mode = mode;
+		this.tolerance = tolerance;
+	}
+
+	@Override
+	public CheckResult check(TestCase test, File output) throws IOException {
+		return compare(test.getAnswer().getFile(), output);
+	}
+
+	/**
+	 * Compares an output to an answer.
+	 * 
+	 * @param answer
+	 *            The expected output.
+	 * @param output
+	 *            The actual output.
+	 * @return {@link CheckResult}, which gives the offsets of the first
+	 *         mismatch, if the output is rejected.
+	 * @throws IOException
+	 */
+	public CheckResult compare(File answer, File output) throws IOException {
+		Cursor expected = new Cursor(answer);
+		try {
+			Cursor actual = new Cursor(output);
+			try {
+				return compare(expected, actual);
+			} finally {
+				actual.close();
+			}
+		} finally {
+			expected.close();
+		}
+	}
+
+	private CheckResult compare(Cursor expected, Cursor actual)
+			throws IOException {
+		while (true) {
+			skipCommon(expected, actual);
+			int e = skipSpaces(expected);
+			int a = skipSpaces(actual);
+			if (e == EOF || a == EOF) {
+				break;
+			}
+			long expectedOffset = expected.position();
+			long actualOffset = actual.position();
+			boolean match;
+			if (e == '\n' || a == '\n') {
+				match = e == a;
+				expected.skip();
+				actual.skip();
+			} else {
+				match = compareTokens(expected, actual);
+			}
+			if (!match) {
+				return mismatch(expectedOffset, actualOffset);
+			}
+		}
+
+		long expectedOffset = expected.position();
+		long actualOffset = actual.position();
+		if (!skipEmptyLines(expected) || !skipEmptyLines(actual)) {
+			return mismatch(expectedOffset, actualOffset);
+		}
+		return CheckResult.accepted();
+	}
+
+	/**
+	 * Skips the longest common prefix of the current chunks, which ends with
+	 * whitespace. Identical bytes compare equal in every mode, so only the
+	 * rest has to be compared token by token.
+	 */
+	private static void skipCommon(Cursor expected, Cursor actual) {
+		byte[] first = expected.chunk;
+		byte[] second = actual.chunk;
+		int i = expected.index;
+		int j = actual.index;
+		int length = Math.min(expected.limit - i, actual.limit - j);
+		int common = 0;
+		for (int k = 0; k < length && first[i + k] == second[j + k]; k++) {
+			if (SPACES[first[i + k] & 0xff]) {
+				common = k + 1;
+			}
+		}
+		expected.index += common;
+		actual.index += common;
+	}
+
+	private static CheckResult mismatch(long expected, long actual) {
+		return CheckResult.rejected(String.format(
+				"Mismatch at byte %d of the output, byte %d of the answer",
+				actual, expected));
+	}
+
+	/**
+	 * Skips whitespace, except line breaks in {@link Mode#LINES}.
+	 * 
+	 * @return The next byte, a line break or {@link #EOF}.
+	 */
+	private int skipSpaces(Cursor cursor) throws IOException {
+		int res = cursor.peek();
+		while (res != EOF && isSpace(res)
+				&& (res != '\n' || mode == Mode.TOKENS)) {
+			cursor.skip();
+			res = cursor.peek();
+		}
+		return res;
+	}
+
+	private boolean skipEmptyLines(Cursor cursor) throws IOException {
+		int next = skipSpaces(cursor);
+		while (next == '\n') {
+			cursor.skip();
+			next = skipSpaces(cursor);
+		}
+		return next == EOF;
+	}
+
+	/**
+	 * Compares the tokens at the cursors in lockstep. Only if they differ and
+	 * a tolerance is set, both are read to their end and compared as numbers.
+	 */
+	private boolean compareTokens(Cursor expected, Cursor actual)
+			throws IOException {
+		byte[] first = expected.token;
+		byte[] second = actual.token;
+		int length = 0;
+		while (true) {
+			int e = expected.peek();
+			int a = actual.peek();
+			boolean expectedEnd = e == EOF || isSpace(e);
+			boolean actualEnd = a == EOF || isSpace(a);
+			if (expectedEnd && actualEnd) {
+				return true;
+			}
+			if (expectedEnd || actualEnd || e != a) {
+				break;
+			}
+			if (length < MAX_NUMBER_LENGTH) {
+				first[length] = (byte) e;
+				second[length] = (byte) a;
+			}
+			length++;
+			expected.skip();
+			actual.skip();
+		}
+
+		if (tolerance <= 0 || length >= MAX_NUMBER_LENGTH) {
+			return false;
+		}
+		int firstLength = readToken(expected, first, length);
+		int secondLength = readToken(actual, second, length);
+		if (firstLength < 0 || secondLength < 0) {
+			return false;
+		}
+		return isClose(parseNumber(first, firstLength),
+				parseNumber(second, secondLength));
+	}
+
+	/**
+	 * Reads the rest of a token into a buffer.
+	 * 
+	 * @return Length of the token or -1, if it does not fit.
+	 */
+	private static int readToken(Cursor cursor, byte[] buffer, int length)
+			throws IOException {
+		int next = cursor.peek();
+		while (next != EOF && !isSpace(next)) {
+			if (length == buffer.length) {
+				return -1;
+			}
+			buffer[length++] = (byte) next;
+			cursor.skip();
+			next = cursor.peek();
+		}
+		return length;
+	}
+
+	private static Double parseNumber(byte[] buffer, int length) {
+		for (int i = 0; i < length; i++) {
+			char c = (char) buffer[i];
+			// Double.parseDouble() accepts more, e.g. "NaN" or "1d"
+			if (!Character.isDigit(c) && c != '.' && c != '-' && c != '+'
+					&& c != 'e' && c != 'E') {
+				return null;
+			}
+		}
+		try {
+			return Double.parseDouble(new String(buffer, 0, length, ASCII));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private boolean isClose(Double expected, Double actual) {
+		if (expected == null || actual == null) {
+			return false;
+		}
+		return Math.abs(expected - actual) <= tolerance
+				* Math.max(1, Math.abs(expected));
+	}
+
+	private static boolean isSpace(int b) {
+		return b >= 0 && SPACES[b];
+	}
+
+	/**
+	 * Reads a file byte by byte through memory-mapped windows.
+	 */
+	private static class Cursor {
+		private final FileChannel channel;
+		private final long size;
+		// prefix of the current token
+		private final byte[] token;
+		// bytes of the window are copied in chunks, arrays are faster to scan
+		private final byte[] chunk;
+		private MappedByteBuffer window;
+		private long base;
+		private int index;
+		private int limit;
+
+		Cursor(File file) throws IOException {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			size = channel.size();
+			token = new byte[MAX_NUMBER_LENGTH];
+			chunk = new byte[CHUNK_SIZE];
+		}
+
+		long position() {
+			return base + index;
+		}
+
+		int peek() throws IOException {
+			if (index < limit) {
+				return chunk[index] & 0xff;
+			}
+			long position = position();
+			if (position >= size) {
+				return EOF;
+			}
+			if (window == null || !window.hasRemaining()) {
+				window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+						Math.min(WINDOW_SIZE, size - position));
+			}
+			limit = Math.min(CHUNK_SIZE, window.remaining());
+			window.get(chunk, 0, limit);
+			base = position;
+			index = 0;
+			return chunk[index] & 0xff;
+		}
+
+		void skip() {
+			index++;
+		}
+
+		void close() throws IOException {
+			channel.close();
+		}
+	}
+}
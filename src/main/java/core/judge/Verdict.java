@@ -0,0 +1,53 @@
+package core.judge;
+
+/**
+ * Outcome of judging a solution on a test.
+ * 
+ * @author jani
+ * 
+ */
+public enum Verdict {
+	/**
+	 * The output was accepted by the checker.
+	 */
+	ACCEPTED("AC"),
+	/**
+	 * The output was rejected by the checker.
+	 */
+	WRONG_ANSWER("WA"),
+	/**
+	 * The solution ran longer than the time limit.
+	 */
+	TIME_LIMIT_EXCEEDED("TL"),
+	/**
+	 * The solution used more memory than the memory limit.
+	 */
+	MEMORY_LIMIT_EXCEEDED("ML"),
+	/**
+	 * The solution exited with an error.
+	 */
+	RUNTIME_ERROR("RE"),
+	/**
+	 * The solution could not be compiled.
+	 */
+	COMPILATION_ERROR("CE"),
+	/**
+	 * The solution could not be judged, e.g. the checker failed.
+	 */
+	JUDGE_ERROR("JE");
+
+	private final String code;
+
+	private Verdict(String code) {
+		this.code = code;
+	}
+
+	/**
+	 * Gets the short code of the verdict.
+	 * 
+	 * @return Two letter code.
+	 */
+	public String getCode() {
+		return code;
+	}
+}
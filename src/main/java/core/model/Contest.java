@@ -5,19 +5,19 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonProperty;
 import org.codehaus.jackson.map.annotate.JsonView;
 
 import core.config.ResourceConfig;
-import core.config.ResourceFileConfig;
 import core.security.AccessRight;
 import core.security.ResourceViews;
 import core.util.CollectionUtil;
 import core.util.FileUtil;
-import core.util.JsonUtil;
 import core.util.Parser;
 import core.util.Validator;
 import core.web.util.DownloadBuilder;
@@ -66,6 +66,18 @@ public class Contest extends Resource {
 		return ResourceKind.CONTEST;
 	}
 
+	@Override
+	public Contest copy() {
+		Contest res = (Contest) super.copy();
+		if (problemScores != null) {
+			res.problemScores = new ArrayList<Integer>(problemScores);
+		}
+		if (problemOrder != null) {
+			res.problemOrder = new ArrayList<String>(problemOrder);
+		}
+		return res;
+	}
+
 	/**
 	 * Gets the contest starting time.
 	 * 
@@ -247,6 +259,30 @@ public class Contest extends Resource {
 				&& now.getTime() >= date.getTime() + (long) minutes * 60 * 1000;
 	}
 
+	/**
+	 * Gets the time of the latest change of the {@link ContestState}, which has
+	 * already happened, i.e. the start or the end of the contest.
+	 * 
+	 * @return Time in milliseconds or 0, if the contest has not started.
+	 */
+	@JsonIgnore
+	public long getStateChangeTime() {
+		Date date = Parser.readDate(startTime);
+		if (date == null) {
+			return 0;
+		}
+		long now = System.currentTimeMillis();
+		long start = date.getTime();
+		long end = start + (duration == null ? 0 : (long) duration) * 60 * 1000;
+		if (now >= end) {
+			return end;
+		}
+		if (now >= start) {
+			return start;
+		}
+		return 0;
+	}
+
 	/**
 	 * Calculated the {@link ContestState} of the contest.
 	 * 
@@ -265,6 +301,19 @@ public class Contest extends Resource {
 
 	@Override
 	public Validator validate() {
+		Validator res = validateOwn();
+
+		List<Problem> children = loadChildren();
+		for (int i = 0; i < children.size(); i++) {
+			Validator v = children.get(i).validate();
+			res.merge(v, "child_" + i);
+		}
+
+		return res;
+	}
+
+	@Override
+	public Validator validateOwn() {
 		Validator res = super.validate();
 
 		List<Problem> children = loadChildren();
@@ -302,13 +351,7 @@ public class Contest extends Resource {
 			}
 		}
 
-		for (int i = 0; i < children.size(); i++) {
-			Validator v = children.get(i).validate();
-			res.merge(v, "child_" + i);
-		}
-
 		return res;
-
 	}
 
 	private Validator validateFiles(List<Problem> children) {
@@ -318,11 +361,9 @@ public class Contest extends Resource {
 
 		List<String> files = FileUtil.getDirectoryFileNames(getDirectory());
 
-		String[] pattern = new String[] { ResourceFileConfig.ADDITIONAL_FILES,
-				getFilename(), ResourceFileConfig.SECURITY_FILENAME_REGEX };
-
-		List<String> allowed = CollectionUtil.filterRegex(files,
-				CollectionUtil.join(pattern, "|"));
+		List<File> allowed = getDirectoryFiles(EnumSet.of(FileRole.SECURITY,
+				FileRole.PUBLIC_DIRECTORY, FileRole.PRIVATE_DIRECTORY,
+				FileRole.RESOURCE_FILE));
 
 		if (allowed.size() + children.size() < files.size()) {
 			res.addError("file_extra", "contains unknown files");
@@ -356,45 +397,32 @@ public class Contest extends Resource {
 	}
 
 	@Override
-	public String getJsonString(AccessRight access) {
-		ContestState state = getState();
+	public Class<?> getJsonView(AccessRight access) {
 		Class<?> view;
 
 		if (access.includes(AccessRight.VIEW_FULL)) {
 			view = ResourceViews.Private.class;
 		} else {
-			view = state.getView();
-			List<String> regex = new ArrayList<String>();
-			switch (state) {
-			case ENDED:
-			case STARTED:
-				regex.add(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME);
-				regex.add(ResourceFileConfig.PROBLEM_DESCRIPTION_FILE_REGEX);
-			case NOT_STARTED:
-				break;
-			}
+			view = getState().getView();
 		}
 
-		return JsonUtil.objectToJsonString(this, view);
+		return view;
 	}
 
 	@Override
 	public List<File> getFilesList(AccessRight access) {
-		List<File> res = new ArrayList<File>();
-		List<String> regex = new ArrayList<String>();
+		Set<FileRole> roles = EnumSet.noneOf(FileRole.class);
 		if (access.includes(AccessRight.VIEW_FULL)) {
-			regex.add(ResourceFileConfig.SECURITY_FILENAME_REGEX);
-			regex.add(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME);
-			regex.add(ResourceFileConfig.RESOURCE_PRIVATE_DIRECTORY_NAME);
-			regex.add(getFilename());
+			roles.add(FileRole.SECURITY);
+			roles.add(FileRole.PUBLIC_DIRECTORY);
+			roles.add(FileRole.PRIVATE_DIRECTORY);
+			roles.add(FileRole.RESOURCE_FILE);
 		} else if (access.includes(AccessRight.VIEW)) {
 			if (hasStarted()) {
-				regex.add(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME);
+				roles.add(FileRole.PUBLIC_DIRECTORY);
 			}
-			regex.add(getFilename());
+			roles.add(FileRole.RESOURCE_FILE);
 		}
-		String match = CollectionUtil.join(regex, "|");
-		res = FileUtil.getDirectoryFiles(getDirectory(), match);
-		return res;
+		return getDirectoryFiles(roles);
 	}
 }
@@ -0,0 +1,139 @@
+package core.model;
+
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import core.config.ResourceFileConfig;
+
+/**
+ * A file name inside a resource directory, classified to its {@link FileRole}.
+ * All roles are recognized by a single precompiled pattern, so a name is
+ * matched only once.
+ * 
+ * @author jani
+ * 
+ */
+public class FileName {
+
+	private static final Pattern RESOURCE_ID = Pattern
+			.compile(ResourceFileConfig.RESOURCE_ID);
+
+	private static final Pattern ROLES = Pattern.compile(String.format(
+			"(?<test>test(\\.(?<index>[0-9]{2}))?\\.(?<ext>in|ans))"
+					+ "|(?<description>description.*)|(?<checker>checker.*)"
+					+ "|(?<solution>solution.*)|(?<security>%s)"
+					+ "|(?<public>%s)|(?<private>%s)|(?<resource>%s|%s|%s)",
+			Pattern.quote(ResourceFileConfig.SECURITY_FILENAME),
+			Pattern.quote(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME),
+			Pattern.quote(ResourceFileConfig.RESOURCE_PRIVATE_DIRECTORY_NAME),
+			Pattern.quote(ResourceKind.SERIES.getResourceFilenameExt()),
+			Pattern.quote(ResourceKind.CONTEST.getResourceFilenameExt()),
+			Pattern.quote(ResourceKind.PROBLEM.getResourceFilenameExt())));
+
+	private final String name;
+	private final FileRole role;
+	private final int testIndex;
+
+	private FileName(String name, FileRole role, int testIndex) {
+		this.name = name;
+		this.role = role;
+		this.testIndex = testIndex;
+	}
+
+	/**
+	 * Classifies a file name.
+	 * 
+	 * @param name
+	 *            Name of the file, without a path.
+	 * @return {@link FileName}
+	 */
+	public static FileName parse(String name) {
+		Matcher m = ROLES.matcher(name);
+		if (!m.matches()) {
+			return new FileName(name, FileRole.UNKNOWN, -1);
+		}
+
+		if (m.group("test") != null) {
+			String index = m.group("index");
+			FileRole role = m.group("ext").equals("in") ? FileRole.TEST_INPUT
+					: FileRole.TEST_ANSWER;
+			return new FileName(name, role, index == null ? -1
+					: Integer.parseInt(index));
+		}
+
+		FileRole role;
+		if (m.group("description") != null) {
+			role = FileRole.DESCRIPTION;
+		} else if (m.group("checker") != null) {
+			role = FileRole.CHECKER;
+		} else if (m.group("solution") != null) {
+			role = FileRole.SOLUTION;
+		} else if (m.group("security") != null) {
+			role = FileRole.SECURITY;
+		} else if (m.group("public") != null) {
+			role = FileRole.PUBLIC_DIRECTORY;
+		} else if (m.group("private") != null) {
+			role = FileRole.PRIVATE_DIRECTORY;
+		} else {
+			role = FileRole.RESOURCE_FILE;
+		}
+		return new FileName(name, role, -1);
+	}
+
+	/**
+	 * Checks whether a name is a valid resource ID / directory name.
+	 * 
+	 * @param name
+	 * @return Whether valid.
+	 */
+	public static boolean isResourceId(String name) {
+		return name != null && RESOURCE_ID.matcher(name).matches();
+	}
+
+	/**
+	 * Gets the name.
+	 * 
+	 * @return File name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the role of the file.
+	 * 
+	 * @return {@link FileRole}
+	 */
+	public FileRole getRole() {
+		return role;
+	}
+
+	/**
+	 * Gets the index of a test file, e.g. 3 for test.03.in.
+	 * 
+	 * @return Index of the test, or -1 for single tests and other files.
+	 */
+	public int getTestIndex() {
+		return testIndex;
+	}
+
+	/**
+	 * Checks whether the file has one of the roles. A resource file matches
+	 * only if it belongs to the resource kind.
+	 * 
+	 * @param roles
+	 *            Allowed roles.
+	 * @param kind
+	 *            Kind of the resource, the directory of which contains the
+	 *            file.
+	 * @return Whether allowed.
+	 */
+	public boolean isAllowed(Set<FileRole> roles, ResourceKind kind) {
+		if (!roles.contains(role)) {
+			return false;
+		}
+		return role != FileRole.RESOURCE_FILE
+				|| name.equals(kind.getResourceFilenameExt());
+	}
+}
@@ -0,0 +1,93 @@
+package core.model;
+
+/**
+ * Enumeration of roles of files and directories inside a resource directory.
+ * 
+ * @author jani
+ * 
+ */
+public enum FileRole {
+
+	/**
+	 * Input of a test, test.in or test.xx.in.
+	 */
+	TEST_INPUT(true),
+
+	/**
+	 * Expected answer of a test, test.ans or test.xx.ans.
+	 */
+	TEST_ANSWER(true),
+
+	/**
+	 * Problem description, description*.
+	 */
+	DESCRIPTION(true),
+
+	/**
+	 * Custom checker of a problem, checker*.
+	 */
+	CHECKER(true),
+
+	/**
+	 * Author's solution of a problem, solution*.
+	 */
+	SOLUTION(true),
+
+	/**
+	 * The security file.
+	 */
+	SECURITY(false),
+
+	/**
+	 * The public files directory.
+	 */
+	PUBLIC_DIRECTORY(false),
+
+	/**
+	 * The private files directory.
+	 */
+	PRIVATE_DIRECTORY(false),
+
+	/**
+	 * A resource JSON file, like series.json.
+	 */
+	RESOURCE_FILE(false),
+
+	/**
+	 * Any other file.
+	 */
+	UNKNOWN(false);
+
+	private boolean problemFile;
+
+	FileRole(boolean problemFile) {
+		this.problemFile = problemFile;
+	}
+
+	/**
+	 * Checks whether the role is specific to problems.
+	 * 
+	 * @return Whether a problem file.
+	 */
+	public boolean isProblemFile() {
+		return problemFile;
+	}
+
+	/**
+	 * Checks whether the role is a test input or answer.
+	 * 
+	 * @return Whether a test file.
+	 */
+	public boolean isTest() {
+		return this == TEST_INPUT || this == TEST_ANSWER;
+	}
+
+	/**
+	 * Checks whether the role is one of the additional files directories.
+	 * 
+	 * @return Whether an additional files directory.
+	 */
+	public boolean isAdditionalDirectory() {
+		return this == PUBLIC_DIRECTORY || this == PRIVATE_DIRECTORY;
+	}
+}
@@ -3,19 +3,25 @@ package core.model;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonProperty;
 import org.codehaus.jackson.map.annotate.JsonView;
 
 import core.config.ResourceConfig;
-import core.config.ResourceFileConfig;
+import core.judge.Judge;
+import core.judge.JudgeResult;
 import core.security.AccessRight;
 import core.security.ResourceViews;
 import core.util.CollectionUtil;
+import core.util.DirectoryIndex;
 import core.util.FileUtil;
-import core.util.JsonUtil;
 import core.util.Parser;
 import core.util.Validator;
 import core.web.util.DownloadBuilder;
@@ -66,6 +72,18 @@ public class Problem extends Resource {
 		return ResourceKind.PROBLEM;
 	}
 
+	@Override
+	public Problem copy() {
+		Problem res = (Problem) super.copy();
+		if (authors != null) {
+			res.authors = new ArrayList<String>(authors);
+		}
+		if (testWeights != null) {
+			res.testWeights = new ArrayList<Integer>(testWeights);
+		}
+		return res;
+	}
+
 	/**
 	 * Gets the problem authors.
 	 * 
@@ -246,6 +264,43 @@ public class Problem extends Resource {
 		return res;
 	}
 
+	/**
+	 * Validates the problem and, if it is valid, checks that all its solutions
+	 * pass all tests.
+	 * 
+	 * @param judge
+	 *            {@link Judge} for the solutions.
+	 * @return {@link Validator}
+	 */
+	public Validator validate(Judge judge) {
+		Validator res = validate();
+		if (res.isValid()) {
+			res.merge(validateSolutions(judge));
+		}
+		return res;
+	}
+
+	/**
+	 * Checks that all solutions of the problem pass all tests. The problem
+	 * itself should be valid.
+	 * 
+	 * @param judge
+	 *            {@link Judge} for the solutions.
+	 * @return {@link Validator}
+	 */
+	public Validator validateSolutions(Judge judge) {
+		Validator res = new Validator();
+		for (File solution : getSolutionFiles()) {
+			JudgeResult result = judge.judge(this, solution);
+			if (!result.isAccepted()) {
+				res.addError("solution_" + solution.getName(), String.format(
+						"solution %s does not pass: %s", solution.getName(),
+						result.getVerdict().getCode()));
+			}
+		}
+		return res;
+	}
+
 	private Validator validateFiles() {
 		Validator res = new Validator();
 
@@ -253,41 +308,61 @@ public class Problem extends Resource {
 
 		List<String> files = FileUtil.getDirectoryFileNames(getDirectory());
 
-		List<String> descriptions = CollectionUtil.filterRegex(files,
-				ResourceFileConfig.PROBLEM_DESCRIPTION_FILE_REGEX);
-		if (descriptions.size() < 1) {
+		int descriptions = 0;
+		int checkers = 0;
+		boolean unknown = false;
+		boolean hasSingleTestIn = false;
+		boolean hasSingleTestAns = false;
+		List<Integer> matchTestIn = new ArrayList<Integer>();
+		List<Integer> matchTestAns = new ArrayList<Integer>();
+		Set<FileRole> allowed = EnumSet.complementOf(EnumSet
+				.of(FileRole.UNKNOWN));
+		for (String file : files) {
+			FileName name = FileName.parse(file);
+			switch (name.getRole()) {
+			case DESCRIPTION:
+				descriptions++;
+				break;
+			case CHECKER:
+				checkers++;
+				break;
+			case TEST_INPUT:
+				if (name.getTestIndex() < 0) {
+					hasSingleTestIn = true;
+				} else {
+					matchTestIn.add(name.getTestIndex());
+				}
+				break;
+			case TEST_ANSWER:
+				if (name.getTestIndex() < 0) {
+					hasSingleTestAns = true;
+				} else {
+					matchTestAns.add(name.getTestIndex());
+				}
+				break;
+			default:
+				break;
+			}
+			unknown = unknown || !name.isAllowed(allowed, getKind());
+		}
+
+		if (descriptions < 1) {
 			res.addError("file_description", "description file is missing");
 		}
 
 		if (checker.equals(ResourceConfig.PROBLEM_CUSTOM_CHECKERS)) {
-			List<String> checkers = CollectionUtil.filterRegex(files,
-					ResourceFileConfig.PROBLEM_CHECKER_FILE_REGEX);
-			if (checkers.size() == 0) {
+			if (checkers == 0) {
 				res.addError("file_checker", "checker file is missing");
 			}
-			if (checkers.size() > 1) {
+			if (checkers > 1) {
 				res.addError("file_checker", "multiple checker files");
 			}
 		}
 
-		String[] pattern = new String[] { ResourceFileConfig.ADDITIONAL_FILES,
-				ResourceFileConfig.PROBLEM_EXTRA_FILES, getFilename(),
-				ResourceFileConfig.SECURITY_FILENAME_REGEX };
-
-		List<String> allowed = CollectionUtil.filterRegex(files,
-				CollectionUtil.join(pattern, "|"));
-		if (allowed.size() < files.size()) {
+		if (unknown) {
 			res.addError("file_extra", "contains unknown files");
 		}
 
-		boolean hasSingleTestIn = CollectionUtil.hasMatch(files,
-				ResourceFileConfig.PROBLEM_TEST_IN_FILE_SINGLE_REGEX);
-		boolean hasSingleTestAns = CollectionUtil.hasMatch(files,
-				ResourceFileConfig.PROBLEM_TEST_ANS_FILE_SINGLE_REGEX);
-		List<String> matchTestIn = CollectionUtil.getMatches(files,
-				ResourceFileConfig.PROBLEM_TEST_IN_FILE_MULTI_REGEX, 1);
-		List<String> matchTestAns = CollectionUtil.getMatches(files,
-				ResourceFileConfig.PROBLEM_TEST_ANS_FILE_MULTI_REGEX, 1);
 		int testWeightsSize = testWeights.size();
 
 		boolean singleTest = hasSingleTestIn && hasSingleTestAns;
@@ -307,9 +382,7 @@ public class Problem extends Resource {
 						"some test.xx.in or test.xx.ans file is missing.");
 			} else {
 				for (int i = 0; i < matchTestIn.size(); i++) {
-					int t1 = Parser.readInteger(matchTestIn.get(i));
-					int t2 = Parser.readInteger(matchTestAns.get(i));
-					if (t1 != i || t2 != i) {
+					if (matchTestIn.get(i) != i || matchTestAns.get(i) != i) {
 						testsValid = false;
 						res.addError("file_tests",
 								"some test.xx.in or test.xx.ans file is missing.");
@@ -326,6 +399,85 @@ public class Problem extends Resource {
 		return res;
 	}
 
+	/**
+	 * Gets the tests of the problem, ordered by index. Only tests with both an
+	 * input and an answer are returned, {@link #validate()} reports incomplete
+	 * test sets. Multiple tests take precedence over a single test.
+	 * 
+	 * @return List of {@link TestCase}s, empty if there is no directory.
+	 */
+	@JsonIgnore
+	public List<TestCase> getTestCases() {
+		List<TestCase> res = new ArrayList<TestCase>();
+		if (getDirectory() == null) {
+			return res;
+		}
+
+		Map<Integer, TestCase.TestFile> inputs = new TreeMap<Integer, TestCase.TestFile>();
+		Map<Integer, TestCase.TestFile> answers = new HashMap<Integer, TestCase.TestFile>();
+		for (DirectoryIndex.Entry entry : DirectoryIndex.getInstance()
+				.getEntries(getDirectory())) {
+			FileName name = FileName.parse(entry.getName());
+			if (entry.isFile() && name.getRole().isTest()) {
+				TestCase.TestFile file = new TestCase.TestFile(
+						entry.getFile(), entry.length());
+				if (name.getRole() == FileRole.TEST_INPUT) {
+					inputs.put(name.getTestIndex(), file);
+				} else {
+					answers.put(name.getTestIndex(), file);
+				}
+			}
+		}
+
+		boolean multiTest = false;
+		for (Integer index : inputs.keySet()) {
+			multiTest = multiTest || (index >= 0 && answers.containsKey(index));
+		}
+		for (Map.Entry<Integer, TestCase.TestFile> input : inputs.entrySet()) {
+			int index = input.getKey();
+			TestCase.TestFile answer = answers.get(index);
+			if (answer == null || (index >= 0) != multiTest) {
+				continue;
+			}
+			int weight = 1;
+			if (multiTest && testWeights != null
+					&& index < testWeights.size()
+					&& testWeights.get(index) != null) {
+				weight = testWeights.get(index);
+			}
+			res.add(new TestCase(Math.max(index, 0), weight, input.getValue(),
+					answer));
+		}
+		return res;
+	}
+
+	/**
+	 * Gets the solution files of the problem.
+	 * 
+	 * @return List of files, empty if there is no directory.
+	 */
+	@JsonIgnore
+	public List<File> getSolutionFiles() {
+		if (getDirectory() == null) {
+			return new ArrayList<File>();
+		}
+		return getDirectoryFiles(EnumSet.of(FileRole.SOLUTION));
+	}
+
+	/**
+	 * Gets the checker source file of the problem.
+	 * 
+	 * @return File or null, if there is none.
+	 */
+	@JsonIgnore
+	public File getCheckerFile() {
+		if (getDirectory() == null) {
+			return null;
+		}
+		List<File> res = getDirectoryFiles(EnumSet.of(FileRole.CHECKER));
+		return res.isEmpty() ? null : res.get(0);
+	}
+
 	@Override
 	public DownloadBuilder getDownloader(String login, AccessRight access) {
 		String root = getDirectory().getName() + "/";
@@ -342,57 +494,39 @@ public class Problem extends Resource {
 	}
 
 	@Override
-	public String getJsonString(AccessRight access) {
+	public Class<?> getJsonView(AccessRight access) {
 		Class<?> view;
-		Contest parent = loadParent();
-		ContestState state = ContestState.NOT_STARTED;
-		if (parent != null) {
-			state = parent.getState();
-		}
+
 		if (access.includes(AccessRight.VIEW_FULL)) {
 			view = ResourceViews.Private.class;
 		} else {
-			view = state.getView();
-			List<String> regex = new ArrayList<String>();
-			switch (state) {
-			case ENDED:
-			case STARTED:
-				regex.add(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME);
-				regex.add(ResourceFileConfig.PROBLEM_DESCRIPTION_FILE_REGEX);
-			case NOT_STARTED:
-				break;
+			ContestState state = ContestState.NOT_STARTED;
+			Contest parent = loadParent();
+			if (parent != null) {
+				state = parent.getState();
 			}
+			view = state.getView();
 		}
 
-		return JsonUtil.objectToJsonString(this, view);
+		return view;
 	}
 
 	@Override
 	public List<File> getFilesList(AccessRight access) {
-		List<File> res = new ArrayList<File>();
-		List<String> regex = new ArrayList<String>();
+		Set<FileRole> roles = EnumSet.noneOf(FileRole.class);
 		if (access.includes(AccessRight.VIEW_FULL)) {
-			regex.add(ResourceFileConfig.PROBLEM_DESCRIPTION_FILE_REGEX);
-			regex.add(ResourceFileConfig.PROBLEM_TEST_FILE_REGEX);
-			regex.add(ResourceFileConfig.PROBLEM_CHECKER_FILE_REGEX);
-			regex.add(ResourceFileConfig.PROBLEM_SOLUTION_FILE_REGEX);
-			regex.add(ResourceFileConfig.SECURITY_FILENAME_REGEX);
-			regex.add(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME);
-			regex.add(ResourceFileConfig.RESOURCE_PRIVATE_DIRECTORY_NAME);
-			regex.add(getFilename());
+			roles = EnumSet.complementOf(EnumSet.of(FileRole.UNKNOWN));
 		} else if (access.includes(AccessRight.VIEW)) {
 			Contest contest = loadParent();
 			if (contest != null) {
 				if (contest.hasStarted()) {
-					regex.add(ResourceFileConfig.PROBLEM_DESCRIPTION_FILE_REGEX);
-					regex.add(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME);
+					roles.add(FileRole.DESCRIPTION);
+					roles.add(FileRole.PUBLIC_DIRECTORY);
 				}
 			}
-			regex.add(getFilename());
+			roles.add(FileRole.RESOURCE_FILE);
 		}
-		String match = CollectionUtil.join(regex, "|");
-		res = FileUtil.getDirectoryFiles(getDirectory(), match);
-		return res;
+		return getDirectoryFiles(roles);
 	}
 
 }
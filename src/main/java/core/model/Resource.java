@@ -1,8 +1,11 @@
 package core.model;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.map.annotate.JsonView;
@@ -14,8 +17,11 @@ import core.config.ResourceConfig;
 import core.config.ResourceFileConfig;
 import core.security.AccessRight;
 import core.security.ResourceViews;
+import core.security.SecurityIndex;
+import core.util.DirectoryIndex;
 import core.util.JsonUtil;
 import core.util.Validator;
+import core.util.WriteLocks;
 import core.web.util.DownloadBuilder;
 
 /**
@@ -25,7 +31,7 @@ import core.web.util.DownloadBuilder;
  * @author Svetla Marinova, M23322, joro, petko, jani
  */
 
-public abstract class Resource {
+public abstract class Resource implements Cloneable {
 
 	private Logger log = LoggerFactory.getLogger(Resource.class);
 
@@ -160,6 +166,23 @@ public abstract class Resource {
 		this.notes = notes;
 	}
 
+	/**
+	 * Creates a copy of the resource, which can be modified independently of
+	 * the original.
+	 * 
+	 * @return Copy of the resource.
+	 */
+	public Resource copy() {
+		try {
+			Resource res = (Resource) clone();
+			res.validator = new Validator();
+			return res;
+		} catch (CloneNotSupportedException e) {
+			assert false;
+		}
+		return null;
+	}
+
 	@Override
 	public String toString() {
 		return String.format("Resource: type=%s, id=%s", this.getClass()
@@ -176,6 +199,17 @@ public abstract class Resource {
 		return validator;
 	}
 
+	/**
+	 * Validates the resource itself, without its children. Resources, which
+	 * have children, override it, so that {@link #validate()} can merge the
+	 * results of the children.
+	 * 
+	 * @return Validator validator of resource
+	 */
+	public Validator validateOwn() {
+		return validate();
+	}
+
 	/**
 	 * Validates the resource.
 	 * 
@@ -201,12 +235,12 @@ public abstract class Resource {
 						"Resource ID and directory name mismatch: %s - %s",
 						directoryName, getId()));
 			}
-			if (!directoryName.matches(ResourceFileConfig.RESOURCE_ID)) {
+			if (!FileName.isResourceId(directoryName)) {
 				res.addError("directory", String.format(
 						"Directory name is invalid: %s", directoryName));
 			}
 		}
-		if (!getId().matches(ResourceFileConfig.RESOURCE_ID)) {
+		if (!FileName.isResourceId(getId())) {
 			res.addError("id",
 					String.format("Resource ID is invalid: %s", getId()));
 		}
@@ -356,8 +390,15 @@ public abstract class Resource {
 					+ Constants.JSON_FILE_EXTENSION;
 
 			File jsonFile = new File(directory, filename);
-			JsonUtil.writeJsonFile(jsonFile, this);
-			createCommonFiles();
+			Lock lock = WriteLocks.forDirectory(directory);
+			lock.lock();
+			try {
+				JsonUtil.writeJsonFile(jsonFile, this);
+				ResourceCache.getInstance().invalidate(jsonFile);
+				createCommonFiles();
+			} finally {
+				lock.unlock();
+			}
 		} else {
 			log.info(String.format(
 					"Resource.save(): directory %s does not exists",
@@ -376,6 +417,7 @@ public abstract class Resource {
 			hash.put(ResourceConfig.GRANTS_PROP_NAME,
 					new HashMap<String, String>());
 			JsonUtil.writeJsonFile(security, hash);
+			SecurityIndex.forRoot(getSeriesRoot()).invalidate(directory);
 		}
 		String[] dirs = { ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME,
 				ResourceFileConfig.RESOURCE_PRIVATE_DIRECTORY_NAME };
@@ -421,7 +463,19 @@ public abstract class Resource {
 	 * @return JSON string
 	 */
 	@JsonIgnore
-	public abstract String getJsonString(AccessRight access);
+	public String getJsonString(AccessRight access) {
+		return JsonUtil.objectToJsonString(this, getJsonView(access));
+	}
+
+	/**
+	 * Gets the JSON view of the resource, according to the security policy.
+	 * 
+	 * @param access
+	 *            active {@link AccessRight}.
+	 * @return One of the {@link ResourceViews} classes.
+	 */
+	@JsonIgnore
+	public abstract Class<?> getJsonView(AccessRight access);
 
 	/**
 	 * Gets a list of files which a visible for the specified access right.
@@ -432,4 +486,23 @@ public abstract class Resource {
 	 */
 	@JsonIgnore
 	public abstract List<File> getFilesList(AccessRight access);
+
+	/**
+	 * Gets the files of the resource directory, which have one of the
+	 * specified roles.
+	 * 
+	 * @param roles
+	 *            Allowed {@link FileRole}s.
+	 * @return List of files.
+	 */
+	protected List<File> getDirectoryFiles(Set<FileRole> roles) {
+		List<File> res = new ArrayList<File>();
+		for (DirectoryIndex.Entry entry : DirectoryIndex.getInstance()
+				.getEntries(getDirectory())) {
+			if (FileName.parse(entry.getName()).isAllowed(roles, getKind())) {
+				res.add(entry.getFile());
+			}
+		}
+		return res;
+	}
 }
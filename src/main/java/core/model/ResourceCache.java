@@ -0,0 +1,198 @@
+package core.model;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import core.util.FileWatcher;
+
+/**
+ * Shared cache of parsed resources, keyed by the resource JSON file. The
+ * cached instances are snapshots, which are never handed out - callers always
+ * get a copy, so modifying a loaded resource does not affect other readers.
+ * 
+ * The modification time and size of the JSON file are checked on every
+ * access, so a lost or late event of the {@link FileWatcher} on the resource
+ * directories never keeps an outdated snapshot. The events only drop changed
+ * entries early. The number of entries is bounded, the least recently used
+ * ones are evicted first and their directories are no longer watched.
+ * 
+ * @author jani
+ * 
+ */
+public class ResourceCache {
+
+	private static final ResourceCache instance = new ResourceCache();
+
+	private static final int MAX_ENTRIES = 10000;
+
+	private final LinkedHashMap<File, Entry> entries;
+
+	private final AtomicLong generation;
+
+	private final AtomicLong hits;
+
+	private final AtomicLong misses;
+
+	private final FileWatcher.Listener listener;
+
+	/**
+	 * Gets the shared instance of the cache.
+	 * 
+	 * @return {@link ResourceCache}
+	 */
+	public static ResourceCache getInstance() {
+		return instance;
+	}
+
+	private ResourceCache() {
+		entries = new LinkedHashMap<File, Entry>(16, 0.75f, true);
+		generation = new AtomicLong();
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+		listener = new FileWatcher.Listener() {
+			@Override
+			public void changed(File file) {
+				invalidate(file);
+			}
+		};
+	}
+
+	/**
+	 * Gets a copy of the resource of the specified kind, residing in a
+	 * directory. The resource is parsed only if it is not cached or the cached
+	 * snapshot is outdated.
+	 * 
+	 * @param <T>
+	 * @param directory
+	 *            Directory of the resource.
+	 * @param kind
+	 *            Kind of the resource.
+	 * @return Copy of the resource or null, if it cannot be loaded.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Resource> T get(File directory, ResourceKind kind) {
+		File file = new File(directory, kind.getResourceFilenameExt())
+				.getAbsoluteFile();
+
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(file);
+		}
+		if (entry != null && entry.isCurrent(file)) {
+			hits.incrementAndGet();
+			return (T) entry.snapshot.copy();
+		}
+		misses.incrementAndGet();
+
+		// watch before reading, so no change after the read gets lost
+		FileWatcher.getInstance().register(directory, listener);
+		long current = generation.get();
+		long lastModified = file.lastModified();
+		long length = file.length();
+
+		Resource res = ResourceUtil.readResource(directory, kind);
+		if (res == null) {
+			synchronized (this) {
+				entries.remove(file);
+			}
+			return null;
+		}
+
+		synchronized (this) {
+			if (current == generation.get()) {
+				entries.put(file, new Entry(res.copy(), lastModified, length));
+				evict();
+			}
+		}
+		return (T) res;
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<File, Entry>> it = entries.entrySet().iterator();
+		while (entries.size() > MAX_ENTRIES && it.hasNext()) {
+			File file = it.next().getKey();
+			it.remove();
+			FileWatcher.getInstance().unregister(file.getParentFile(),
+					listener);
+		}
+	}
+
+	/**
+	 * Removes a file or a whole directory tree from the cache.
+	 * 
+	 * @param file
+	 *            Resource JSON file or directory.
+	 */
+	public void invalidate(File file) {
+		String path = file.getAbsolutePath();
+		String prefix = path + File.separator;
+		synchronized (this) {
+			generation.incrementAndGet();
+			Iterator<File> it = entries.keySet().iterator();
+			while (it.hasNext()) {
+				String key = it.next().getPath();
+				if (key.equals(path) || key.startsWith(prefix)) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public synchronized void clear() {
+		generation.incrementAndGet();
+		entries.clear();
+	}
+
+	/**
+	 * Gets the number of cached resources.
+	 * 
+	 * @return Number of cached resources.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the number of requests served from the cache.
+	 * 
+	 * @return Number of hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of requests, which required parsing.
+	 * 
+	 * @return Number of misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * A cached snapshot of a resource.
+	 */
+	private static class Entry {
+		private final Resource snapshot;
+		private final long lastModified;
+		private final long length;
+
+		Entry(Resource snapshot, long lastModified, long length) {
+			this.snapshot = snapshot;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		boolean isCurrent(File file) {
+			return file.lastModified() == lastModified
+					&& file.length() == length;
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package core.model;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,6 +14,8 @@ import core.config.Constants;
 import core.config.ResourceConfig;
 import core.config.ResourceFileConfig;
 import core.security.AccessRight;
+import core.security.SecurityIndex;
+import core.util.DirectoryIndex;
 import core.util.JsonUtil;
 import core.util.Validator;
 
@@ -29,7 +30,8 @@ public class ResourceUtil {
 	private static Logger log = LoggerFactory.getLogger(ResourceUtil.class);
 
 	/**
-	 * Loads a resource from a given location and kind.
+	 * Loads a resource from a given location and kind. The resource is served
+	 * from the {@link ResourceCache}, so only changed resources are parsed.
 	 * 
 	 * @param <T>
 	 * @param directory
@@ -38,6 +40,18 @@ public class ResourceUtil {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> T loadResource(File directory, final ResourceKind kind) {
+		return (T) ResourceCache.getInstance().get(directory, kind);
+	}
+
+	/**
+	 * Reads and parses a resource from a given location and kind, bypassing
+	 * the cache.
+	 * 
+	 * @param directory
+	 * @param kind
+	 * @return Resource.
+	 */
+	static Resource readResource(File directory, final ResourceKind kind) {
 
 		Resource res = null;
 		if (directory.isDirectory() && directory.exists()) {
@@ -59,7 +73,7 @@ public class ResourceUtil {
 					"ResourceUtil.loadResource(): directory %s does not exist",
 					directory.getPath()));
 		}
-		return (T) res;
+		return res;
 	}
 
 	/**
@@ -107,17 +121,14 @@ public class ResourceUtil {
 	public static List<File> getChildResourceList(File directory) {
 		List<File> res = new ArrayList<File>();
 
-		if (directory.isDirectory() && directory.exists()) {
-			File[] files = directory.listFiles(new FileFilter() {
-				@Override
-				public boolean accept(File dir) {
-					return dir.isDirectory() &&
-
-					dir.getName().matches(ResourceFileConfig.RESOURCE_ID);
+		if (directory.isDirectory()) {
+			for (DirectoryIndex.Entry entry : DirectoryIndex.getInstance()
+					.getEntries(directory)) {
+				if (entry.isDirectory()
+						&& FileName.isResourceId(entry.getName())) {
+					res.add(entry.getFile());
 				}
-			});
-			res.addAll(Arrays.asList(files));
-
+			}
 		} else {
 			log.info(String
 					.format("ResourceUtil.getChildResourceList(): directory %s does not exists",
@@ -154,7 +165,8 @@ public class ResourceUtil {
 	/**
 	 * Gets an {@link AccessRight} for a directory and login. It traverses from
 	 * the specified directory, up to the repository root. The maximum found
-	 * {@link AccessRight} is returned.
+	 * {@link AccessRight} is returned. The lookup is served by the
+	 * {@link SecurityIndex} of the series root.
 	 * 
 	 * @param seriesRoot
 	 *            Root directory for series.
@@ -167,27 +179,8 @@ public class ResourceUtil {
 	 */
 	public static AccessRight getAccessRight(File seriesRoot, File directory,
 			String login) {
-		AccessRight res = AccessRight.NONE;
-
-		if (login != null && !login.isEmpty()) {
-			File start = directory;
-			File currentPath = directory;
-
-			if (currentPath.exists()) {
-				while (!currentPath.equals(seriesRoot.getParentFile())) {
-					AccessRight right = loadAccessRight(currentPath, login);
-
-					if ((right == AccessRight.LIST && currentPath.equals(start))
-							|| (right != AccessRight.LIST && (right
-									.includes(res)))) {
-						res = right;
-					}
-					currentPath = currentPath.getParentFile();
-
-				}
-			}
-		}
-		return res;
+		return SecurityIndex.forRoot(seriesRoot).getAccessRight(directory,
+				login);
 	}
 
 	/**
@@ -235,7 +228,7 @@ public class ResourceUtil {
 			ResourceKind kind) {
 		Validator res = new Validator();
 
-		if (id.matches(ResourceFileConfig.RESOURCE_ID)) {
+		if (FileName.isResourceId(id)) {
 			File dir = new File(directory, id);
 			if (dir.exists()) {
 				res.addError("id",
@@ -1,16 +1,14 @@
 package core.model;
 
 import java.io.File;
-import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import core.config.ResourceConfig;
-import core.config.ResourceFileConfig;
 import core.security.AccessRight;
 import core.security.ResourceViews;
-import core.util.CollectionUtil;
 import core.util.FileUtil;
-import core.util.JsonUtil;
 import core.util.Validator;
 import core.web.util.DownloadBuilder;
 
@@ -36,14 +34,9 @@ public class Series extends Resource {
 
 	@Override
 	public Validator validate() {
-		Validator res = super.validate();
+		Validator res = validateOwn();
 
 		List<Contest> children = loadChildren();
-
-		if (getDirectory() != null) {
-			res.merge(validateFiles(children));
-		}
-
 		for (int i = 0; i < children.size(); i++) {
 			Validator v = children.get(i).validate();
 			res.merge(v, "child_" + i);
@@ -52,6 +45,18 @@ public class Series extends Resource {
 		return res;
 	}
 
+	@Override
+	public Validator validateOwn() {
+		Validator res = super.validate();
+
+		if (getDirectory() != null) {
+			List<Contest> children = loadChildren();
+			res.merge(validateFiles(children));
+		}
+
+		return res;
+	}
+
 	private Validator validateFiles(List<Contest> children) {
 		Validator res = new Validator();
 
@@ -59,12 +64,10 @@ public class Series extends Resource {
 
 		List<String> files = FileUtil.getDirectoryFileNames(getDirectory());
 
-		String[] pattern = new String[] { ResourceFileConfig.ADDITIONAL_FILES,
-				getFilename(), ResourceFileConfig.SECURITY_FILENAME_REGEX };
+		List<File> allowed = getDirectoryFiles(EnumSet.of(FileRole.SECURITY,
+				FileRole.PUBLIC_DIRECTORY, FileRole.PRIVATE_DIRECTORY,
+				FileRole.RESOURCE_FILE));
 
-		List<String> allowed = CollectionUtil.filterRegex(files,
-				CollectionUtil.join(pattern, "|"));
-		
 		if (allowed.size() + children.size() < files.size()) {
 			res.addError("file_extra", "contains unknown files");
 		}
@@ -95,7 +98,7 @@ public class Series extends Resource {
 	}
 
 	@Override
-	public String getJsonString(AccessRight access) {
+	public Class<?> getJsonView(AccessRight access) {
 		Class<?> view;
 
 		if (access.includes(AccessRight.VIEW_FULL)) {
@@ -104,24 +107,21 @@ public class Series extends Resource {
 			view = ResourceViews.Public.class;
 		}
 
-		return JsonUtil.objectToJsonString(this, view);
+		return view;
 	}
 
 	@Override
 	public List<File> getFilesList(AccessRight access) {
-		List<File> res = new ArrayList<File>();
-		List<String> regex = new ArrayList<String>();
+		Set<FileRole> roles = EnumSet.noneOf(FileRole.class);
 		if (access.includes(AccessRight.VIEW_FULL)) {
-			regex.add(ResourceFileConfig.SECURITY_FILENAME_REGEX);
-			regex.add(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME);
-			regex.add(ResourceFileConfig.RESOURCE_PRIVATE_DIRECTORY_NAME);
-			regex.add(getFilename());
+			roles.add(FileRole.SECURITY);
+			roles.add(FileRole.PUBLIC_DIRECTORY);
+			roles.add(FileRole.PRIVATE_DIRECTORY);
+			roles.add(FileRole.RESOURCE_FILE);
 		} else if (access.includes(AccessRight.VIEW)) {
-			regex.add(ResourceFileConfig.RESOURCE_PUBLIC_DIRECTORY_NAME);
-			regex.add(getFilename());
+			roles.add(FileRole.PUBLIC_DIRECTORY);
+			roles.add(FileRole.RESOURCE_FILE);
 		}
-		String match = CollectionUtil.join(regex, "|");
-		res = FileUtil.getDirectoryFiles(getDirectory(), match);
-		return res;
+		return getDirectoryFiles(roles);
 	}
 }
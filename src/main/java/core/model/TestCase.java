@@ -0,0 +1,157 @@
+package core.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A single test of a {@link Problem}: its index, weight, input and answer.
+ * Nothing is read or opened until the content is requested, so tests of any
+ * size can be streamed through a channel or mapped to memory without holding
+ * them on the heap.
+ * 
+ * @author jani
+ * 
+ */
+public class TestCase {
+	private final int index;
+	private final int weight;
+	private final TestFile input;
+	private final TestFile answer;
+
+	TestCase(int index, int weight, TestFile input, TestFile answer) {
+		this.index = index;
+		this.weight = weight;
+		this.input = input;
+		this.answer = answer;
+	}
+
+	/**
+	 * Gets the index of the test, 0 for a single test.
+	 * 
+	 * @return Index.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Gets the weight of the test from the test weights of the problem. Single
+	 * tests and tests without a weight get 1.
+	 * 
+	 * @return Weight.
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Gets the input of the test.
+	 * 
+	 * @return {@link TestFile}
+	 */
+	public TestFile getInput() {
+		return input;
+	}
+
+	/**
+	 * Gets the expected answer of the test.
+	 * 
+	 * @return {@link TestFile}
+	 */
+	public TestFile getAnswer() {
+		return answer;
+	}
+
+	/**
+	 * Input or answer file of a test. The size is taken from the directory
+	 * listing, which found the file.
+	 */
+	public static class TestFile {
+		private final File file;
+		private final long size;
+
+		TestFile(File file, long size) {
+			this.file = file;
+			this.size = size;
+		}
+
+		/**
+		 * Gets the file.
+		 * 
+		 * @return {@link File}
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Gets the size of the file, as listed.
+		 * 
+		 * @return Size in bytes.
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Opens a channel for reading the file. The caller closes it.
+		 * 
+		 * @return {@link ReadableByteChannel}
+		 * @throws IOException
+		 */
+		public ReadableByteChannel open() throws IOException {
+			return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		}
+
+		/**
+		 * Maps the whole file to memory, read-only.
+		 * 
+		 * @return {@link MappedByteBuffer}
+		 * @throws IOException
+		 *             If the file cannot be read or is too large for a single
+		 *             buffer.
+		 */
+		public MappedByteBuffer map() throws IOException {
+			FileChannel channel = FileChannel.open(file.toPath(),
+					StandardOpenOption.READ);
+			try {
+				long length = channel.size();
+				if (length > Integer.MAX_VALUE) {
+					throw new IOException(String.format(
+							"%s is too large to map at once", file));
+				}
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			} finally {
+				// the mapping stays valid after the channel is closed
+				channel.close();
+			}
+		}
+
+		/**
+		 * Maps a region of the file to memory, read-only. Files larger than
+		 * 2GB are mapped in regions.
+		 * 
+		 * @param position
+		 *            Offset of the region.
+		 * @param length
+		 *            Length of the region, at most {@link Integer#MAX_VALUE}.
+		 * @return {@link MappedByteBuffer}
+		 * @throws IOException
+		 */
+		public MappedByteBuffer map(long position, long length)
+				throws IOException {
+			FileChannel channel = FileChannel.open(file.toPath(),
+					StandardOpenOption.READ);
+			try {
+				return channel.map(FileChannel.MapMode.READ_ONLY, position,
+						length);
+			} finally {
+				channel.close();
+			}
+		}
+	}
+}
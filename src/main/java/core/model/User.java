@@ -298,6 +298,26 @@ public class User {
 		return validator;
 	}
 
+	/**
+	 * Creates a copy of the user, which can be modified independently of the
+	 * original.
+	 * 
+	 * @return Copy of the user.
+	 */
+	public User copy() {
+		User res = new User();
+		res.login = login;
+		res.password = password;
+		res.confirmPassword = confirmPassword;
+		res.email = email;
+		res.realName = realName;
+		res.city = city;
+		res.organizations = organizations == null ? null
+				: new ArrayList<String>(organizations);
+		res.about = about;
+		return res;
+	}
+
 	/**
 	 * Hashes the user password.
 	 */
@@ -0,0 +1,169 @@
+package core.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import core.util.Validator;
+
+/**
+ * Validates whole resource trees in parallel. Every resource is validated by
+ * {@link Resource#validateOwn()} in its own fork-join task, while the tasks
+ * of its children run in parallel. The results are collected by resource
+ * path, relative to the validated root.
+ * 
+ * With a {@link ValidationManifest} only the resources which changed since
+ * the previous run are validated, the stored results are reused for all
+ * others.
+ * 
+ * @author jani
+ * 
+ */
+public class ValidationEngine {
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates an engine, which uses all available processors.
+	 */
+	public ValidationEngine() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates an engine with the specified parallelism.
+	 * 
+	 * @param parallelism
+	 *            Number of worker threads.
+	 */
+	public ValidationEngine(int parallelism) {
+		pool = new ForkJoinPool(Math.max(1, parallelism));
+	}
+
+	/**
+	 * Validates all series in a series root and their descendants.
+	 * 
+	 * @param seriesRoot
+	 *            Root directory for series.
+	 * @return Map of resource paths and {@link Validator}s, sorted by path.
+	 */
+	public Map<String, Validator> validateAll(File seriesRoot) {
+		return validateAll(seriesRoot, null);
+	}
+
+	/**
+	 * Validates all series in a series root and their descendants, which
+	 * changed since the manifest was updated. The manifest is updated with
+	 * the new results and the results of removed resources are dropped from
+	 * it.
+	 * 
+	 * @param seriesRoot
+	 *            Root directory for series.
+	 * @param manifest
+	 *            Results of the previous run, may be null.
+	 * @return Map of resource paths and {@link Validator}s, sorted by path.
+	 */
+	public Map<String, Validator> validateAll(File seriesRoot,
+			ValidationManifest manifest) {
+		List<Series> list = ResourceUtil.loadChildResources(seriesRoot,
+				ResourceKind.SERIES);
+		List<Resource> series = new ArrayList<Resource>(list);
+		Map<String, Validator> res = pool.invoke(new ValidateTask(series, "",
+				manifest));
+		if (manifest != null) {
+			manifest.retain(res.keySet());
+		}
+		return res;
+	}
+
+	/**
+	 * Validates a resource and its descendants.
+	 * 
+	 * @param resource
+	 *            Resource to validate.
+	 * @return Map of resource paths and {@link Validator}s, sorted by path.
+	 *         The resource itself has the path of its ID.
+	 */
+	public Map<String, Validator> validate(Resource resource) {
+		List<Resource> list = new ArrayList<Resource>();
+		list.add(resource);
+		return pool.invoke(new ValidateTask(list, "", null));
+	}
+
+	/**
+	 * Stops the worker threads.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Validates a list of sibling resources and their descendants.
+	 */
+	private static class ValidateTask extends
+			RecursiveTask<Map<String, Validator>> {
+		private static final long serialVersionUID = 5196427329734536419L;
+
+		private final List<Resource> resources;
+		private final String prefix;
+		private final ValidationManifest manifest;
+
+		ValidateTask(List<Resource> resources, String prefix,
+				ValidationManifest manifest) {
+			this.resources = resources;
+			this.prefix = prefix;
+			this.manifest = manifest;
+		}
+
+		@Override
+		protected Map<String, Validator> compute() {
+			Map<String, Validator> res = new TreeMap<String, Validator>();
+
+			if (resources.size() > 1) {
+				List<ValidateTask> tasks = new ArrayList<ValidateTask>();
+				for (Resource resource : resources) {
+					List<Resource> single = new ArrayList<Resource>();
+					single.add(resource);
+					tasks.add(new ValidateTask(single, prefix, manifest));
+				}
+				invokeAll(tasks);
+				for (ValidateTask task : tasks) {
+					res.putAll(task.join());
+				}
+			} else if (resources.size() == 1) {
+				Resource resource = resources.get(0);
+				String path = prefix + resource.getId();
+
+				ValidateTask children = null;
+				if (resource.getKind().getSuccessorKind() != null) {
+					List<Resource> list = resource.loadChildren();
+					children = new ValidateTask(list, path + "/", manifest);
+					children.fork();
+				}
+				res.put(path, validateOwn(resource, path));
+				if (children != null) {
+					res.putAll(children.join());
+				}
+			}
+
+			return res;
+		}
+
+		private Validator validateOwn(Resource resource, String path) {
+			if (manifest == null) {
+				return resource.validateOwn();
+			}
+			String fingerprint = ValidationManifest.getFingerprint(resource);
+			Validator res = manifest.get(path, fingerprint);
+			if (res == null) {
+				res = resource.validateOwn();
+				manifest.put(path, fingerprint, res);
+			}
+			return res;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package core.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codehaus.jackson.annotate.JsonIgnore;
+
+import core.config.ResourceFileConfig;
+import core.util.FileUtil;
+import core.util.JsonUtil;
+import core.util.Validator;
+
+/**
+ * Results of a previous validation, which can be reused for resources which
+ * did not change since. The result of a resource is stored together with a
+ * fingerprint of everything {@link Resource#validateOwn()} reads: the names,
+ * sizes and modification times of the files in the resource directory, the
+ * contents of the resource file and the security file, and the contents of
+ * the resource files of the children, which define the IDs of the children.
+ * The small JSON files are hashed, because an edit of them, which keeps the
+ * size and the modification time, must not reuse a stale result. So a contest
+ * is validated again when a problem is added, removed or renamed, but not
+ * when only the tests of a problem change.
+ * 
+ * @author jani
+ * 
+ */
+public class ValidationManifest {
+
+	/**
+	 * Version of the manifest format and the validation rules. Manifests of
+	 * other versions are not reused.
+	 */
+	public static final int VERSION = 2;
+
+	private int version = VERSION;
+
+	private Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	/**
+	 * Reads a manifest file.
+	 * 
+	 * @param file
+	 *            Manifest file.
+	 * @return {@link ValidationManifest}, empty if the file does not exist or
+	 *         is of another version.
+	 */
+	public static ValidationManifest load(File file) {
+		if (file.isFile()) {
+			ValidationManifest res = JsonUtil.readJsonFile(file,
+					ValidationManifest.class);
+			if (res != null && res.getVersion() == VERSION) {
+				return res;
+			}
+		}
+		return new ValidationManifest();
+	}
+
+	/**
+	 * Writes the manifest to a file.
+	 * 
+	 * @param file
+	 *            Manifest file.
+	 * @return Whether successful.
+	 */
+	public boolean save(File file) {
+		return JsonUtil.writeJsonFile(file, this);
+	}
+
+	/**
+	 * Gets the stored result of a resource, if the resource did not change
+	 * since it was stored.
+	 * 
+	 * @param path
+	 *            Path of the resource.
+	 * @param fingerprint
+	 *            Current fingerprint of the resource.
+	 * @return {@link Validator} or null, if the resource has to be validated.
+	 */
+	public Validator get(String path, String fingerprint) {
+		Entry entry = entries.get(path);
+		if (fingerprint == null || entry == null
+				|| !fingerprint.equals(entry.getHash())) {
+			return null;
+		}
+		hits.incrementAndGet();
+		Validator res = new Validator();
+		for (String key : entry.getErrors().keySet()) {
+			res.addError(key, entry.getErrors().get(key));
+		}
+		return res;
+	}
+
+	/**
+	 * Stores the result of a resource.
+	 * 
+	 * @param path
+	 *            Path of the resource.
+	 * @param fingerprint
+	 *            Fingerprint of the resource at the time of the validation.
+	 * @param validator
+	 *            Result of the validation.
+	 */
+	public void put(String path, String fingerprint, Validator validator) {
+		if (fingerprint == null) {
+			entries.remove(path);
+			return;
+		}
+		Entry entry = new Entry();
+		entry.setHash(fingerprint);
+		entry.setErrors(new HashMap<String, String>(validator.getErrors()));
+		entries.put(path, entry);
+	}
+
+	/**
+	 * Removes the results of resources, which no longer exist.
+	 * 
+	 * @param paths
+	 *            Paths of the existing resources.
+	 */
+	public void retain(Set<String> paths) {
+		entries.keySet().retainAll(paths);
+	}
+
+	/**
+	 * Gets the number of results reused since the manifest was loaded.
+	 * 
+	 * @return Number of reused results.
+	 */
+	@JsonIgnore
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the version of the manifest.
+	 * 
+	 * @return Version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Sets the version of the manifest.
+	 * 
+	 * @param version
+	 */
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	/**
+	 * Gets the stored results by resource path.
+	 * 
+	 * @return Map of paths and entries.
+	 */
+	public Map<String, Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Sets the stored results by resource path.
+	 * 
+	 * @param entries
+	 */
+	public void setEntries(Map<String, Entry> entries) {
+		this.entries = new ConcurrentHashMap<String, Entry>(entries);
+	}
+
+	/**
+	 * Computes the fingerprint of the files, which the validation of a
+	 * resource reads.
+	 * 
+	 * @param resource
+	 *            Resource to compute the fingerprint of.
+	 * @return Hex SHA-1 fingerprint or null, if the resource is not stored in
+	 *         a directory.
+	 */
+	public static String getFingerprint(Resource resource) {
+		File dir = resource.getDirectory();
+		if (dir == null) {
+			return null;
+		}
+
+		StringBuilder content = new StringBuilder();
+		content.append(resource.getKind().name()).append(':')
+				.append(resource.getId());
+		String[] names = dir.list();
+		if (names != null) {
+			Arrays.sort(names);
+			ResourceKind childKind = resource.getKind().getSuccessorKind();
+			for (String name : names) {
+				if (FileUtil.isTempFile(name)) {
+					continue;
+				}
+				File file = new File(dir, name);
+				content.append('\n').append(name).append(':');
+				if (file.isDirectory()) {
+					content.append("dir");
+					if (childKind != null) {
+						content.append(':').append(
+								getContentHash(new File(file, childKind
+										.getResourceFilenameExt())));
+					}
+				} else if (name.equals(resource.getKind()
+						.getResourceFilenameExt())
+						|| name.equals(ResourceFileConfig.SECURITY_FILENAME)) {
+					content.append(getContentHash(file));
+				} else {
+					content.append(getStat(file));
+				}
+			}
+		}
+
+		try {
+			return digest(content.toString().getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			assert false;
+		}
+		return null;
+	}
+
+	private static String digest(byte[] data) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] bytes = digest.digest(data);
+			return String.format("%040x", new BigInteger(1, bytes));
+		} catch (NoSuchAlgorithmException e) {
+			assert false;
+		}
+		return null;
+	}
+
+	private static String getContentHash(File file) {
+		try {
+			return digest(Files.readAllBytes(file.toPath()));
+		} catch (IOException e) {
+			return "none";
+		}
+	}
+
+	private static String getStat(File file) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(file.toPath(),
+					BasicFileAttributes.class);
+			return String.format("%d:%d", attrs.size(), attrs
+					.lastModifiedTime().toMillis());
+		} catch (IOException e) {
+			return "none";
+		}
+	}
+
+	/**
+	 * Stored result of a single resource.
+	 */
+	public static class Entry {
+		private String hash;
+		private Map<String, String> errors = new HashMap<String, String>();
+
+		/**
+		 * Gets the fingerprint of the resource.
+		 * 
+		 * @return Hex fingerprint.
+		 */
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * Sets the fingerprint of the resource.
+		 * 
+		 * @param hash
+		 */
+		public void setHash(String hash) {
+			this.hash = hash;
+		}
+
+		/**
+		 * Gets the validation errors of the resource.
+		 * 
+		 * @return Map of error keys and messages.
+		 */
+		public Map<String, String> getErrors() {
+			return errors;
+		}
+
+		/**
+		 * Sets the validation errors of the resource.
+		 * 
+		 * @param errors
+		 */
+		public void setErrors(Map<String, String> errors) {
+			this.errors = errors;
+		}
+	}
+}
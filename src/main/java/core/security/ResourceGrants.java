@@ -1,12 +1,12 @@
 package core.security;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import core.model.Resource;
-import core.model.ResourceUtil;
 
 /**
  * Represents a simple wrapper, for specific rights upon a resource.
@@ -106,14 +106,41 @@ public class ResourceGrants {
 	 */
 	public static Map<String, ResourceGrants> createMap(File seriesRoot,
 			File parentDir, List<Resource> list, String login) {
+		SecurityIndex index = SecurityIndex.forRoot(seriesRoot);
+		AccessRight parentAccess = index.getAccessRight(parentDir, login);
+
+		List<String> ids = new ArrayList<String>();
+		for (Resource resource : list) {
+			ids.add(resource.getId());
+		}
+		Map<String, AccessRight> rights = index.getChildAccessRights(
+				parentDir, ids, login);
+
+		return createMap(parentAccess, list, rights);
+	}
+
+	/**
+	 * Builds a map of {@link ResourceGrants}, upon a list of resources and
+	 * their already evaluated {@link AccessRight}s.
+	 * 
+	 * @param parentAccess
+	 *            {@link AccessRight} for the common parent directory.
+	 * @param list
+	 *            List of resources on which to build a map.
+	 * @param rights
+	 *            {@link AccessRight}s of the resources, by resource ID.
+	 * @return A map of {@link ResourceGrants}.
+	 */
+	public static Map<String, ResourceGrants> createMap(
+			AccessRight parentAccess, List<Resource> list,
+			Map<String, AccessRight> rights) {
 		Map<String, ResourceGrants> res = new HashMap<String, ResourceGrants>();
-		AccessRight parentAccess = ResourceUtil.getAccessRight(seriesRoot,
-				parentDir, login);
 
 		for (Resource resource : list) {
-			File directory = new File(parentDir, resource.getId());
-			AccessRight right = ResourceUtil.getAccessRight(seriesRoot,
-					directory, login);
+			AccessRight right = rights.get(resource.getId());
+			if (right == null) {
+				right = AccessRight.NONE;
+			}
 			boolean canViewBasic = right.includes(AccessRight.LIST);
 			boolean canViewDetails = right.includes(AccessRight.VIEW);
 			boolean canEdit = right.includes(AccessRight.VIEW_FULL);
@@ -0,0 +1,346 @@
+package core.security;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import core.config.ResourceConfig;
+import core.config.ResourceFileConfig;
+import core.util.FileWatcher;
+import core.util.JsonUtil;
+
+/**
+ * Index of the security policy of a series root. Each security file is parsed
+ * only once and the effective {@link AccessRight} of every (directory, login)
+ * pair is computed once, from the already computed rights of the parent
+ * directory.
+ * 
+ * The effective right of a directory is the maximum of its own grant and all
+ * non-{@link AccessRight#LIST} grants of its ancestors up to the series root.
+ * 
+ * Entries are invalidated per subtree, either explicitly after a security
+ * file is written, or by a {@link FileWatcher} event. Directories which
+ * cannot be watched are checked against the modification time of their
+ * security file on every lookup.
+ * 
+ * @author jani
+ * 
+ */
+public class SecurityIndex {
+
+	private static final Map<File, SecurityIndex> indexes = new ConcurrentHashMap<File, SecurityIndex>();
+
+	private final File seriesRoot;
+
+	private final ConcurrentNavigableMap<String, Entry> entries;
+
+	private final AtomicLong generation;
+
+	private final FileWatcher.Listener listener;
+
+	/**
+	 * Gets the index for the specified series root.
+	 * 
+	 * @param seriesRoot
+	 *            Root directory for series.
+	 * @return {@link SecurityIndex}
+	 */
+	public static SecurityIndex forRoot(File seriesRoot) {
+		File root = seriesRoot.getAbsoluteFile();
+		SecurityIndex res = indexes.get(root);
+		if (res == null) {
+			synchronized (indexes) {
+				res = indexes.get(root);
+				if (res == null) {
+					res = new SecurityIndex(root);
+					indexes.put(root, res);
+				}
+			}
+		}
+		return res;
+	}
+
+	private SecurityIndex(File seriesRoot) {
+		this.seriesRoot = seriesRoot;
+		entries = new ConcurrentSkipListMap<String, Entry>();
+		generation = new AtomicLong();
+		listener = new FileWatcher.Listener() {
+			@Override
+			public void changed(File file) {
+				if (file.getName().equals(ResourceFileConfig.SECURITY_FILENAME)) {
+					invalidate(file.getParentFile());
+				} else if (!file.isFile()) {
+					invalidate(file);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Gets the effective {@link AccessRight} for a directory and login.
+	 * 
+	 * @param directory
+	 *            Directory to get {@link AccessRight} for.
+	 * @param login
+	 *            User login to get {@link AccessRight} for.
+	 * @return {@link AccessRight}
+	 */
+	public AccessRight getAccessRight(File directory, String login) {
+		if (login == null || login.isEmpty()) {
+			return AccessRight.NONE;
+		}
+
+		File file = directory.getAbsoluteFile();
+		Entry entry = getEntry(file);
+		if (entry == null) {
+			// files inherit the rights of their directory
+			if (file.isFile() && !file.equals(seriesRoot)) {
+				Entry parent = getEntry(file.getParentFile());
+				if (parent != null) {
+					return getInherited(parent, login);
+				}
+			}
+			return AccessRight.NONE;
+		}
+
+		AccessRight res = entry.effective.get(login);
+		if (res == null) {
+			res = AccessRight.max(entry.getGrant(login),
+					getInherited(entry, login));
+			if (entry.isChainWatched()) {
+				entry.effective.put(login, res);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Gets the effective {@link AccessRight}s of children of a directory in a
+	 * single pass. The rights inherited from the ancestors are evaluated once
+	 * and then combined with the grant of each child.
+	 * 
+	 * @param parentDir
+	 *            Common parent directory of the children.
+	 * @param ids
+	 *            Names of the child directories.
+	 * @param login
+	 *            User login.
+	 * @return Map of child names and {@link AccessRight}s.
+	 */
+	public Map<String, AccessRight> getChildAccessRights(File parentDir,
+			List<String> ids, String login) {
+		Map<String, AccessRight> res = new HashMap<String, AccessRight>();
+
+		AccessRight inherited = getInheritedAccessRight(parentDir, login);
+		File parent = parentDir.getAbsoluteFile();
+		for (String id : ids) {
+			AccessRight right = AccessRight.NONE;
+			if (login != null && !login.isEmpty()) {
+				Entry entry = getEntry(new File(parent, id));
+				if (entry != null) {
+					right = AccessRight.max(entry.getGrant(login), inherited);
+				}
+			}
+			res.put(id, right);
+		}
+		return res;
+	}
+
+	/**
+	 * Gets the {@link AccessRight}, inherited by the children of a directory,
+	 * i.e. the maximum of all non-{@link AccessRight#LIST} grants from the
+	 * directory up to the series root.
+	 * 
+	 * @param directory
+	 *            Parent directory.
+	 * @param login
+	 *            User login.
+	 * @return {@link AccessRight}
+	 */
+	public AccessRight getInheritedAccessRight(File directory, String login) {
+		if (login == null || login.isEmpty()) {
+			return AccessRight.NONE;
+		}
+
+		Entry entry = getEntry(directory.getAbsoluteFile());
+		if (entry == null) {
+			return AccessRight.NONE;
+		}
+		return getInherited(entry, login);
+	}
+
+	/**
+	 * Gets the {@link AccessRight} granted to a login by the security file of a
+	 * single directory, not taking the ancestors into account.
+	 * 
+	 * @param directory
+	 *            Directory, containing the security file.
+	 * @param login
+	 *            User login.
+	 * @return {@link AccessRight}
+	 */
+	public AccessRight getGrant(File directory, String login) {
+		Entry entry = getEntry(directory.getAbsoluteFile());
+		if (entry == null || login == null) {
+			return AccessRight.NONE;
+		}
+		return entry.getGrant(login);
+	}
+
+	/**
+	 * Removes a directory and all its subdirectories from the index. Should be
+	 * called after a security file is written or a directory is replaced or
+	 * deleted.
+	 * 
+	 * @param directory
+	 *            The changed directory.
+	 */
+	public void invalidate(File directory) {
+		String path = directory.getAbsolutePath();
+		synchronized (this) {
+			generation.incrementAndGet();
+			entries.remove(path);
+			String prefix = path + File.separator;
+			entries.subMap(prefix, prefix + Character.MAX_VALUE).clear();
+		}
+	}
+
+	private AccessRight getInherited(Entry entry, String login) {
+		AccessRight res = entry.inherited.get(login);
+		if (res == null) {
+			res = entry.getGrant(login);
+			if (res == AccessRight.LIST) {
+				res = AccessRight.NONE;
+			}
+			if (entry.parent != null) {
+				Entry parent = getEntry(entry.parent);
+				if (parent != null) {
+					res = AccessRight.max(res, getInherited(parent, login));
+				}
+			}
+			if (entry.isChainWatched()) {
+				entry.inherited.put(login, res);
+			}
+		}
+		return res;
+	}
+
+	private Entry getEntry(File directory) {
+		String path = directory.getPath();
+		Entry res = entries.get(path);
+		if (res != null && res.isCurrent()) {
+			return res;
+		}
+		if (res != null) {
+			invalidate(directory);
+		}
+
+		if (!directory.isDirectory()) {
+			return null;
+		}
+
+		File parentDir = null;
+		Entry parent = null;
+		if (!directory.equals(seriesRoot)) {
+			parentDir = directory.getParentFile();
+			if (parentDir != null) {
+				parent = getEntry(parentDir);
+			}
+		}
+
+		long current = generation.get();
+		boolean watched = FileWatcher.getInstance()
+				.register(directory, listener);
+		File securityFile = new File(directory,
+				ResourceFileConfig.SECURITY_FILENAME);
+		long lastModified = securityFile.lastModified();
+		Map<String, AccessRight> grants = readGrants(securityFile);
+
+		res = new Entry(parentDir, grants, watched
+				&& (parent == null || parent.isChainWatched()), lastModified,
+				securityFile);
+		synchronized (this) {
+			if (current == generation.get()) {
+				Entry existing = entries.putIfAbsent(path, res);
+				if (existing != null) {
+					res = existing;
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Parses a security file to a map of logins and {@link AccessRight}s.
+	 * 
+	 * @param securityFile
+	 * @return Map of grants.
+	 */
+	@SuppressWarnings("unchecked")
+	static Map<String, AccessRight> readGrants(File securityFile) {
+		Map<String, AccessRight> res = new HashMap<String, AccessRight>();
+
+		if (securityFile.exists()) {
+			Map<String, Object> map = JsonUtil.readJsonFile(securityFile,
+					Map.class);
+			if (map != null) {
+				Map<String, Object> grants = (Map<String, Object>) map
+						.get(ResourceConfig.GRANTS_PROP_NAME);
+				if (grants != null) {
+					for (String login : grants.keySet()) {
+						Object grant = grants.get(login);
+						if (grant instanceof String) {
+							res.put(login,
+									AccessRight.fromString((String) grant));
+						}
+					}
+				}
+			}
+		}
+		return Collections.unmodifiableMap(res);
+	}
+
+	/**
+	 * Parsed security policy of a single directory.
+	 */
+	private static class Entry {
+		private final File parent;
+		private final Map<String, AccessRight> grants;
+		private final boolean chainWatched;
+		private final long lastModified;
+		private final File securityFile;
+		private final ConcurrentMap<String, AccessRight> inherited;
+		private final ConcurrentMap<String, AccessRight> effective;
+
+		Entry(File parent, Map<String, AccessRight> grants,
+				boolean chainWatched, long lastModified, File securityFile) {
+			this.parent = parent;
+			this.grants = grants;
+			this.chainWatched = chainWatched;
+			this.lastModified = lastModified;
+			this.securityFile = securityFile;
+			this.inherited = new ConcurrentHashMap<String, AccessRight>();
+			this.effective = new ConcurrentHashMap<String, AccessRight>();
+		}
+
+		AccessRight getGrant(String login) {
+			AccessRight res = grants.get(login);
+			return res == null ? AccessRight.NONE : res;
+		}
+
+		boolean isChainWatched() {
+			return chainWatched;
+		}
+
+		boolean isCurrent() {
+			return chainWatched || securityFile.lastModified() == lastModified;
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package core.security;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import core.config.ResourceFileConfig;
+import core.model.User;
+import core.util.FileWatcher;
+import core.util.JsonUtil;
+
+/**
+ * Bounded cache of parsed users of a users root, keyed by login. The cached
+ * instances are snapshots, which are never handed out - callers always get a
+ * copy.
+ * 
+ * Entries are kept current by a {@link FileWatcher} on the user directories,
+ * so a cached user is returned without touching the disk. If a directory
+ * cannot be watched, the modification time and size of the user file are
+ * checked on every access instead. The least recently used users are evicted
+ * first.
+ * 
+ * @author jani
+ * 
+ */
+public class UserCache {
+
+	/**
+	 * Maximum number of cached users.
+	 */
+	public static final int MAX_SIZE = 1024;
+
+	private static final Map<File, UserCache> caches = new ConcurrentHashMap<File, UserCache>();
+
+	private final File usersRoot;
+
+	private final LinkedHashMap<String, Entry> entries;
+
+	private final AtomicLong generation;
+
+	private final AtomicLong hits;
+
+	private final AtomicLong misses;
+
+	private final FileWatcher.Listener listener;
+
+	/**
+	 * Gets the cache for the specified users root.
+	 * 
+	 * @param usersRoot
+	 *            Root directory for users.
+	 * @return {@link UserCache}
+	 */
+	public static UserCache forRoot(File usersRoot) {
+		File root = usersRoot.getAbsoluteFile();
+		UserCache res = caches.get(root);
+		if (res == null) {
+			synchronized (caches) {
+				res = caches.get(root);
+				if (res == null) {
+					res = new UserCache(root);
+					caches.put(root, res);
+				}
+			}
+		}
+		return res;
+	}
+
+	private UserCache(File usersRoot) {
+		this.usersRoot = usersRoot;
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		generation = new AtomicLong();
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+		listener = new FileWatcher.Listener() {
+			@Override
+			public void changed(File file) {
+				File parent = file.getParentFile();
+				if (parent != null && parent.equals(UserCache.this.usersRoot)) {
+					invalidate(file.getName());
+				} else if (parent != null) {
+					invalidate(parent.getName());
+				}
+			}
+		};
+	}
+
+	/**
+	 * Gets a copy of a user. The user file is parsed only if the user is not
+	 * cached or the cached snapshot is outdated.
+	 * 
+	 * @param login
+	 *            Login of the user.
+	 * @return Copy of the user or null, if it cannot be loaded.
+	 */
+	public User get(String login) {
+		File file = getUserFile(login);
+
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(login);
+		}
+		if (entry != null && entry.isCurrent(file)) {
+			hits.incrementAndGet();
+			return entry.snapshot.copy();
+		}
+		misses.incrementAndGet();
+
+		// watch before reading, so no change after the read gets lost
+		boolean watched = FileWatcher.getInstance().register(
+				file.getParentFile(), listener);
+		long current = generation.get();
+		BasicFileAttributes attrs = readAttributes(file);
+
+		User res = attrs == null ? null : JsonUtil.readJsonFile(file,
+				User.class);
+		if (res == null) {
+			invalidate(login);
+			return null;
+		}
+		res.setConfirmPassword(res.getPassword());
+
+		synchronized (this) {
+			if (current == generation.get()) {
+				entries.put(login, new Entry(res.copy(), watched, attrs));
+				evict();
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Stores a user, which has just been written to its file.
+	 * 
+	 * @param user
+	 *            The saved user.
+	 */
+	public void put(User user) {
+		String login = user.getLogin();
+		File file = getUserFile(login);
+		boolean watched = FileWatcher.getInstance().register(
+				file.getParentFile(), listener);
+		BasicFileAttributes attrs = readAttributes(file);
+
+		User snapshot = user.copy();
+		snapshot.setConfirmPassword(snapshot.getPassword());
+		synchronized (this) {
+			generation.incrementAndGet();
+			if (attrs == null) {
+				entries.remove(login);
+			} else {
+				entries.put(login, new Entry(snapshot, watched, attrs));
+				evict();
+			}
+		}
+	}
+
+	/**
+	 * Removes a user from the cache.
+	 * 
+	 * @param login
+	 *            Login of the user.
+	 */
+	public synchronized void invalidate(String login) {
+		generation.incrementAndGet();
+		entries.remove(login);
+	}
+
+	/**
+	 * Removes all users from the cache.
+	 */
+	public synchronized void clear() {
+		generation.incrementAndGet();
+		entries.clear();
+	}
+
+	/**
+	 * Gets the number of cached users.
+	 * 
+	 * @return Number of cached users.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the number of requests served from the cache.
+	 * 
+	 * @return Number of hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of requests, which required parsing.
+	 * 
+	 * @return Number of misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private void evict() {
+		Iterator<String> it = entries.keySet().iterator();
+		while (entries.size() > MAX_SIZE && it.hasNext()) {
+			String login = it.next();
+			it.remove();
+			FileWatcher.getInstance().unregister(
+					getUserFile(login).getParentFile(), listener);
+		}
+	}
+
+		private File getUserFile(String login) {
+		return new File(new File(usersRoot, login),
+				ResourceFileConfig.USER_JSON_FILENAME);
+	}
+
+	private static BasicFileAttributes readAttributes(File file) {
+		try {
+			return Files.readAttributes(file.toPath(),
+					BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * A cached snapshot of a user.
+	 */
+	private static class Entry {
+		private final User snapshot;
+		private final boolean watched;
+		private final long lastModified;
+		private final long length;
+
+		Entry(User snapshot, boolean watched, BasicFileAttributes attrs) {
+			this.snapshot = snapshot;
+			this.watched = watched;
+			this.lastModified = attrs.lastModifiedTime().toMillis();
+			this.length = attrs.size();
+		}
+
+		boolean isCurrent(File file) {
+			if (watched) {
+				return true;
+			}
+			BasicFileAttributes attrs = readAttributes(file);
+			return attrs != null
+					&& attrs.lastModifiedTime().toMillis() == lastModified
+					&& attrs.size() == length;
+		}
+	}
+}
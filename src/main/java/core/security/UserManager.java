@@ -8,12 +8,14 @@ import core.util.StringUtil;
 import core.util.Validator;
 
 /**
- * Manages getting, editing and creation of users.
+ * Manages getting, editing and creation of users. Users are loaded through
+ * the shared {@link UserCache} of the users root.
  * 
  * @author deni, joro, jani
  */
 public class UserManager {
 	private File usersRoot;
+	private UserCache cache;
 
 	/**
 	 * Creates and instance of the user manager.
@@ -23,6 +25,7 @@ public class UserManager {
 	 */
 	public UserManager(File usersRoot) {
 		this.usersRoot = usersRoot;
+		this.cache = UserCache.forRoot(usersRoot);
 	}
 
 	/**
@@ -91,7 +94,8 @@ public class UserManager {
 	}
 
 	/**
-	 * Loads the {@link User} object for the specified username.
+	 * Loads the {@link User} object for the specified username. The user file
+	 * is parsed only if the user is not cached.
 	 * 
 	 * @param username
 	 * @return The user, corresponding to the username.
@@ -99,8 +103,7 @@ public class UserManager {
 	public User loadUser(String username) {
 		User res = null;
 		if (Validator.isMatch(username, ResourceFileConfig.RESOURCE_ID)) {
-			File file = getUserFile(username);
-			res = loadUser(file);
+			res = cache.get(username);
 		}
 		return res;
 	}
@@ -119,7 +122,14 @@ public class UserManager {
 		if (!directory.exists()) {
 			directory.mkdir();
 		}
-		return JsonUtil.writeJsonFile(getUserFile(user.getLogin()), user);
+		boolean res = JsonUtil.writeJsonFile(getUserFile(user.getLogin()),
+				user);
+		if (res) {
+			cache.put(user);
+		} else {
+			cache.invalidate(user.getLogin());
+		}
+		return res;
 	}
 
 	/**
@@ -0,0 +1,392 @@
+package core.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content-addressable store of file contents. Every content is kept once,
+ * named by its SHA-256 hash, and files in the repository with the same
+ * content are hard links to it. As the links are ordinary files, nothing has
+ * to resolve them when files are read or downloaded.
+ * 
+ * Files of the repository are always replaced by a rename, never written in
+ * place (see {@link FileUtil#saveStream(InputStream, File, boolean)}), so
+ * writing a file breaks its link instead of changing the stored content. If a
+ * link cannot be created, e.g. the file system does not support hard links or
+ * the store is on another file system, the file is kept as it is. As a
+ * stored content is shared by all its links, it must never be edited in
+ * place, neither in the store nor in the repository. The name of a stored
+ * content is trusted to be its hash, but before another file is linked to
+ * it, its size and modification time are compared with the ones recorded
+ * when it was stored, so one which was edited nevertheless is replaced
+ * instead of spreading. Contents stored before the servlets started are
+ * recorded as they are when they are linked first.
+ * 
+ * Contents, which are no longer linked from the repository, are removed by
+ * {@link #collect()} when the servlets start and in the background by
+ * {@link #collectLater()}, when resources are deleted or imported.
+ * 
+ * The store is disabled until it is configured.
+ * 
+ * @author jani
+ * 
+ */
+public class BlobStore {
+	private static Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+	private static final BlobStore instance = new BlobStore();
+
+	private volatile File directory;
+
+	private final AtomicLong stored;
+
+	private final AtomicLong deduplicated;
+
+	private final Map<File, Stamp> stamps;
+
+	private final AtomicBoolean collectPending;
+
+	private final ExecutorService collector;
+
+	/**
+	 * Gets the shared instance of the store.
+	 * 
+	 * @return {@link BlobStore}
+	 */
+	public static BlobStore getInstance() {
+		return instance;
+	}
+
+	private BlobStore() {
+		stored = new AtomicLong();
+		deduplicated = new AtomicLong();
+		stamps = new ConcurrentHashMap<File, Stamp>();
+		collectPending = new AtomicBoolean();
+		collector = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread res = new Thread(r, "BlobStore.collector");
+				res.setDaemon(true);
+				return res;
+			}
+		});
+	}
+
+	/**
+	 * Configures the store.
+	 * 
+	 * @param directory
+	 *            Directory of the store, should be on the same file system as
+	 *            the series. Null disables the store.
+	 */
+	public void configure(File directory) {
+		stamps.clear();
+		if (directory == null) {
+			this.directory = null;
+			return;
+		}
+		File dir = directory.getAbsoluteFile();
+		dir.mkdirs();
+		if (!dir.isDirectory()) {
+			log.error(String.format(
+					"BlobStore.configure(): Unable to create %s", dir));
+			this.directory = null;
+			return;
+		}
+		this.directory = dir;
+	}
+
+	/**
+	 * Checks whether the store is configured.
+	 * 
+	 * @return Whether enabled.
+	 */
+	public boolean isEnabled() {
+		return directory != null;
+	}
+
+	/**
+	 * Creates a digest, which computes hashes for
+	 * {@link #store(File, byte[])}.
+	 * 
+	 * @return {@link MessageDigest}
+	 */
+	public static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			assert false;
+		}
+		return null;
+	}
+
+	/**
+	 * Saves an input stream to the file system, like
+	 * {@link FileUtil#saveStream(InputStream, File, boolean)}, and stores the
+	 * file. The content is hashed while it is written.
+	 * 
+	 * @param input
+	 * @param destinationFile
+	 * @param overwrite
+	 * @return {@link Validator}
+	 */
+	public Validator saveStream(InputStream input, File destinationFile,
+			boolean overwrite) {
+		if (!isEnabled()) {
+			return FileUtil.saveStream(input, destinationFile, overwrite);
+		}
+		MessageDigest digest = newDigest();
+		Validator res = FileUtil.saveStream(
+				new DigestInputStream(input, digest), destinationFile,
+				overwrite);
+		if (res.isValid()) {
+			store(destinationFile, digest.digest());
+		}
+		return res;
+	}
+
+	/**
+	 * Stores a file. The file is hashed first.
+	 * 
+	 * @param file
+	 *            File in the repository.
+	 * @return Whether the file is linked to the store.
+	 */
+	public boolean store(File file) {
+		if (!isEnabled()) {
+			return false;
+		}
+		byte[] hash = hash(file);
+		return hash != null && store(file, hash);
+	}
+
+	/**
+	 * Stores a file with a known hash. If the content is already in the store,
+	 * the file is replaced by a link to it. Otherwise the file is linked into
+	 * the store.
+	 * 
+	 * @param file
+	 *            File in the repository.
+	 * @param hash
+	 *            SHA-256 hash of the content of the file.
+	 * @return Whether the file is linked to the store.
+	 */
+	public boolean store(File file, byte[] hash) {
+		File dir = directory;
+		if (dir == null || !file.isFile()) {
+			return false;
+		}
+
+		File blob = getBlob(dir, hash);
+		Lock lock = WriteLocks.forFile(file);
+		lock.lock();
+		try {
+			if (!blob.isFile()) {
+				blob.getParentFile().mkdirs();
+				try {
+					Files.createLink(blob.toPath(), file.toPath());
+					stamps.put(blob, new Stamp(blob));
+					stored.incrementAndGet();
+					return true;
+				} catch (FileAlreadyExistsException e) {
+					// stored meanwhile by another file
+				}
+			}
+			Stamp stamp = new Stamp(blob);
+			Stamp recorded = stamps.putIfAbsent(blob, stamp);
+			if (stamp.length != file.length()
+					|| (recorded != null && !recorded.equals(stamp))) {
+				// edited in place, its links share the changed content
+				log.error(String.format(
+						"BlobStore.store(): Content of %s does not match, replacing it",
+						blob));
+				Files.delete(blob.toPath());
+				Files.createLink(blob.toPath(), file.toPath());
+				stamps.put(blob, new Stamp(blob));
+				stored.incrementAndGet();
+				return true;
+			}
+
+			File temp = FileUtil.getTempFile(file);
+			try {
+				Files.createLink(temp.toPath(), blob.toPath());
+				Files.move(temp.toPath(), file.toPath(),
+						StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				temp.delete();
+			}
+			deduplicated.incrementAndGet();
+			return true;
+		} catch (IOException e) {
+			log.info(String.format("BlobStore.store(): Unable to link %s: %s",
+					file, e.getMessage()));
+			return false;
+		} catch (UnsupportedOperationException e) {
+			log.info("BlobStore.store(): Links are not supported");
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Runs {@link #collect()} in the background. Requests, which arrive while
+	 * a collection is waiting to start, are served by that one.
+	 */
+	public void collectLater() {
+		if (directory == null || !collectPending.compareAndSet(false, true)) {
+			return;
+		}
+		collector.execute(new Runnable() {
+			@Override
+			public void run() {
+				collectPending.set(false);
+				int count = collect();
+				if (count > 0) {
+					log.info(String.format(
+							"BlobStore.collectLater(): Removed %d contents",
+							count));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Removes stored contents, which are not linked from anywhere else. Works
+	 * only on file systems, which report the number of links.
+	 * 
+	 * @return Number of removed contents.
+	 */
+	public int collect() {
+		File dir = directory;
+		int res = 0;
+		if (dir == null) {
+			return res;
+		}
+		File[] prefixes = dir.listFiles();
+		if (prefixes == null) {
+			return res;
+		}
+		for (File prefix : prefixes) {
+			File[] blobs = prefix.listFiles();
+			if (blobs == null) {
+				continue;
+			}
+			for (File blob : blobs) {
+				try {
+					Object links = Files.getAttribute(blob.toPath(),
+							"unix:nlink");
+					if (links instanceof Integer && (Integer) links == 1
+							&& blob.delete()) {
+						stamps.remove(blob);
+						res++;
+					}
+				} catch (IOException e) {
+					// removed meanwhile
+				} catch (UnsupportedOperationException e) {
+					return res;
+				} catch (IllegalArgumentException e) {
+					return res;
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Gets the number of contents, which have been added to the store.
+	 * 
+	 * @return Number of contents.
+	 */
+	public long getStored() {
+		return stored.get();
+	}
+
+	/**
+	 * Gets the number of files, which have been replaced by a link to an
+	 * already stored content.
+	 * 
+	 * @return Number of files.
+	 */
+	public long getDeduplicated() {
+		return deduplicated.get();
+	}
+
+	/**
+	 * Computes the hash of the content of a file.
+	 * 
+	 * @return SHA-256 hash or null, if the file cannot be read.
+	 */
+	private static byte[] hash(File file) {
+		MessageDigest digest = newDigest();
+		try {
+			InputStream input = new FileInputStream(file);
+			try {
+				byte[] buffer = new byte[64 * 1024];
+				int len;
+				while ((len = input.read(buffer)) > 0) {
+					digest.update(buffer, 0, len);
+				}
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		return digest.digest();
+	}
+
+	private static File getBlob(File directory, byte[] hash) {
+		String name = String.format("%064x", new BigInteger(1, hash));
+		return new File(new File(directory, name.substring(0, 2)), name);
+	}
+
+	/**
+	 * Size and modification time of a stored content.
+	 */
+	private static class Stamp {
+		private final long length;
+		private final FileTime modified;
+
+		private Stamp(File blob) throws IOException {
+			length = blob.length();
+			modified = Files.getLastModifiedTime(blob.toPath());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Stamp)) {
+				return false;
+			}
+			Stamp other = (Stamp) obj;
+			return length == other.length && modified.equals(other.modified);
+		}
+
+		@Override
+		public int hashCode() {
+			return modified.hashCode();
+		}
+	}
+}
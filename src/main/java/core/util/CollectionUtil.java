@@ -1,12 +1,9 @@
 package core.util;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Helper methods for collections.
@@ -75,58 +72,4 @@ public class CollectionUtil {
 		}
 		return res;
 	}
-
-	/**
-	 * Filters a list with a regex.
-	 * 
-	 * @param list
-	 * @param regex
-	 * @return Filtered values.
-	 */
-	public static List<String> filterRegex(List<String> list, String regex) {
-		List<String> res = new ArrayList<String>();
-		for (String s : list) {
-			if (s.matches(regex)) {
-				res.add(s);
-			}
-		}
-		return res;
-	}
-
-	/**
-	 * Gets a list of matches of elements of a list.
-	 * 
-	 * @param list
-	 * @param regex
-	 * @param group
-	 * @return Matched values.
-	 */
-	public static List<String> getMatches(List<String> list, String regex,
-			int group) {
-		Pattern pattern = Pattern.compile(regex);
-		List<String> res = new ArrayList<String>();
-		for (String s : list) {
-			Matcher m = pattern.matcher(s);
-			if (m.matches()) {
-				res.add(m.group(group));
-			}
-		}
-		return res;
-	}
-
-	/**
-	 * Checks if there is a match in a list.
-	 * 
-	 * @param list
-	 * @param regex
-	 * @return Whether matches.
-	 */
-	public static boolean hasMatch(List<String> list, String regex) {
-		for (String s : list) {
-			if (s.matches(regex)) {
-				return true;
-			}
-		}
-		return false;
-	}
 }
@@ -0,0 +1,208 @@
+package core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index of content versions of file trees. The version of a file is derived
+ * from its size, modification time and file key (the inode on Unix), the
+ * version of a directory from the names and versions of all its entries,
+ * recursively. A version changes whenever anything in the tree changes.
+ * 
+ * Versions depend only on the state of the file system, so they are the same
+ * after a restart and can be used in strong entity tags. Files written by the
+ * repository are replaced by a rename (see
+ * {@link FileUtil#saveStream(java.io.InputStream, File, boolean)}), which
+ * changes the file key even if the size and the modification time stay the
+ * same. An edit in place, which keeps both, is not noticed.
+ * 
+ * Directory versions are kept until a {@link FileWatcher} event or an
+ * explicit {@link #invalidate(File)} drops them together with the versions of
+ * all ancestors. Trees, which cannot be watched completely, are walked on
+ * every request.
+ * 
+ * @author jani
+ * 
+ */
+public class ContentVersions {
+
+	private static final ContentVersions instance = new ContentVersions();
+
+	private final ConcurrentNavigableMap<String, Version> versions;
+
+	private final AtomicLong generation;
+
+	private final FileWatcher.Listener listener;
+
+	/**
+	 * Gets the shared instance of the index.
+	 * 
+	 * @return {@link ContentVersions}
+	 */
+	public static ContentVersions getInstance() {
+		return instance;
+	}
+
+	private ContentVersions() {
+		versions = new ConcurrentSkipListMap<String, Version>();
+		generation = new AtomicLong();
+		listener = new FileWatcher.Listener() {
+			@Override
+			public void changed(File file) {
+				invalidate(file);
+			}
+		};
+	}
+
+	/**
+	 * Gets the version of a file or a directory tree.
+	 * 
+	 * @param file
+	 *            File or directory.
+	 * @return {@link Version} or null, if the file does not exist.
+	 */
+	public Version getVersion(File file) {
+		File abs = file.getAbsoluteFile();
+		BasicFileAttributes attrs = readAttributes(abs);
+		if (attrs == null) {
+			return null;
+		}
+		if (attrs.isDirectory()) {
+			return getDirectoryVersion(abs, attrs);
+		}
+		return new Version(hash(String.format("file:%d:%d:%s", attrs.size(),
+				attrs.lastModifiedTime().toMillis(), attrs.fileKey())), attrs
+				.lastModifiedTime().toMillis(), true);
+	}
+
+	/**
+	 * Drops the versions of a changed file or directory, its descendants and
+	 * all its ancestors.
+	 * 
+	 * @param file
+	 *            The changed file or directory.
+	 */
+	public void invalidate(File file) {
+		String path = file.getAbsolutePath();
+		synchronized (this) {
+			generation.incrementAndGet();
+			versions.remove(path);
+			String prefix = path + File.separator;
+			versions.subMap(prefix, prefix + Character.MAX_VALUE).clear();
+
+			File current = file.getAbsoluteFile();
+			while (current != null) {
+				versions.remove(current.getPath());
+				current = current.getParentFile();
+			}
+		}
+	}
+
+	private Version getDirectoryVersion(File dir, BasicFileAttributes attrs) {
+		String path = dir.getPath();
+		Version res = versions.get(path);
+		if (res != null) {
+			return res;
+		}
+
+		// watch before reading, so no change after the read gets lost
+		boolean complete = FileWatcher.getInstance().register(dir, listener);
+		long current = generation.get();
+		long lastModified = attrs.lastModifiedTime().toMillis();
+
+		StringBuilder content = new StringBuilder();
+		content.append("dir:");
+		String[] names = dir.list();
+		if (names != null) {
+			Arrays.sort(names);
+			for (String name : names) {
+				if (FileUtil.isTempFile(name)) {
+					continue;
+				}
+				Version child = getVersion(new File(dir, name));
+				if (child != null) {
+					content.append('\n').append(name).append(':')
+							.append(child.hash);
+					lastModified = Math.max(lastModified, child.lastModified);
+					complete = complete && child.complete;
+				}
+			}
+		}
+
+		res = new Version(hash(content.toString()), lastModified, complete);
+		if (complete) {
+			synchronized (this) {
+				if (current == generation.get()) {
+					versions.put(path, res);
+				}
+			}
+		}
+		return res;
+	}
+
+	private static BasicFileAttributes readAttributes(File file) {
+		try {
+			return Files.readAttributes(file.toPath(),
+					BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static String hash(String input) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] bytes = digest.digest(input.getBytes("UTF-8"));
+			return String.format("%040x", new BigInteger(1, bytes));
+		} catch (NoSuchAlgorithmException e) {
+			assert false;
+		} catch (UnsupportedEncodingException e) {
+			assert false;
+		}
+		return null;
+	}
+
+	/**
+	 * Version of a file or directory tree.
+	 */
+	public static class Version {
+		private final String hash;
+		private final long lastModified;
+		// whether all changes of the tree are watched
+		private final boolean complete;
+
+		Version(String hash, long lastModified, boolean complete) {
+			this.hash = hash;
+			this.lastModified = lastModified;
+			this.complete = complete;
+		}
+
+		/**
+		 * Gets the hash of the content version.
+		 * 
+		 * @return Hex string.
+		 */
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * Gets the latest modification time in the tree.
+		 * 
+		 * @return Time in milliseconds.
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index of directory listings. The entries of a directory are read in a single
+ * pass with their attributes, sorted once (directories first, then by name)
+ * and kept until a {@link FileWatcher} event or an explicit
+ * {@link #invalidate(File)} drops them. Listings use the attributes read with
+ * the directory, so no further file system calls are needed.
+ * 
+ * Directories, which cannot be watched, are checked against their own
+ * modification time on every request. Changes to the content of their files
+ * are noticed only after something is written through {@link #invalidate(File)}
+ * or the directory itself changes.
+ * 
+ * @author jani
+ * 
+ */
+public class DirectoryIndex {
+
+	private static final DirectoryIndex instance = new DirectoryIndex();
+
+	private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			if (e1.directory != e2.directory) {
+				return e1.directory ? -1 : 1;
+			}
+			return e1.name.compareTo(e2.name);
+		}
+	};
+
+	private final ConcurrentNavigableMap<String, Listing> listings;
+
+	private final AtomicLong generation;
+
+	private final FileWatcher.Listener listener;
+
+	/**
+	 * Gets the shared instance of the index.
+	 * 
+	 * @return {@link DirectoryIndex}
+	 */
+	public static DirectoryIndex getInstance() {
+		return instance;
+	}
+
+	private DirectoryIndex() {
+		listings = new ConcurrentSkipListMap<String, Listing>();
+		generation = new AtomicLong();
+		listener = new FileWatcher.Listener() {
+			@Override
+			public void changed(File file) {
+				invalidate(file);
+			}
+		};
+	}
+
+	/**
+	 * Gets the sorted entries of a directory.
+	 * 
+	 * @param directory
+	 *            The directory.
+	 * @return Unmodifiable list of entries, empty if the directory does not
+	 *         exist.
+	 */
+	public List<Entry> getEntries(File directory) {
+		File dir = directory.getAbsoluteFile();
+		String path = dir.getPath();
+		Listing res = listings.get(path);
+		if (res != null && res.isCurrent()) {
+			return res.entries;
+		}
+
+		// watch before reading, so no change after the read gets lost
+		boolean watched = FileWatcher.getInstance().register(dir, listener);
+		long current = generation.get();
+		long lastModified = dir.lastModified();
+		List<Entry> entries = readEntries(dir);
+
+		res = new Listing(dir, Collections.unmodifiableList(entries),
+				watched, lastModified);
+		if (lastModified != 0) {
+			synchronized (this) {
+				if (current == generation.get()) {
+					listings.put(path, res);
+				}
+			}
+		}
+		return res.entries;
+	}
+
+	/**
+	 * Drops the listings of a changed file or directory, its descendants and
+	 * its parent directory.
+	 * 
+	 * @param file
+	 *            The changed file or directory.
+	 */
+	public void invalidate(File file) {
+		File abs = file.getAbsoluteFile();
+		String path = abs.getPath();
+		synchronized (this) {
+			generation.incrementAndGet();
+			listings.remove(path);
+			String prefix = path + File.separator;
+			listings.subMap(prefix, prefix + Character.MAX_VALUE).clear();
+			if (abs.getParentFile() != null) {
+				listings.remove(abs.getParent());
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of cached listings.
+	 * 
+	 * @return Number of directories.
+	 */
+	public int size() {
+		return listings.size();
+	}
+
+	/**
+	 * Reads the entries of a directory with their attributes, without caching.
+	 * Temporary files of writers are skipped.
+	 * 
+	 * @param directory
+	 * @return Sorted list of entries, empty if the directory cannot be read.
+	 */
+	static List<Entry> readEntries(File directory) {
+		List<Entry> res = new ArrayList<Entry>();
+		DirectoryStream<Path> stream;
+		try {
+			stream = Files.newDirectoryStream(directory.toPath());
+		} catch (IOException e) {
+			return res;
+		}
+		try {
+			for (Path path : stream) {
+				if (FileUtil.isTempFile(path.getFileName().toString())) {
+					// being written or left over by a crash
+					continue;
+				}
+				try {
+					BasicFileAttributes attrs = Files.readAttributes(path,
+							BasicFileAttributes.class);
+					res.add(new Entry(path.toFile(), attrs));
+				} catch (IOException e) {
+					// removed meanwhile or a broken link
+				}
+			}
+		} finally {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				// nothing
+			}
+		}
+		Collections.sort(res, ORDER);
+		return res;
+	}
+
+	/**
+	 * Cached listing of a directory.
+	 */
+	private static class Listing {
+		private final File directory;
+		private final List<Entry> entries;
+		private final boolean watched;
+		private final long lastModified;
+
+		Listing(File directory, List<Entry> entries, boolean watched,
+				long lastModified) {
+			this.directory = directory;
+			this.entries = entries;
+			this.watched = watched;
+			this.lastModified = lastModified;
+		}
+
+		boolean isCurrent() {
+			return watched || directory.lastModified() == lastModified;
+		}
+	}
+
+	/**
+	 * A file or directory in a listing, together with its attributes at the
+	 * time the listing was read. The accessors follow the names of
+	 * {@link File}, so an entry can be used in place of a file in templates.
+	 */
+	public static class Entry {
+		private final File file;
+		private final String name;
+		private final boolean directory;
+		private final long size;
+		private final long lastModified;
+
+		Entry(File file, BasicFileAttributes attrs) {
+			this.file = file;
+			this.name = file.getName();
+			this.directory = attrs.isDirectory();
+			this.size = attrs.size();
+			this.lastModified = attrs.lastModifiedTime().toMillis();
+		}
+
+		/**
+		 * Gets the file of the entry.
+		 * 
+		 * @return {@link File}
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Gets the name of the entry.
+		 * 
+		 * @return File name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Checks whether the entry is a directory.
+		 * 
+		 * @return Whether a directory.
+		 */
+		public boolean isDirectory() {
+			return directory;
+		}
+
+		/**
+		 * Checks whether the entry is a file.
+		 * 
+		 * @return Whether a file.
+		 */
+		public boolean isFile() {
+			return !directory;
+		}
+
+		/**
+		 * Gets the size of the entry.
+		 * 
+		 * @return Size in bytes.
+		 */
+		public long length() {
+			return size;
+		}
+
+		/**
+		 * Gets the modification time of the entry.
+		 * 
+		 * @return Time in milliseconds.
+		 */
+		public long lastModified() {
+			return lastModified;
+		}
+	}
+}
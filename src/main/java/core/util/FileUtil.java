@@ -9,14 +9,16 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -38,6 +40,12 @@ import core.web.util.FileUpload;
 public class FileUtil {
 	private static Logger log = LoggerFactory.getLogger(FileUtil.class);
 
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private static final Pattern TEMP_FILE_PATTERN = Pattern
+			.compile("\\..+\\.[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}"
+					+ Pattern.quote(TEMP_EXTENSION));
+
 	/**
 	 * Possible file types
 	 * 
@@ -63,24 +71,13 @@ public class FileUtil {
 	public static List<File> getDirectoryFiles(File directory, FileFilter filter) {
 		List<File> res = new ArrayList<File>();
 
-		if (directory.isDirectory() && directory.exists()) {
-			File[] files = directory.listFiles(filter);
-			res = Arrays.asList(files);
-		}
-		Collections.sort(res, new Comparator<File>() {
-			@Override
-			public int compare(File f1, File f2) {
-				if (f1.isDirectory() && !f2.isDirectory()) {
-					return -1;
-				}
-
-				if (f2.isDirectory() && !f1.isDirectory()) {
-					return 1;
-				}
-
-				return f1.getName().compareTo(f2.getName());
+		// the entries are sorted with the attributes read along the listing
+		for (DirectoryIndex.Entry entry : DirectoryIndex
+				.readEntries(directory)) {
+			if (filter.accept(entry.getFile())) {
+				res.add(entry.getFile());
 			}
-		});
+		}
 		return res;
 	}
 
@@ -141,15 +138,28 @@ public class FileUtil {
 	 */
 	public static byte[] createZip(File directory) throws IOException {
 		ByteArrayOutputStream res = new ByteArrayOutputStream();
+		writeZip(directory, res);
+		return res.toByteArray();
+	}
 
-		ZipOutputStream zip = new ZipOutputStream(res);
+	/**
+	 * Writes a zip of a directory directly to a stream. The stream is not
+	 * closed, but the zip is finished.
+	 * 
+	 * @param directory
+	 *            Directory to zip.
+	 * @param output
+	 *            Destination stream.
+	 * @throws IOException
+	 */
+	public static void writeZip(File directory, OutputStream output)
+			throws IOException {
+		ZipOutputStream zip = new ZipOutputStream(output);
 
 		addToZip(zip, directory, directory.getName());
 
+		zip.finish();
 		zip.flush();
-		zip.close();
-
-		return res.toByteArray();
 	}
 
 	/**
@@ -184,6 +194,9 @@ public class FileUtil {
 				zip.closeEntry();
 			} else {
 				for (String filename : list) {
+					if (isTempFile(filename)) {
+						continue;
+					}
 					File f = new File(file, filename);
 					String newDest = f.getName();
 					if (!name.isEmpty()) {
@@ -283,7 +296,12 @@ public class FileUtil {
 	}
 
 	/**
-	 * Saves an input stream to the file system.
+	 * Saves an input stream to the file system. The stream is written to a
+	 * temporary file in the same directory, which is then renamed to the
+	 * destination, so readers see either the old or the new content, but never
+	 * a partially written file. Only the rename is serialized with the other
+	 * writers of the directory by {@link WriteLocks}, so a slow upload does not
+	 * block them.
 	 * 
 	 * @param input
 	 * @param destinationFile
@@ -295,24 +313,74 @@ public class FileUtil {
 			boolean overwrite) {
 		Validator res = new Validator();
 
-		if (destinationFile.exists() && !overwrite) {
+		File destination = destinationFile.getAbsoluteFile();
+		if (destination.exists() && !overwrite) {
 			res.addError("newdir", "File already exists");
-		} else {
+			return res;
+		}
+
+		File temp = getTempFile(destination);
+		try {
+			FileOutputStream output = new FileOutputStream(temp);
 			try {
-				FileOutputStream output = new FileOutputStream(destinationFile);
-				try {
-					IOUtils.copy(input, output);
-				} finally {
-					output.close();
+				IOUtils.copy(input, output);
+				output.flush();
+				output.getFD().sync();
+			} finally {
+				output.close();
+			}
+
+			Lock lock = WriteLocks.forFile(destination);
+			lock.lock();
+			try {
+				if (destination.exists() && !overwrite) {
+					res.addError("newdir", "File already exists");
+				} else {
+					Files.move(temp.toPath(), destination.toPath(),
+							StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
 				}
-			} catch (IOException e) {
-				res.addError("error", e.getMessage());
+			} finally {
+				lock.unlock();
+			}
+		} catch (IOException e) {
+			res.addError("error", e.getMessage());
+		} finally {
+			if (temp.exists()) {
+				temp.delete();
 			}
 		}
 
 		return res;
 	}
 
+	/**
+	 * Gets a unique temporary file in the directory of a file, which is
+	 * renamed to the file once it is written. Such files are left behind only
+	 * by a crash and are skipped in listings, see {@link #isTempFile(String)}.
+	 * 
+	 * @param destination
+	 *            File to be written.
+	 * @return Temporary file.
+	 */
+	public static File getTempFile(File destination) {
+		return new File(destination.getParentFile(), String.format(
+				".%s.%s%s", destination.getName(), UUID.randomUUID(),
+				TEMP_EXTENSION));
+	}
+
+	/**
+	 * Checks if a file name is a name of a temporary file, see
+	 * {@link #getTempFile(File)}.
+	 * 
+	 * @param name
+	 *            File name.
+	 * @return Whether the file is temporary.
+	 */
+	public static boolean isTempFile(String name) {
+		return TEMP_FILE_PATTERN.matcher(name).matches();
+	}
+
 	/**
 	 * Reads a file to byte array. If a directory is passed, then it is
 	 * converted to a zip.
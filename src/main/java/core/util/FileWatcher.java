@@ -0,0 +1,243 @@
+package core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches directories for changes, using a {@link WatchService}, and notifies
+ * registered listeners. A single background thread serves all registrations.
+ * If the file system does not support watching, registration fails and the
+ * callers are expected to fall back to their own checks.
+ * 
+ * @author jani
+ * 
+ */
+public class FileWatcher {
+	private static Logger log = LoggerFactory.getLogger(FileWatcher.class);
+
+	private static FileWatcher instance;
+
+	/**
+	 * Listener for changes in watched directories.
+	 * 
+	 */
+	public interface Listener {
+		/**
+		 * Called when a file has been created, modified or deleted. When
+		 * individual events are lost (overflow) or the watched directory
+		 * itself is gone, the watched directory is passed instead.
+		 * 
+		 * @param file
+		 *            The changed file or the watched directory.
+		 */
+		void changed(File file);
+	}
+
+	private WatchService service;
+
+	private Map<WatchKey, Registration> registrations;
+
+	private Map<File, WatchKey> keys;
+
+	/**
+	 * Gets the shared instance of the watcher.
+	 * 
+	 * @return {@link FileWatcher}
+	 */
+	public static synchronized FileWatcher getInstance() {
+		if (instance == null) {
+			instance = new FileWatcher();
+		}
+		return instance;
+	}
+
+	private FileWatcher() {
+		registrations = new ConcurrentHashMap<WatchKey, Registration>();
+		keys = new ConcurrentHashMap<File, WatchKey>();
+		try {
+			service = FileSystems.getDefault().newWatchService();
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					process();
+				}
+			}, "core-file-watcher");
+			thread.setDaemon(true);
+			thread.start();
+		} catch (IOException e) {
+			log.info("FileWatcher(): Watching is not supported, falling back to polling");
+			service = null;
+		}
+	}
+
+	/**
+	 * Checks whether the watcher is able to watch directories.
+	 * 
+	 * @return Whether watching is supported.
+	 */
+	public boolean isEnabled() {
+		return service != null;
+	}
+
+	/**
+	 * Checks whether a directory is currently watched.
+	 * 
+	 * @param directory
+	 * @return Whether the directory is watched.
+	 */
+	public boolean isWatched(File directory) {
+		WatchKey key = keys.get(directory.getAbsoluteFile());
+		return key != null && key.isValid();
+	}
+
+	/**
+	 * Starts watching a directory for a listener. Registering the same
+	 * listener for the same directory more than once has no effect.
+	 * 
+	 * @param directory
+	 *            Directory to watch.
+	 * @param listener
+	 *            Listener to notify.
+	 * @return Whether the directory is being watched.
+	 */
+	public boolean register(File directory, Listener listener) {
+		if (service == null || !directory.isDirectory()) {
+			return false;
+		}
+		File dir = directory.getAbsoluteFile();
+		try {
+			synchronized (this) {
+				WatchKey key = keys.get(dir);
+				if (key == null || !key.isValid()) {
+					Path path = dir.toPath();
+					key = path.register(service,
+							StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_DELETE,
+							StandardWatchEventKinds.ENTRY_MODIFY);
+					keys.put(dir, key);
+				}
+				Registration registration = registrations.get(key);
+				if (registration == null) {
+					registration = new Registration(dir);
+					registrations.put(key, registration);
+				}
+				registration.addListener(listener);
+			}
+			return true;
+		} catch (IOException e) {
+			log.info(String.format(
+					"FileWatcher.register(): Unable to watch %s", dir));
+		} catch (ClosedWatchServiceException e) {
+			service = null;
+		}
+		return false;
+	}
+
+	/**
+	 * Stops notifying a listener about a directory. The directory is no
+	 * longer watched, once it has no listeners left.
+	 * 
+	 * @param directory
+	 *            The watched directory.
+	 * @param listener
+	 *            Listener to remove.
+	 */
+	public synchronized void unregister(File directory, Listener listener) {
+		WatchKey key = keys.get(directory.getAbsoluteFile());
+		if (key == null) {
+			return;
+		}
+		Registration registration = registrations.get(key);
+		if (registration == null) {
+			return;
+		}
+		registration.listeners.remove(listener);
+		if (registration.listeners.isEmpty()) {
+			key.cancel();
+			unregister(key, registration);
+		}
+	}
+
+	private void process() {
+		while (true) {
+			WatchKey key;
+			try {
+				key = service.take();
+			} catch (InterruptedException e) {
+				return;
+			} catch (ClosedWatchServiceException e) {
+				return;
+			}
+
+			Registration registration = registrations.get(key);
+			if (registration != null) {
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						registration.fire(registration.directory);
+					} else {
+						Path name = (Path) event.context();
+						registration.fire(new File(registration.directory,
+								name.toString()));
+					}
+				}
+				if (!key.reset()) {
+					unregister(key, registration);
+					registration.fire(registration.directory);
+				}
+			} else {
+				key.pollEvents();
+				key.reset();
+			}
+		}
+	}
+
+	private synchronized void unregister(WatchKey key, Registration registration) {
+		registrations.remove(key);
+		if (keys.get(registration.directory) == key) {
+			keys.remove(registration.directory);
+		}
+	}
+
+	/**
+	 * Listeners, registered for a single watched directory.
+	 */
+	private static class Registration {
+		private final File directory;
+		private final List<Listener> listeners;
+
+		Registration(File directory) {
+			this.directory = directory;
+			this.listeners = new CopyOnWriteArrayList<Listener>();
+		}
+
+		void addListener(Listener listener) {
+			if (!listeners.contains(listener)) {
+				listeners.add(listener);
+			}
+		}
+
+		void fire(File file) {
+			for (Listener listener : listeners) {
+				try {
+					listener.changed(file);
+				} catch (RuntimeException e) {
+					log.error("FileWatcher: Listener failed for " + file, e);
+				}
+			}
+		}
+	}
+}
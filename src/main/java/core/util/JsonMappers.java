@@ -0,0 +1,103 @@
+package core.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectReader;
+import org.codehaus.jackson.map.ObjectWriter;
+
+import core.model.ResourceKind;
+import core.security.ResourceViews;
+
+/**
+ * Registry of shared Jackson mappers. The {@link ObjectMapper} is configured
+ * once and never changed afterwards, so it and the immutable
+ * {@link ObjectReader}s and {@link ObjectWriter}s built from it can be used
+ * from any thread. Reusing them keeps Jackson's serializer and deserializer
+ * caches warm across calls.
+ * 
+ * Readers for all {@link ResourceKind} classes and writers for all
+ * {@link ResourceViews} are built when the class is loaded. Other classes and
+ * views get theirs on first use.
+ * 
+ * @author jani
+ * 
+ */
+public class JsonMappers {
+
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	private static final ObjectWriter defaultWriter = mapper.writer();
+
+	private static final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+	private static final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+
+	static {
+		for (ResourceKind kind : ResourceKind.values()) {
+			getReader(kind.getResourceClass());
+		}
+		Class<?>[] views = new Class<?>[] { ResourceViews.Basic.class,
+				ResourceViews.Public.class, ResourceViews.BeforeStart.class,
+				ResourceViews.AfterStart.class, ResourceViews.AfterEnd.class,
+				ResourceViews.Private.class };
+		for (Class<?> view : views) {
+			getWriter(view);
+		}
+	}
+
+	private JsonMappers() {
+		// static only
+	}
+
+	/**
+	 * Gets the shared {@link ObjectMapper}. It must not be reconfigured.
+	 * 
+	 * @return {@link ObjectMapper}
+	 */
+	public static ObjectMapper getMapper() {
+		return mapper;
+	}
+
+	/**
+	 * Gets the reader for a class.
+	 * 
+	 * @param clazz
+	 *            {@link Class} of read objects.
+	 * @return {@link ObjectReader}
+	 */
+	public static ObjectReader getReader(Class<?> clazz) {
+		ObjectReader res = readers.get(clazz);
+		if (res == null) {
+			res = mapper.reader(clazz);
+			ObjectReader existing = readers.putIfAbsent(clazz, res);
+			if (existing != null) {
+				res = existing;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Gets the writer for a view class.
+	 * 
+	 * @param view
+	 *            {@link Class} used for filtering, or null for no filtering.
+	 * @return {@link ObjectWriter}
+	 */
+	public static ObjectWriter getWriter(Class<?> view) {
+		if (view == null) {
+			return defaultWriter;
+		}
+		ObjectWriter res = writers.get(view);
+		if (res == null) {
+			res = mapper.writerWithView(view);
+			ObjectWriter existing = writers.putIfAbsent(view, res);
+			if (existing != null) {
+				res = existing;
+			}
+		}
+		return res;
+	}
+}
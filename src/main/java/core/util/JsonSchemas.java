@@ -0,0 +1,133 @@
+package core.util;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.jackson.JsonNode;
+import org.eel.kitchen.jsonschema.main.JsonValidationFailureException;
+import org.eel.kitchen.jsonschema.main.JsonValidator;
+import org.eel.kitchen.util.JsonLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of JSON schemas, loaded from class path resources. Every schema is
+ * loaded and parsed only once.
+ * 
+ * A {@link JsonValidator} keeps mutable state in its validation context, so
+ * it must not be used by two threads at once. Each schema therefore keeps a
+ * pool of validators: a thread borrows an idle one, or builds a new one if
+ * none is idle, and returns it afterwards. The pool never grows beyond the
+ * number of concurrent validations.
+ * 
+ * @author jani
+ * 
+ */
+public class JsonSchemas {
+	private static Logger log = LoggerFactory.getLogger(JsonSchemas.class);
+
+	private static final ConcurrentMap<String, Schema> schemas = new ConcurrentHashMap<String, Schema>();
+
+	private JsonSchemas() {
+		// static only
+	}
+
+	/**
+	 * Gets a parsed schema.
+	 * 
+	 * @param schemaResource
+	 *            Class path resource of the schema.
+	 * @return {@link JsonNode} of the schema.
+	 * @throws IOException
+	 *             If the schema cannot be loaded.
+	 */
+	public static JsonNode getSchema(String schemaResource) throws IOException {
+		return getEntry(schemaResource).schema;
+	}
+
+	/**
+	 * Validates JSON node against a cached schema.
+	 * 
+	 * @param json
+	 *            {@link JsonNode} to validate.
+	 * @param schemaResource
+	 *            Class path resource of the schema.
+	 * @return {@link Validator}
+	 */
+	public static Validator validate(JsonNode json, String schemaResource) {
+		Schema schema;
+		try {
+			schema = getEntry(schemaResource);
+		} catch (IOException e) {
+			log.info(String.format(
+					"JsonSchemas.validate(): Unable to load schema %s",
+					schemaResource));
+			Validator res = new Validator();
+			res.addError("jsonerror", "Unable to load schema");
+			return res;
+		}
+
+		JsonValidator validator = schema.idle.poll();
+		if (validator == null) {
+			try {
+				validator = new JsonValidator(schema.schema);
+			} catch (JsonValidationFailureException e) {
+				log.info(String.format(
+						"JsonSchemas.validate(): Invalid schema %s",
+						schemaResource));
+				Validator res = new Validator();
+				res.addError("jsonerror", "Unable to validate json");
+				return res;
+			}
+		}
+		Validator res;
+		try {
+			res = JsonUtil.getErrors(validator.validate(json));
+		} catch (JsonValidationFailureException e) {
+			// a validator, which threw, may be broken and is not reused
+			log.info(String.format(
+					"JsonSchemas.validate(): Unable to validate json with %s",
+					schemaResource));
+			res = new Validator();
+			res.addError("jsonerror", "Unable to validate json");
+			return res;
+		}
+		schema.idle.offer(validator);
+		return res;
+	}
+
+	/**
+	 * Removes all cached schemas.
+	 */
+	public static void clear() {
+		schemas.clear();
+	}
+
+	private static Schema getEntry(String schemaResource) throws IOException {
+		Schema res = schemas.get(schemaResource);
+		if (res == null) {
+			res = new Schema(JsonLoader.fromResource(schemaResource));
+			Schema existing = schemas.putIfAbsent(schemaResource, res);
+			if (existing != null) {
+				res = existing;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * A parsed schema with its idle validators.
+	 */
+	private static class Schema {
+		private final JsonNode schema;
+		private final Queue<JsonValidator> idle;
+
+		Schema(JsonNode schema) {
+			this.schema = schema;
+			this.idle = new ConcurrentLinkedQueue<JsonValidator>();
+		}
+	}
+}
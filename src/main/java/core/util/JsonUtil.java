@@ -1,5 +1,6 @@
 package core.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -7,11 +8,9 @@ import java.io.InputStream;
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
-import org.codehaus.jackson.map.ObjectMapper;
 import org.eel.kitchen.jsonschema.main.JsonValidationFailureException;
 import org.eel.kitchen.jsonschema.main.JsonValidator;
 import org.eel.kitchen.jsonschema.main.ValidationReport;
-import org.eel.kitchen.util.JsonLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,11 +35,10 @@ public class JsonUtil {
 	 * @return T Read object.
 	 */
 	public static <T> T readJsonFile(InputStream stream, Class<T> clazz) {
-		ObjectMapper mapper = new ObjectMapper();
 		T res = null;
 
 		try {
-			res = mapper.readValue(stream, clazz);
+			res = JsonMappers.getReader(clazz).readValue(stream);
 		} catch (JsonParseException e) {
 			log.info("JsonUtils.readJsonFile(): Unable to parse stream");
 		} catch (JsonMappingException e) {
@@ -64,11 +62,10 @@ public class JsonUtil {
 	 * @return T Read object.
 	 */
 	public static <T> T readJsonFile(File file, Class<T> clazz) {
-		ObjectMapper mapper = new ObjectMapper();
 		T res = null;
 
 		try {
-			res = mapper.readValue(file, clazz);
+			res = JsonMappers.getReader(clazz).readValue(file);
 		} catch (JsonParseException e) {
 			log.info(String.format(
 					"JsonUtils.readJsonFile(): Unable to parse %s",
@@ -98,11 +95,10 @@ public class JsonUtil {
 	 * @return T Read object.
 	 */
 	public static <T> T readJsonString(String json, Class<T> clazz) {
-		ObjectMapper mapper = new ObjectMapper();
 		T res = null;
 
 		try {
-			res = mapper.readValue(json, clazz);
+			res = JsonMappers.getReader(clazz).readValue(json);
 		} catch (JsonParseException e) {
 			log.info("JsonUtils.readJsonString(): Unable to parse stream");
 		} catch (JsonMappingException e) {
@@ -115,7 +111,8 @@ public class JsonUtil {
 	}
 
 	/**
-	 * Writes an object as a JSON to a file
+	 * Writes an object as a JSON to a file. The file is replaced atomically,
+	 * see {@link FileUtil#saveStream(InputStream, File, boolean)}.
 	 * 
 	 * @param file
 	 *            Destination file.
@@ -124,16 +121,21 @@ public class JsonUtil {
 	 * @return Whether successful.
 	 */
 	public static boolean writeJsonFile(File file, Object o) {
-		ObjectMapper mapper = new ObjectMapper();
+		boolean res;
 		try {
-			mapper.writeValue(file, o);
+			// serialized first, so a failure does not leave a broken file
+			byte[] json = JsonMappers.getWriter(null).writeValueAsBytes(o);
+			res = FileUtil.saveStream(new ByteArrayInputStream(json), file,
+					true).isValid();
 		} catch (Exception e) {
+			res = false;
+		}
+		if (!res) {
 			log.info(String.format(
 					"JsonUtils.writeJsonFile(): Unable to write %s",
 					file.getPath()));
-			return false;
 		}
-		return true;
+		return res;
 	}
 
 	/**
@@ -158,14 +160,8 @@ public class JsonUtil {
 	 * @return JSON string.
 	 */
 	public static String objectToJsonString(Object o, Class<?> view) {
-		ObjectMapper mapper = new ObjectMapper();
-
-		// mapper.configure(SerializationConfig.Feature.DEFAULT_VIEW_INCLUSION,false);
 		try {
-			if (view != null) {
-				return mapper.writerWithView(view).writeValueAsString(o);
-			}
-			return mapper.writeValueAsString(o);
+			return JsonMappers.getWriter(view).writeValueAsString(o);
 		} catch (Exception e) {
 			log.info(String
 					.format("JsonUtils.objectToJsonString(): Unable to write to string"));
@@ -181,10 +177,8 @@ public class JsonUtil {
 	 * @return {@link JsonNode}
 	 */
 	public static JsonNode objectToJson(Object o) {
-
-		ObjectMapper mapper = new ObjectMapper();
 		try {
-			return mapper.valueToTree(o);
+			return JsonMappers.getMapper().valueToTree(o);
 		} catch (Exception e) {
 			log.error(String
 					.format("JsonUtils.objectToJson(): Unable to write json"));
@@ -193,7 +187,8 @@ public class JsonUtil {
 	}
 
 	/**
-	 * Validates object against a JSON schema.
+	 * Validates object against a JSON schema. Schemas are loaded once and
+	 * cached by {@link JsonSchemas}.
 	 * 
 	 * @param o
 	 *            object to validate.
@@ -203,18 +198,7 @@ public class JsonUtil {
 	 */
 	public static Validator validateJson(Object o, String schemaResource) {
 		JsonNode json = objectToJson(o);
-
-		JsonNode schema;
-		try {
-			schema = JsonLoader.fromResource(schemaResource);
-			return validateJson(json, schema);
-		} catch (IOException e) {
-			log.info(String
-					.format("JsonUtils.validateJson(): Unable to load schema json"));
-			Validator res = new Validator();
-			res.addError("jsonerror", "Unable to load schema");
-			return res;
-		}
+		return JsonSchemas.validate(json, schemaResource);
 	}
 
 	/**
@@ -227,25 +211,52 @@ public class JsonUtil {
 	 * @return {@link Validator}.
 	 */
 	public static Validator validateJson(JsonNode json, JsonNode schema) {
-		Validator res = new Validator();
-
-		JsonValidator validator;
 		try {
-			validator = new JsonValidator(schema);
-
-			ValidationReport report;
-
-			report = validator.validate(json);
+			return validateJson(json, new JsonValidator(schema));
+		} catch (JsonValidationFailureException e) {
+			Validator res = new Validator();
+			res.addError("jsonerror", "Unable to validate json");
+			log.info(String
+					.format("JsonUtils.validateJson(): Unable to validate json"));
+			return res;
+		}
+	}
 
-			int i = 0;
-			for (String s : report.getMessages()) {
-				res.addError("json_error_" + i, s);
-				i++;
-			}
+	/**
+	 * Validates JSON node with a {@link JsonValidator}. The validator must not
+	 * be used by another thread at the same time.
+	 * 
+	 * @param json
+	 *            {@link JsonNode} to validate.
+	 * @param validator
+	 *            {@link JsonValidator} for the schema.
+	 * @return {@link Validator}.
+	 */
+	public static Validator validateJson(JsonNode json, JsonValidator validator) {
+		try {
+			return getErrors(validator.validate(json));
 		} catch (JsonValidationFailureException e) {
+			Validator res = new Validator();
 			res.addError("jsonerror", "Unable to validate json");
 			log.info(String
 					.format("JsonUtils.validateJson(): Unable to validate json"));
+			return res;
+		}
+	}
+
+	/**
+	 * Converts the messages of a validation report to errors.
+	 * 
+	 * @param report
+	 *            {@link ValidationReport}
+	 * @return {@link Validator}.
+	 */
+	static Validator getErrors(ValidationReport report) {
+		Validator res = new Validator();
+		int i = 0;
+		for (String s : report.getMessages()) {
+			res.addError("json_error_" + i, s);
+			i++;
 		}
 		return res;
 	}
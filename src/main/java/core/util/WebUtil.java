@@ -2,10 +2,12 @@ package core.util;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -26,6 +28,8 @@ import org.slf4j.LoggerFactory;
 
 import core.config.Constants;
 import core.config.WebConfig;
+import core.web.util.ByteRange;
+import core.web.util.Download;
 import core.web.util.FileUpload;
 
 /**
@@ -47,12 +51,7 @@ public class WebUtil {
 	 */
 	public static void sendFile(File file, HttpServletResponse response)
 			throws IOException {
-		FileInputStream stream = new FileInputStream(file);
-		try {
-			sendFile(stream, file.getName(), response);
-		} finally {
-			stream.close();
-		}
+		sendDownload(Download.ofFile(file), file.getName(), response);
 	}
 
 	/**
@@ -95,8 +94,132 @@ public class WebUtil {
 	 */
 	public static void sendDirectory(File file, HttpServletResponse response)
 			throws IOException {
-		byte[] zip = FileUtil.createZip(file);
-		sendFile(zip, file.getName() + Constants.ZIP_FILE_EXTENSION, response);
+		sendDownload(Download.ofFile(file), file.getName()
+				+ Constants.ZIP_FILE_EXTENSION, response);
+	}
+
+	/**
+	 * Sends a {@link Download} to a response. The download is written
+	 * directly to the response stream, so the client gets the first bytes
+	 * before the whole download is read.
+	 * 
+	 * @param download
+	 * @param filename
+	 * @param response
+	 * @throws IOException
+	 */
+	public static void sendDownload(Download download, String filename,
+			HttpServletResponse response) throws IOException {
+		sendDownload(download, filename, null, response);
+	}
+
+	/**
+	 * Sends a {@link Download} to a response. Plain files are transferred by
+	 * the file channel without copying them through the heap, and a single
+	 * byte range of the Range header is honored with 206 Partial Content.
+	 * 
+	 * @param download
+	 * @param filename
+	 * @param request
+	 *            Request with the optional Range header, may be null.
+	 * @param response
+	 * @throws IOException
+	 */
+	public static void sendDownload(Download download, String filename,
+			HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		response.setContentType(WebConfig.DOWNLOAD_CONTENT_TYPE);
+		response.setHeader("Content-Disposition",
+				String.format("attachment;filename=\"%s\"", filename));
+
+		FileChannel channel = download.openChannel();
+		if (channel != null) {
+			try {
+				sendFileRange(channel, request, response);
+			} finally {
+				channel.close();
+			}
+			return;
+		}
+
+		long length = download.getLength();
+		if (length >= 0) {
+			response.setHeader("Content-Length", Long.toString(length));
+		}
+
+		ServletOutputStream output = response.getOutputStream();
+		download.writeTo(output);
+		output.close();
+	}
+
+	private static void sendFileRange(FileChannel channel,
+			HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		long length = channel.size();
+		response.setHeader("Accept-Ranges", ByteRange.UNIT);
+
+		ByteRange range = null;
+		if (request != null
+				&& isRangeCurrent(request.getHeader("If-Range"),
+						response.getHeader("ETag"),
+						response.getHeader("Last-Modified"))) {
+			range = ByteRange.parse(request.getHeader("Range"), length);
+		}
+		if (range == ByteRange.UNSATISFIABLE) {
+			response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			response.setHeader("Content-Range",
+					range.toContentRange(length));
+			return;
+		}
+
+		long position = 0;
+		long count = length;
+		if (range != null) {
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader("Content-Range",
+					range.toContentRange(length));
+			position = range.getStart();
+			count = range.getLength();
+		}
+		response.setHeader("Content-Length", Long.toString(count));
+
+		ServletOutputStream output = response.getOutputStream();
+		WritableByteChannel target = Channels.newChannel(output);
+		while (count > 0) {
+			long sent = channel.transferTo(position, count, target);
+			if (sent <= 0) {
+				break;
+			}
+			position += sent;
+			count -= sent;
+		}
+		output.close();
+	}
+
+	/**
+	 * Checks the If-Range header of a request against the validators, which
+	 * were set on the response. A range of a changed file would mix old and
+	 * new content, so the whole file is sent instead. Only strong entity tags
+	 * and exact dates match, a missing validator never matches.
+	 * 
+	 * @param ifRange
+	 *            If-Range header or null.
+	 * @param etag
+	 *            ETag of the response or null.
+	 * @param lastModified
+	 *            Last-Modified header of the response or null.
+	 * @return Whether the Range header applies.
+	 */
+	static boolean isRangeCurrent(String ifRange, String etag,
+			String lastModified) {
+		if (ifRange == null) {
+			return true;
+		}
+		String value = ifRange.trim();
+		if (value.startsWith("\"") || value.startsWith("W/")) {
+			return etag != null && value.equals(etag);
+		}
+		return lastModified != null && value.equals(lastModified.trim());
 	}
 
 	/**
@@ -129,7 +252,7 @@ public class WebUtil {
 		response.setHeader("Content-Disposition",
 				String.format("attachment;filename=\"%s\"", filename));
 
-		final int bufferSize = 2 ^ 12;
+		final int bufferSize = 1 << 12;
 
 		ServletOutputStream output = response.getOutputStream();
 		byte[] outputByte = new byte[bufferSize];
@@ -0,0 +1,58 @@
+package core.util;
+
+import java.io.File;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks for writers of the repository. Every directory maps to one of
+ * a fixed number of locks, so writes to files of the same resource directory
+ * are serialized, while unrelated resources are written concurrently, except
+ * for the rare case when they share a stripe. The locks are reentrant, so a
+ * writer holding the lock of a directory may call other writers of the same
+ * directory.
+ * 
+ * The locks only coordinate writers inside this process. Readers need no
+ * locking, as files are replaced by atomic renames.
+ * 
+ * @author jani
+ * 
+ */
+public class WriteLocks {
+
+	private static final int STRIPES = 64;
+
+	private static final Lock[] locks = new Lock[STRIPES];
+
+	static {
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Gets the lock for writing in a directory.
+	 * 
+	 * @param directory
+	 *            Resource directory.
+	 * @return {@link Lock}
+	 */
+	public static Lock forDirectory(File directory) {
+		int hash = directory.getAbsoluteFile().hashCode();
+		// spread the bits, as paths differ mostly at the end
+		hash ^= (hash >>> 16);
+		return locks[(hash & 0x7fffffff) % STRIPES];
+	}
+
+	/**
+	 * Gets the lock for writing a file, i.e. the lock of its directory.
+	 * 
+	 * @param file
+	 *            File to write.
+	 * @return {@link Lock}
+	 */
+	public static Lock forFile(File file) {
+		File parent = file.getAbsoluteFile().getParentFile();
+		return forDirectory(parent == null ? file : parent);
+	}
+}
@@ -5,18 +5,19 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import core.browse.ChildListing;
 import core.browse.Node;
 import core.config.ResourceConfig;
 import core.model.Resource;
 import core.model.ResourceKind;
 import core.model.ResourceUtil;
 import core.security.AccessRight;
-import core.security.ResourceGrants;
 import core.util.CollectionUtil;
 import core.util.Validator;
 import core.util.WebUtil;
 import core.web.util.Action;
 import core.web.util.Breadcrumbs;
+import core.web.util.Download;
 import core.web.util.PostState;
 import core.web.util.StatusMessage;
 import core.web.util.FileUpload;
@@ -43,7 +44,7 @@ public class BrowseController extends Controller {
 		files = new HashMap<String, FileUpload>();
 
 		String path = (String) getRequest().getAttribute("path");
-		String login = getServlet().getCurrentLogin();
+		String login = getContext().getCurrentLogin();
 		node = new Node(getServlet().getConfig().getSeriesRoot(), path, login);
 
 		breadcrumbs = new Breadcrumbs();
@@ -123,11 +124,12 @@ public class BrowseController extends Controller {
 
 	private void download() {
 		boolean redirect = true;
-		byte[] file = node.getDownload();
+		Download download = node.openDownload();
 		String filename = node.getDownloadFilename();
-		if (file != null) {
+		if (download != null) {
 			try {
-				WebUtil.sendFile(file, filename, getResponse());
+				WebUtil.sendDownload(download, filename, getRequest(),
+						getResponse());
 				setRenderView(false);
 				redirect = false;
 			} catch (IOException e) {
@@ -199,7 +201,7 @@ public class BrowseController extends Controller {
 	private String delete(StatusMessage status) {
 		String path = post.get("path");
 		Node node = new Node(getServlet().getConfig().getSeriesRoot(), path,
-				getServlet().getCurrentLogin());
+				getContext().getCurrentLogin());
 		Validator validator = node.delete();
 		status.setFromValidator(validator, "Resource successfully deleted");
 		if (validator.isValid()) {
@@ -214,16 +216,11 @@ public class BrowseController extends Controller {
 		AccessRight access = node.getAccess();
 		boolean viewFull = access.includes(AccessRight.VIEW_FULL);
 
-		List<Resource> list = node.loadChildResources();
-
-		Map<String, ResourceGrants> grantsMap = ResourceGrants.createMap(
-				getServlet().getConfig().getSeriesRoot(), node
-						.getResourceDirectory(), list, getServlet()
-						.getCurrentLogin());
+		ChildListing listing = node.loadChildListing();
 
 		getView().put("hasViewFull", viewFull);
-		getView().put("list", list);
-		getView().put("grants", grantsMap);
+		getView().put("list", listing.getResources());
+		getView().put("grants", listing.getGrants());
 	}
 
 	private void viewResource(Action action, Resource posted) {
@@ -241,18 +238,13 @@ public class BrowseController extends Controller {
 		Resource resource = (posted == null ? current : posted);
 
 		if (view && resource != null) {
-			List<Resource> list = node.loadChildResources();
-
-			Map<String, ResourceGrants> grantsMap = ResourceGrants.createMap(
-					getServlet().getConfig().getSeriesRoot(), node
-							.getResourceDirectory(), list, getServlet()
-							.getCurrentLogin());
+			ChildListing listing = node.loadChildListing();
 
-			getView().put("list", list);
-			getView().put("grants", grantsMap);
+			getView().put("list", listing.getResources());
+			getView().put("grants", listing.getGrants());
 			getView().put("resourcePath", node.getResourcePath());
 
-			getView().put("files", node.getFiles());
+			getView().put("files", node.getFileEntries());
 			getView().put("node", node);
 		}
 		getView().put("hasView", view);
@@ -5,6 +5,7 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import core.web.servlet.BaseServlet;
+import core.web.servlet.RequestContext;
 import core.web.view.View;
 
 /**
@@ -15,9 +16,7 @@ import core.web.view.View;
  */
 public abstract class Controller {
 	private BaseServlet servlet;
-	private HttpServletRequest request;
-	private HttpServletResponse response;
-	private View view;
+	private RequestContext context;
 
 	private String name;
 	private String redirect;
@@ -54,18 +53,13 @@ public abstract class Controller {
 	 * 
 	 * @param name
 	 * @param servlet
-	 * @param request
-	 * @param response
-	 * @param view
+	 * @param context
 	 */
-	public void init(String name, BaseServlet servlet,
-			HttpServletRequest request, HttpServletResponse response, View view) {
+	public void init(String name, BaseServlet servlet, RequestContext context) {
 
 		this.name = name;
 		this.servlet = servlet;
-		this.request = request;
-		this.response = response;
-		this.view = view;
+		this.context = context;
 
 		init();
 	}
@@ -132,13 +126,22 @@ public abstract class Controller {
 		return servlet;
 	}
 
+	/**
+	 * Gets the context of the request.
+	 * 
+	 * @return {@link RequestContext}
+	 */
+	public RequestContext getContext() {
+		return context;
+	}
+
 	/**
 	 * Gets the request
 	 * 
 	 * @return {@link HttpServletRequest}
 	 */
 	public HttpServletRequest getRequest() {
-		return request;
+		return context.getRequest();
 	}
 
 	/**
@@ -147,7 +150,7 @@ public abstract class Controller {
 	 * @return {@link HttpServletResponse}
 	 */
 	public HttpServletResponse getResponse() {
-		return response;
+		return context.getResponse();
 	}
 
 	/**
@@ -156,7 +159,7 @@ public abstract class Controller {
 	 * @return {@link View}
 	 */
 	public View getView() {
-		return view;
+		return context.getView();
 	}
 
 	/**
@@ -21,11 +21,11 @@ public class ProfileController extends Controller {
 		PostState state = PostState.get(getSession());
 		getView().put(state.getAll());
 
-		if (getServlet().getCurrentUser() == null) {
+		if (getContext().getCurrentUser() == null) {
 			setRedirect("/registration");
 		} else {
 			User current = state.get("user");
-			User user = (current == null ? getServlet().getCurrentUser()
+			User user = (current == null ? getContext().getCurrentUser()
 					: current);
 
 			getView().put("user", user);
@@ -35,7 +35,7 @@ public class ProfileController extends Controller {
 
 	@Override
 	public void post() {
-		User user = getServlet().getCurrentUser();
+		User user = getContext().getCurrentUser();
 
 		if (user == null) {
 			setRedirect("/registration");
@@ -10,10 +10,12 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import core.browse.ResourceImport;
 import core.config.ConfigurationManager;
 import core.config.WebConfig;
 import core.model.User;
 import core.security.UserManager;
+import core.util.BlobStore;
 import core.web.controller.Controller;
 import core.web.controller.BrowseController;
 import core.web.controller.ControllerName;
@@ -22,10 +24,13 @@ import core.web.controller.LogoutController;
 import core.web.controller.PageController;
 import core.web.controller.ProfileController;
 import core.web.controller.RegistrationController;
-import core.web.view.View;
+import core.web.util.ArchiveCache;
+import core.web.view.Templates;
 
 /**
- * Base servlet. Contains basic functionality.
+ * Base servlet. Contains basic functionality. The servlet is shared by all
+ * request threads, the state of each request is kept in its
+ * {@link RequestContext}.
  * 
  * @author jani
  * 
@@ -33,10 +38,6 @@ import core.web.view.View;
 public abstract class BaseServlet extends HttpServlet {
 
 	private long servletStartTime;
-	private long requestStartTime;
-	private String httpRoot;
-	private String appRoot;
-	private boolean debug;
 	private ConfigurationManager config = new ConfigurationManager();
 	private UserManager userManager = new UserManager(config.getUsersRoot());
 
@@ -44,13 +45,16 @@ public abstract class BaseServlet extends HttpServlet {
 
 	private final Map<String, Class<? extends Controller>> controllerMap = new HashMap<String, Class<? extends Controller>>();
 
-	private View view;
-
-	private User currentUser = null;
-
 	@Override
 	public void init() {
 		servletStartTime = System.nanoTime();
+		ArchiveCache.getInstance().configure(config.getArchiveCacheDir(),
+				config.getArchiveCacheSize());
+		BlobStore.getInstance().configure(config.getBlobStoreDir());
+		BlobStore.getInstance().collect();
+		ResourceImport.sweep(config.getSeriesRoot());
+		Templates.getInstance().configure(getServletContext(),
+				config.getTemplateUpdateDelay());
 
 		registerController(PageController.class);
 		registerController(RegistrationController.class);
@@ -64,21 +68,12 @@ public abstract class BaseServlet extends HttpServlet {
 	public void service(HttpServletRequest request, HttpServletResponse response)
 			throws ServletException, IOException {
 		request.setCharacterEncoding("UTF-8");
-		requestStartTime = System.nanoTime();
-		String requestUrl = request.getRequestURL().toString();
-		httpRoot = requestUrl.substring(0, requestUrl.length()
-				- request.getServletPath().length());
-		appRoot = request.getContextPath();
-		debug = config.getDebug();
-		view = new View(getServletContext());
 
 		String username = (String) request.getSession().getAttribute(
 				WebConfig.SESSION_KEY_LOGIN);
-		currentUser = userManager.loadUser(username);
-
-		view.put("debug", debug);
-		view.put("httpRoot", httpRoot);
-		view.put("appRoot", appRoot);
+		User currentUser = userManager.loadUser(username);
+		RequestContext.attach(request, response, config.getDebug(),
+				currentUser);
 
 		super.service(request, response);
 	}
@@ -89,17 +84,16 @@ public abstract class BaseServlet extends HttpServlet {
 		controllerMap.put(annotation.value(), clazz);
 	}
 
-	protected Controller getController(HttpServletRequest request,
-			HttpServletResponse response) {
-		String controllerName = (String) request.getAttribute("controller");
+	protected Controller getController(RequestContext context) {
+		String controllerName = (String) context.getRequest().getAttribute(
+				"controller");
 
-		Controller res = getController(controllerName, request, response);
+		Controller res = getController(controllerName, context);
 
 		return res;
 	}
 
-	protected Controller getController(String name, HttpServletRequest request,
-			HttpServletResponse response) {
+	protected Controller getController(String name, RequestContext context) {
 		Class<? extends Controller> clazz = controllerMap.get(name);
 		Controller res = null;
 		try {
@@ -107,17 +101,18 @@ public abstract class BaseServlet extends HttpServlet {
 		} catch (Exception e) {
 			return null;
 		}
-		res.init(name, this, request, response, getView());
+		res.init(name, this, context);
 		return res;
 	}
 
 	/**
-	 * Gets the time since the request started.
+	 * Gets the context of a request.
 	 * 
-	 * @return Time in seconds
+	 * @param request
+	 * @return {@link RequestContext}
 	 */
-	public double requestElapsedTime() {
-		return (System.nanoTime() - requestStartTime) / Math.pow(10, 9);
+	protected RequestContext getContext(HttpServletRequest request) {
+		return RequestContext.get(request);
 	}
 
 	/**
@@ -129,51 +124,6 @@ public abstract class BaseServlet extends HttpServlet {
 		return (System.nanoTime() - servletStartTime) / Math.pow(10, 9);
 	}
 
-	/**
-	 * Gets the request schema (e.g. "http://")
-	 * 
-	 * @return String
-	 */
-	public String getHttpRoot() {
-		return httpRoot;
-	}
-
-	/**
-	 * Gets the application root.
-	 * 
-	 * @return String
-	 */
-	public String getAppRoot() {
-		return appRoot;
-	}
-
-	/**
-	 * Gets the view.
-	 * 
-	 * @return {@link View}
-	 */
-	public View getView() {
-		return view;
-	}
-
-	/**
-	 * Gets if application is in debug mode.
-	 * 
-	 * @return Whether in debug.
-	 */
-	public boolean isDebug() {
-		return debug;
-	}
-
-	/**
-	 * Gets the currently logged user.
-	 * 
-	 * @return {@link User}.
-	 */
-	public User getCurrentUser() {
-		return currentUser;
-	}
-
 	/**
 	 * Gets the {@link ConfigurationManager}.
 	 * 
@@ -192,15 +142,6 @@ public abstract class BaseServlet extends HttpServlet {
 		return userManager;
 	}
 
-	/**
-	 * Gets the currently logged user login.
-	 * 
-	 * @return String
-	 */
-	public String getCurrentLogin() {
-		return currentUser == null ? null : currentUser.getLogin();
-	}
-
 	/**
 	 * Gets a value from the session (if exists) and immediately removes it.
 	 * 
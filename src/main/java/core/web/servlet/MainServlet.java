@@ -9,6 +9,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import core.config.WebConfig;
 import core.web.controller.Controller;
+import core.web.view.View;
 import core.web.view.ViewException;
 
 /**
@@ -25,7 +26,8 @@ public class MainServlet extends BaseServlet {
 	@Override
 	protected void doGet(HttpServletRequest request,
 			HttpServletResponse response) throws ServletException, IOException {
-		Controller controller = getController(request, response);
+		RequestContext context = getContext(request);
+		Controller controller = getController(context);
 
 		assert (controller != null);
 
@@ -44,17 +46,18 @@ public class MainServlet extends BaseServlet {
 				htmlTitle = String.format("%s - %s", htmlTitle,
 						controller.getPageTitle());
 			}
-			getView().put("htmlTitle", htmlTitle);
+			View view = context.getView();
+			view.put("htmlTitle", htmlTitle);
 
-			getView().put("controllerName", controller.getName());
+			view.put("controllerName", controller.getName());
 
-			getView().put("requestElapsedTime", requestElapsedTime());
-			getView().put("servletElapsedTime", servletElapsedTime());
+			view.put("requestElapsedTime", context.elapsedTime());
+			view.put("servletElapsedTime", servletElapsedTime());
 
-			getView().put("currentUser", getCurrentUser());
+			view.put("currentUser", context.getCurrentUser());
 
 			try {
-				String res = getView().parse();
+				String res = view.parse();
 				response.getWriter().print(res);
 			} catch (ViewException e) {
 				response.getWriter().print(e.getMessage());
@@ -65,7 +68,8 @@ public class MainServlet extends BaseServlet {
 	@Override
 	protected void doPost(HttpServletRequest request,
 			HttpServletResponse response) throws ServletException, IOException {
-		Controller controller = getController(request, response);
+		RequestContext context = getContext(request);
+		Controller controller = getController(context);
 
 		assert (controller != null);
 
@@ -0,0 +1,166 @@
+package core.web.servlet;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import core.model.User;
+import core.web.view.View;
+
+/**
+ * State of a single request. Servlets are shared by all threads of the
+ * container, so everything specific to a request is kept here and passed to
+ * the controller and the view instead of being stored in the servlet.
+ * 
+ * @author jani
+ * 
+ */
+public class RequestContext {
+	private static final String ATTRIBUTE = RequestContext.class.getName();
+
+	private final HttpServletRequest request;
+	private final HttpServletResponse response;
+	private final long startTime;
+	private final String httpRoot;
+	private final String appRoot;
+	private final boolean debug;
+	private final User currentUser;
+	private final View view;
+
+	/**
+	 * Creates the context of a request.
+	 * 
+	 * @param request
+	 * @param response
+	 * @param debug
+	 *            Whether the application is in debug mode.
+	 * @param currentUser
+	 *            The logged user or null.
+	 */
+	private RequestContext(HttpServletRequest request,
+			HttpServletResponse response, boolean debug, User currentUser) {
+		this.request = request;
+		this.response = response;
+		this.startTime = System.nanoTime();
+		String requestUrl = request.getRequestURL().toString();
+		this.httpRoot = requestUrl.substring(0, requestUrl.length()
+				- request.getServletPath().length());
+		this.appRoot = request.getContextPath();
+		this.debug = debug;
+		this.currentUser = currentUser;
+		this.view = new View();
+
+		view.put("debug", debug);
+		view.put("httpRoot", httpRoot);
+		view.put("appRoot", appRoot);
+	}
+
+	/**
+	 * Creates the context of a request and attaches it to the request.
+	 * 
+	 * @param request
+	 * @param response
+	 * @param debug
+	 *            Whether the application is in debug mode.
+	 * @param currentUser
+	 *            The logged user or null.
+	 * @return The attached {@link RequestContext}.
+	 */
+	public static RequestContext attach(HttpServletRequest request,
+			HttpServletResponse response, boolean debug, User currentUser) {
+		RequestContext res = new RequestContext(request, response, debug,
+				currentUser);
+		request.setAttribute(ATTRIBUTE, res);
+		return res;
+	}
+
+	/**
+	 * Gets the context attached to a request.
+	 * 
+	 * @param request
+	 * @return {@link RequestContext} or null.
+	 */
+	public static RequestContext get(HttpServletRequest request) {
+		return (RequestContext) request.getAttribute(ATTRIBUTE);
+	}
+
+	/**
+	 * Gets the request.
+	 * 
+	 * @return {@link HttpServletRequest}
+	 */
+	public HttpServletRequest getRequest() {
+		return request;
+	}
+
+	/**
+	 * Gets the response.
+	 * 
+	 * @return {@link HttpServletResponse}
+	 */
+	public HttpServletResponse getResponse() {
+		return response;
+	}
+
+	/**
+	 * Gets the time since the request started.
+	 * 
+	 * @return Time in seconds
+	 */
+	public double elapsedTime() {
+		return (System.nanoTime() - startTime) / Math.pow(10, 9);
+	}
+
+	/**
+	 * Gets the request schema (e.g. "http://")
+	 * 
+	 * @return String
+	 */
+	public String getHttpRoot() {
+		return httpRoot;
+	}
+
+	/**
+	 * Gets the application root.
+	 * 
+	 * @return String
+	 */
+	public String getAppRoot() {
+		return appRoot;
+	}
+
+	/**
+	 * Gets if application is in debug mode.
+	 * 
+	 * @return Whether in debug.
+	 */
+	public boolean isDebug() {
+		return debug;
+	}
+
+	/**
+	 * Gets the currently logged user.
+	 * 
+	 * @return {@link User}.
+	 */
+	public User getCurrentUser() {
+		return currentUser;
+	}
+
+	/**
+	 * Gets the currently logged user login.
+	 * 
+	 * @return String
+	 */
+	public String getCurrentLogin() {
+		return currentUser == null ? null : currentUser.getLogin();
+	}
+
+	/**
+	 * Gets the view of the request.
+	 * 
+	 * @return {@link View}
+	 */
+	public View getView() {
+		return view;
+	}
+}
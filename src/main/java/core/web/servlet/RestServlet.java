@@ -1,8 +1,10 @@
 package core.web.servlet;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,24 +15,41 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.map.ObjectWriter;
+import org.codehaus.jackson.util.JsonGeneratorDelegate;
+import org.codehaus.jackson.util.TokenBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import core.browse.Node;
+import core.browse.NodeResolver;
 import core.browse.NodeType;
+import core.browse.NodeVersion;
+import core.browse.ResourceImport;
 import core.config.ConfigurationManager;
 import core.config.RestConfig;
 import core.config.WebConfig;
 import core.model.Resource;
 import core.model.ResourceKind;
 import core.model.User;
+import core.security.ResourceViews;
 import core.security.UserManager;
+import core.util.BlobStore;
 import core.util.CollectionUtil;
+import core.util.DirectoryIndex;
+import core.util.JsonMappers;
 import core.util.JsonUtil;
 import core.util.Parser;
 import core.util.StringUtil;
 import core.util.Validator;
 import core.util.WebUtil;
+import core.web.util.ArchiveCache;
+import core.web.util.Download;
+import core.web.util.FileUpload;
 
 /**
  * Entry point for REST service.
@@ -79,6 +98,11 @@ import core.util.WebUtil;
  * <li>[resource_subdirectory_path] e.g. /series1/contest2/_files/test - creates
  * a subdirectory.</li>
  * 
+ * <li>/_batch - runs a JSON array of operations in order, under a single
+ * authentication. Each operation has a "method" and a "path" and is handled
+ * like the single request. The response lists a "status" and an "error" (if
+ * any) of every operation.</li>
+ * 
  * DELETE method:
  * 
  * <li>[any_path] e.g. /series1/contest2 - deletes the given path (recursive if
@@ -91,8 +115,34 @@ import core.util.WebUtil;
 public class RestServlet extends HttpServlet {
 	private Logger log = LoggerFactory.getLogger(JsonUtil.class);
 	private static final long serialVersionUID = -6732935281351769883L;
-	private ConfigurationManager config = new ConfigurationManager();
-	private UserManager userManager = new UserManager(config.getUsersRoot());
+	private final ConfigurationManager config;
+	private final UserManager userManager;
+
+	/**
+	 * Creates the servlet with the configuration of the config file.
+	 */
+	public RestServlet() {
+		this(new ConfigurationManager());
+	}
+
+	/**
+	 * Creates the servlet with the given configuration.
+	 * 
+	 * @param config
+	 */
+	RestServlet(ConfigurationManager config) {
+		this.config = config;
+		this.userManager = new UserManager(config.getUsersRoot());
+	}
+
+	@Override
+	public void init() {
+		ArchiveCache.getInstance().configure(config.getArchiveCacheDir(),
+				config.getArchiveCacheSize());
+		BlobStore.getInstance().configure(config.getBlobStoreDir());
+		BlobStore.getInstance().collect();
+		ResourceImport.sweep(config.getSeriesRoot());
+	}
 
 	@Override
 	public void service(HttpServletRequest request, HttpServletResponse response)
@@ -107,7 +157,6 @@ public class RestServlet extends HttpServlet {
 		}
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
 	protected void doGet(HttpServletRequest request,
 			HttpServletResponse response) throws ServletException, IOException {
@@ -122,8 +171,11 @@ public class RestServlet extends HttpServlet {
 			path = CollectionUtil.join(parts, Node.PATH_SEPARATOR);
 			Node node = new Node(config.getSeriesRoot(), path, login);
 			if (node.getFile().isDirectory()) {
-				byte[] file = node.getDownload();
-				sendFile(response, node.getDownloadFilename(), file);
+				if (isNotModified(request, response, node, "zip")) {
+					return;
+				}
+				Download file = node.openDownload();
+				sendFile(request, response, node.getDownloadFilename(), file);
 			} else {
 				sendUnknown(response);
 			}
@@ -131,46 +183,16 @@ public class RestServlet extends HttpServlet {
 			Node node = new Node(config.getSeriesRoot(), path, login);
 
 			if (node.getFile().isFile()) {
-				byte[] file = node.getDownload();
-				sendFile(response, node.getDownloadFilename(), file);
-			} else {
-				// building response json object
-				Map<String, Object> res = new HashMap<String, Object>();
-				if (node.getResouceKind() != ResourceKind.PROBLEM) {
-					// fetching children
-					List<Map<String, String>> children = new ArrayList<Map<String, String>>();
-					for (Resource r : node.loadChildResources()) {
-						Map map = JsonUtil.readJsonString(r.getBasicInfoJson(),
-								HashMap.class);
-						map.put("id", r.getId());
-						children.add(map);
-					}
-					res.put("children", children);
+				if (isNotModified(request, response, node, "file")) {
+					return;
 				}
-				if (!node.isRoot()) {
-					// fetching resource descriptor
-					Map resourceMap = new HashMap();
-					Resource resource = node.getResouce();
-					if (resource != null) {
-						String json = resource.getJsonString(node.getAccess());
-						resourceMap = JsonUtil.readJsonString(json, Map.class);
-					}
-					res.put(node.getResouceKind().getName(), resourceMap);
-
-					// fetching additional files
-					List<Map<String, Object>> files = new ArrayList<Map<String, Object>>();
-					for (File file : node.getFiles()) {
-						Map<String, Object> f = new HashMap<String, Object>();
-						f.put("name", file.getName());
-						f.put("size", file.length());
-						f.put("is_dir", file.isDirectory());
-						files.add(f);
-					}
-
-					res.put("files", files);
+				Download file = node.openDownload();
+				sendFile(request, response, node.getDownloadFilename(), file);
+			} else {
+				if (isNotModified(request, response, node, "json")) {
+					return;
 				}
-
-				sendJson(response, RestConfig.HTTP_OK, res);
+				sendListing(response, node);
 			}
 		}
 	}
@@ -182,6 +204,12 @@ public class RestServlet extends HttpServlet {
 
 		String path = (String) request.getAttribute("path");
 		path = (path == null ? "" : path);
+		List<String> parts = Node.splitPath(path);
+		if (parts.size() == 1
+				&& RestConfig.BATCH_URI_PREFIX.equals(parts.get(0))) {
+			doBatch(request, response, login);
+			return;
+		}
 
 		Node node = new Node(config.getSeriesRoot(), path, login);
 
@@ -189,12 +217,7 @@ public class RestServlet extends HttpServlet {
 		if (name == null) {
 			sendError(response, "Name not supplied.");
 		} else {
-			Validator res;
-			if (node.getType() == NodeType.SYSTEM_DIRECTORY) {
-				res = node.addDirectory(name);
-			} else {
-				res = node.addResource(name);
-			}
+			Validator res = create(node, name);
 			if (res.isValid()) {
 				sendCreated(response);
 			} else {
@@ -226,12 +249,9 @@ public class RestServlet extends HttpServlet {
 			}
 		} else {
 			Node node = new Node(config.getSeriesRoot(), path, login);
-			if (node.getFile().isFile() || !node.getFile().exists()) {
-				// last part contains the file name.
-				String name = node.getParts().get(node.getParts().size() - 1);
-				node = node.getParent();
-				Validator res = node.addFile(request.getInputStream(), name,
-						true);
+			if (isFilePath(node)) {
+				Validator res = node.getParent().addFile(
+						request.getInputStream(), getFileName(node), true);
 				if (res.isValid()) {
 					sendCreated(response);
 				} else {
@@ -261,6 +281,297 @@ public class RestServlet extends HttpServlet {
 		}
 	}
 
+	/**
+	 * Runs a batch of operations under the authentication of the request. The
+	 * operations are a JSON array, either the body of the request or the
+	 * "operations" field of a multipart request. Each operation has a
+	 * "method" (GET, PUT, POST or DELETE) and a "path", which are handled like
+	 * single requests. POST takes the "name" of the new child. PUT takes the
+	 * content from "content" (text), "content_base64" or the file part named
+	 * by "part". The response contains a result with a status for every
+	 * operation, in the same order.
+	 */
+	private void doBatch(HttpServletRequest request,
+			HttpServletResponse response, String login) throws IOException {
+		Map<String, String> post = new HashMap<String, String>();
+		Map<String, FileUpload> files = new HashMap<String, FileUpload>();
+		JsonNode operations;
+		if (ServletFileUpload.isMultipartContent(request)) {
+			WebUtil.parseRequest(request, post, files);
+			String json = post.get("operations");
+			operations = json == null ? null : JsonUtil.readJsonString(json,
+					JsonNode.class);
+		} else {
+			operations = JsonUtil.readJsonFile(request.getInputStream(),
+					JsonNode.class);
+		}
+
+		if (operations == null || !operations.isArray()) {
+			sendError(response, "Operations not supplied.");
+		} else if (operations.size() > RestConfig.BATCH_MAX_OPERATIONS) {
+			sendError(response, String.format(
+					"At most %d operations are allowed.",
+					RestConfig.BATCH_MAX_OPERATIONS));
+		} else {
+			NodeResolver nodes = new NodeResolver(config.getSeriesRoot(),
+					login);
+			response.setContentType(WebConfig.JSON_CONTENT_TYPE);
+			response.setStatus(RestConfig.HTTP_OK);
+			JsonGenerator generator = createGenerator(response);
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("results");
+			for (JsonNode operation : operations) {
+				runOperation(generator, operation, nodes, files);
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+			generator.flush();
+		}
+	}
+
+	/**
+	 * Runs a single operation of a batch and writes its result. The output of
+	 * the operation is buffered, so a failure while reading its content or
+	 * its files is reported as the error of the operation, instead of
+	 * truncating the response.
+	 */
+	private void runOperation(JsonGenerator generator, JsonNode operation,
+			NodeResolver nodes, Map<String, FileUpload> files)
+			throws IOException {
+		String method = operation.path("method").getTextValue();
+		String path = operation.path("path").getTextValue();
+		path = (path == null ? "" : path);
+
+		generator.writeStartObject();
+		generator.writeStringField("method", method);
+		generator.writeStringField("path", path);
+
+		List<String> parts = Node.splitPath(path);
+		boolean zip = parts.size() > 0
+				&& RestConfig.ZIP_URI_PREFIX.equals(parts.get(0));
+		if (zip) {
+			parts.remove(0);
+			path = CollectionUtil.join(parts, Node.PATH_SEPARATOR);
+		}
+
+		TokenBuffer body = new TokenBuffer(null);
+		Validator validator = new Validator();
+		int status = RestConfig.HTTP_OK;
+		try {
+			if ("GET".equalsIgnoreCase(method) && !zip) {
+				Node node = nodes.get(path);
+				if (node.getFile().isFile()) {
+					Download download = node.openDownload();
+					if (download == null) {
+						validator.addError("access", "Unable to read file.");
+					} else if (download.getLength() > RestConfig.BATCH_MAX_CONTENT_SIZE) {
+						validator.addError("size",
+								"File is too large for a batch.");
+					} else {
+						ByteArrayOutputStream content =
+								new ByteArrayOutputStream();
+						download.writeTo(content);
+						body.writeBinaryField("content_base64",
+								content.toByteArray());
+					}
+				} else {
+					body.writeFieldName("body");
+					writeListing(body, node);
+				}
+			} else if ("POST".equalsIgnoreCase(method) && !zip) {
+				String name = operation.path("name").getTextValue();
+				if (name == null) {
+					validator.addError("name", "Name not supplied.");
+				} else {
+					validator = create(nodes.get(path), name);
+					nodes.invalidate(path + Node.PATH_SEPARATOR + name);
+					status = RestConfig.HTTP_CREATED;
+				}
+			} else if ("PUT".equalsIgnoreCase(method)) {
+				InputStream content = getContent(operation, files);
+				if (content == null) {
+					validator.addError("content",
+							"Content not supplied.");
+				} else if (zip) {
+					validator = nodes.get(path).addZip(content);
+					nodes.invalidate(path);
+				} else {
+					Node node = nodes.get(path);
+					if (isFilePath(node)) {
+						String name = getFileName(node);
+						String parent = node.getParentPath();
+						validator = nodes.get(parent).addFile(content, name,
+								true);
+						// the resource or security file changes the parent
+						boolean system =
+								node.getType() == NodeType.SYSTEM_FILE;
+						nodes.invalidate(system ? parent : path);
+						status = RestConfig.HTTP_CREATED;
+					} else {
+						validator.addError("path", "Not a file.");
+					}
+				}
+			} else if ("DELETE".equalsIgnoreCase(method) && !zip) {
+				validator = nodes.get(path).delete();
+				nodes.invalidate(path);
+			} else {
+				validator.addError("method", "Unknown operation.");
+			}
+		} catch (IOException e) {
+			log.error(String.format(
+					"RestServlet.runOperation(): %s %s failed: %s", method,
+					path, e.getMessage()));
+			validator = new Validator();
+			validator.addError("io", "Unable to complete the operation.");
+		}
+
+		if (validator.isValid()) {
+			JsonParser parser = body.asParser();
+			while (parser.nextToken() != null) {
+				generator.copyCurrentEvent(parser);
+			}
+			generator.writeNumberField("status", status);
+		} else {
+			generator.writeNumberField("status", RestConfig.HTTP_BAD_REQUEST);
+			generator.writeStringField("error", validator.toString());
+		}
+		generator.writeEndObject();
+	}
+
+	private InputStream getContent(JsonNode operation,
+			Map<String, FileUpload> files) throws IOException {
+		JsonNode content = operation.get("content");
+		if (content != null && content.isTextual()) {
+			return new ByteArrayInputStream(content.getTextValue().getBytes(
+					WebConfig.DEFAULT_REQUEST_ENCODING));
+		}
+		content = operation.get("content_base64");
+		if (content != null && content.isTextual()) {
+			return new ByteArrayInputStream(content.getBinaryValue());
+		}
+		String part = operation.path("part").getTextValue();
+		if (part != null && files.containsKey(part)) {
+			return files.get(part).getStream();
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the JSON description of a directory node to the response.
+	 */
+	private void sendListing(HttpServletResponse response, Node node) {
+		response.setContentType(WebConfig.JSON_CONTENT_TYPE);
+		response.setStatus(RestConfig.HTTP_OK);
+		try {
+			JsonGenerator generator = createGenerator(response);
+			writeListing(generator, node);
+			generator.flush();
+		} catch (IOException e) {
+			log.error("RestServlet.sendListing(): Unable to send json to output");
+		}
+	}
+
+	/**
+	 * Writes the JSON description of a directory node: its children, its
+	 * resource descriptor and its files. Resources are serialized straight to
+	 * the generator with the view, which the access of the user allows.
+	 */
+	private void writeListing(JsonGenerator generator, Node node)
+			throws IOException {
+		generator.writeStartObject();
+		if (node.getResouceKind() != ResourceKind.PROBLEM) {
+			// writing children
+			ObjectWriter writer = JsonMappers
+					.getWriter(ResourceViews.Basic.class);
+			generator.writeArrayFieldStart("children");
+			for (Resource r : node.loadChildResources()) {
+				writer.writeValue(new IdGenerator(generator, r.getId()), r);
+			}
+			generator.writeEndArray();
+		}
+		if (!node.isRoot()) {
+			// writing resource descriptor
+			generator.writeFieldName(node.getResouceKind().getName());
+			Resource resource = node.getResouce();
+			if (resource != null) {
+				JsonMappers.getWriter(resource.getJsonView(node.getAccess()))
+						.writeValue(generator, resource);
+			} else {
+				generator.writeStartObject();
+				generator.writeEndObject();
+			}
+
+			// writing additional files
+			generator.writeArrayFieldStart("files");
+			for (DirectoryIndex.Entry entry : node.getFileEntries()) {
+				generator.writeStartObject();
+				generator.writeStringField("name", entry.getName());
+				generator.writeNumberField("size", entry.length());
+				generator.writeBooleanField("is_dir", entry.isDirectory());
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+		}
+		generator.writeEndObject();
+	}
+
+	private JsonGenerator createGenerator(HttpServletResponse response)
+			throws IOException {
+		JsonGenerator res = JsonMappers.getMapper().getJsonFactory()
+				.createJsonGenerator(response.getWriter());
+		// the writer is closed by the container
+		res.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		return res;
+	}
+
+	/**
+	 * Creates a subdirectory in a system directory or a child resource.
+	 */
+	private Validator create(Node node, String name) {
+		if (node.getType() == NodeType.SYSTEM_DIRECTORY) {
+			return node.addDirectory(name);
+		}
+		return node.addResource(name);
+	}
+
+	/**
+	 * Checks whether a node can be written as a file.
+	 */
+	private boolean isFilePath(Node node) {
+		return node.getParts().size() > 0
+				&& (node.getFile().isFile() || !node.getFile().exists());
+	}
+
+	/**
+	 * Gets the file name of a file node, i.e. its last part.
+	 */
+	private String getFileName(Node node) {
+		return node.getParts().get(node.getParts().size() - 1);
+	}
+
+	/**
+	 * Adds the ID field to the resource object written through it. The ID is
+	 * not part of the resource JSON itself.
+	 */
+	private static class IdGenerator extends JsonGeneratorDelegate {
+		private final String id;
+		private boolean written;
+
+		IdGenerator(JsonGenerator generator, String id) {
+			super(generator);
+			this.id = id;
+		}
+
+		@Override
+		public void writeStartObject() throws IOException {
+			super.writeStartObject();
+			if (!written) {
+				written = true;
+				writeStringField("id", id);
+			}
+		}
+	}
+
 	private void sendInfo(HttpServletRequest request,
 			HttpServletResponse response, int status, String message) {
 		Map<String, String> o = new HashMap<String, String>();
@@ -270,11 +581,62 @@ public class RestServlet extends HttpServlet {
 		sendJson(response, status, o);
 	}
 
-	private void sendFile(HttpServletResponse response, String filename,
-			byte[] file) {
+	/**
+	 * Sets the validators of a node representation and checks the conditional
+	 * headers of the request. If the client has the current representation,
+	 * sends 304 Not Modified.
+	 * 
+	 * @return Whether the response is complete.
+	 */
+	private boolean isNotModified(HttpServletRequest request,
+			HttpServletResponse response, Node node, String representation) {
+		NodeVersion version = node.getVersion();
+		if (version == null) {
+			return false;
+		}
+		String etag = version.getEntityTag(representation);
+		response.setHeader("ETag", etag);
+		response.setDateHeader("Last-Modified", version.getLastModified());
+
+		boolean notModified = false;
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.startsWith("W/")) {
+					tag = tag.substring(2);
+				}
+				if (tag.equals("*") || tag.equals(etag)) {
+					notModified = true;
+				}
+			}
+		} else {
+			long since = -1;
+			try {
+				since = request.getDateHeader("If-Modified-Since");
+			} catch (IllegalArgumentException e) {
+				// invalid date is ignored
+			}
+			// HTTP dates have a precision of seconds
+			notModified = since >= 0
+					&& version.getLastModified() / 1000 <= since / 1000;
+		}
+
+		if (notModified) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		}
+		return notModified;
+	}
+
+	private void sendFile(HttpServletRequest request,
+			HttpServletResponse response, String filename, Download file) {
+		if (file == null) {
+			sendUnknown(response);
+			return;
+		}
 		response.setStatus(RestConfig.HTTP_OK);
 		try {
-			WebUtil.sendFile(file, filename, response);
+			WebUtil.sendDownload(file, filename, request, response);
 		} catch (IOException e) {
 			log.error("RestServlet.sendFile(): Unable to send file to output");
 		}
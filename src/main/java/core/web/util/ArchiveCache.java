@@ -0,0 +1,466 @@
+package core.web.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import core.config.Constants;
+import core.security.AccessRight;
+import core.util.ContentVersions;
+
+/**
+ * Disk cache of built resource archives. An archive is identified by the
+ * resource path, the requesting {@link AccessRight} and a fingerprint of the
+ * {@link DownloadBuilder}: the names and contents of the inline files and the
+ * {@link ContentVersions} of the referenced files, which are kept up to date
+ * by file system events, so a hit does not walk the subtree. The inline
+ * resource JSON is filtered by the contest state and the children are
+ * included depending on it, so the fingerprint changes with the contest state
+ * as well as with any change of the subtree.
+ * 
+ * On a miss the archive is written to the client and to the cache at the same
+ * time. On a hit the cached archive is opened before it is handed out, so it
+ * can be sent even if it is evicted meanwhile. The total size of the cached
+ * archives is bounded, the least recently used ones are evicted first. The
+ * cache is disabled until it is configured.
+ * 
+ * @author jani
+ * 
+ */
+public class ArchiveCache {
+	private static Logger log = LoggerFactory.getLogger(ArchiveCache.class);
+
+	private static final ArchiveCache instance = new ArchiveCache();
+
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private File directory;
+
+	private long maxSize;
+
+	private long size;
+
+	private final LinkedHashMap<String, Entry> entries;
+
+	private final AtomicLong hits;
+
+	private final AtomicLong misses;
+
+	/**
+	 * Gets the shared instance of the cache.
+	 * 
+	 * @return {@link ArchiveCache}
+	 */
+	public static ArchiveCache getInstance() {
+		return instance;
+	}
+
+	private ArchiveCache() {
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+	}
+
+	/**
+	 * Configures the cache. Archives, which are already in the directory, are
+	 * reused. Configuring with the current settings has no effect.
+	 * 
+	 * @param directory
+	 *            Directory for cached archives.
+	 * @param maxSize
+	 *            Maximum total size of the cached archives in bytes. Zero or
+	 *            less disables the cache.
+	 */
+	public synchronized void configure(File directory, long maxSize) {
+		File dir = directory.getAbsoluteFile();
+		if (dir.equals(this.directory) && maxSize == this.maxSize) {
+			return;
+		}
+
+		entries.clear();
+		size = 0;
+		this.maxSize = maxSize;
+		this.directory = null;
+		if (maxSize <= 0) {
+			return;
+		}
+
+		dir.mkdirs();
+		if (!dir.isDirectory()) {
+			log.error(String.format(
+					"ArchiveCache.configure(): Unable to create %s", dir));
+			return;
+		}
+		this.directory = dir;
+
+		File[] files = dir.listFiles();
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				return Long.valueOf(o1.lastModified()).compareTo(
+						o2.lastModified());
+			}
+		});
+		for (File file : files) {
+			String name = file.getName();
+			if (name.endsWith(TEMP_EXTENSION)) {
+				file.delete();
+			} else if (name.endsWith(Constants.ZIP_FILE_EXTENSION)) {
+				String key = name.substring(0, name.length()
+						- Constants.ZIP_FILE_EXTENSION.length());
+				// the path of reused archives is unknown
+				entries.put(key, new Entry(null, file, file.length()));
+				size += file.length();
+			}
+		}
+		evict();
+	}
+
+	/**
+	 * Checks whether the cache is configured and enabled.
+	 * 
+	 * @return Whether enabled.
+	 */
+	public synchronized boolean isEnabled() {
+		return directory != null;
+	}
+
+	/**
+	 * Gets a {@link Download} of an archive. If the archive is cached, the
+	 * cached file is returned. Otherwise the archive is built while it is
+	 * written and stored in the cache afterwards.
+	 * 
+	 * @param path
+	 *            Path of the resource, relative to the series root.
+	 * @param access
+	 *            {@link AccessRight} of the requesting user.
+	 * @param builder
+	 *            {@link DownloadBuilder} of the archive.
+	 * @return {@link Download}
+	 */
+	public Download get(String path, AccessRight access,
+			DownloadBuilder builder) {
+		if (!isEnabled()) {
+			return Download.ofZip(builder);
+		}
+
+		final String key = getKey(path, access, builder);
+		final String entryPath = path;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null && entry.file.isFile()) {
+				try {
+					Download res = Download.ofOpenFile(entry.file);
+					hits.incrementAndGet();
+					return res;
+				} catch (IOException e) {
+					// removed meanwhile, built again
+				}
+			}
+		}
+		misses.incrementAndGet();
+
+		return new Download(builder, null, null) {
+			@Override
+			public void writeTo(OutputStream output) throws IOException {
+				File dir = getDirectory();
+				if (dir == null) {
+					super.writeTo(output);
+					return;
+				}
+
+				File temp = new File(dir, key + "." + UUID.randomUUID()
+						+ TEMP_EXTENSION);
+				CachingOutputStream stream = new CachingOutputStream(output,
+						temp);
+				try {
+					super.writeTo(stream);
+					if (stream.finish()) {
+						put(entryPath, key, temp);
+					}
+				} finally {
+					stream.abort();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Removes the archives of a path, its ancestors and its descendants. Should
+	 * be called after anything in the path is written or deleted.
+	 * 
+	 * @param path
+	 *            The changed path, relative to the series root.
+	 */
+	public synchronized void invalidate(String path) {
+		Iterator<Entry> it = entries.values().iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.path == null || isRelated(entry.path, path)) {
+				it.remove();
+				remove(entry);
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached archives.
+	 */
+	public synchronized void clear() {
+		for (Entry entry : entries.values()) {
+			remove(entry);
+		}
+		entries.clear();
+	}
+
+	/**
+	 * Gets the total size of the cached archives.
+	 * 
+	 * @return Size in bytes.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of downloads served from the cache.
+	 * 
+	 * @return Number of hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of downloads, which required building the archive.
+	 * 
+	 * @return Number of misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private synchronized File getDirectory() {
+		return directory;
+	}
+
+	private synchronized void put(String path, String key, File temp) {
+		if (directory == null || !temp.getParentFile().equals(directory)) {
+			return;
+		}
+		File file = new File(directory, key + Constants.ZIP_FILE_EXTENSION);
+		try {
+			Files.move(temp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			log.info(String.format("ArchiveCache.put(): Unable to store %s",
+					file));
+			return;
+		}
+
+		Entry old = entries.remove(key);
+		if (old != null) {
+			size -= old.size;
+		}
+		Entry entry = new Entry(path, file, file.length());
+		entries.put(key, entry);
+		size += entry.size;
+		evict();
+	}
+
+	private void evict() {
+		Iterator<Entry> it = entries.values().iterator();
+		while (size > maxSize && it.hasNext()) {
+			Entry entry = it.next();
+			it.remove();
+			remove(entry);
+		}
+	}
+
+	private void remove(Entry entry) {
+		size -= entry.size;
+		if (!entry.file.delete() && entry.file.exists()) {
+			log.info(String.format(
+					"ArchiveCache.remove(): Unable to delete %s", entry.file));
+		}
+	}
+
+	private static boolean isRelated(String entryPath, String path) {
+		return entryPath.isEmpty() || path.isEmpty() || entryPath.equals(path)
+				|| path.startsWith(entryPath + "/")
+				|| entryPath.startsWith(path + "/");
+	}
+
+	/**
+	 * Builds the cache key of an archive.
+	 * 
+	 * @param path
+	 * @param access
+	 * @param builder
+	 * @return Hex SHA-256 key.
+	 */
+	static String getKey(String path, AccessRight access,
+			DownloadBuilder builder) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			update(digest, path);
+			update(digest, access.name());
+
+			List<String> names = new ArrayList<String>(builder.getInline()
+					.keySet());
+			Collections.sort(names);
+			for (String name : names) {
+				byte[] content = builder.getInline().get(name);
+				update(digest, "inline:" + name + ":" + content.length);
+				digest.update(content);
+			}
+
+			names = new ArrayList<String>(builder.getRefs().keySet());
+			names.removeAll(builder.getInline().keySet());
+			Collections.sort(names);
+			for (String name : names) {
+				File file = builder.getRefs().get(name);
+				ContentVersions.Version version = ContentVersions
+						.getInstance().getVersion(file);
+				update(digest, String.format("ref:%s:%s:%s", name,
+						file.getAbsolutePath(),
+						version == null ? "" : version.getHash()));
+			}
+
+			return String.format("%064x", new BigInteger(1, digest.digest()));
+		} catch (NoSuchAlgorithmException e) {
+			assert false;
+		} catch (UnsupportedEncodingException e) {
+			assert false;
+		}
+		return null;
+	}
+
+	private static void update(MessageDigest digest, String value)
+			throws UnsupportedEncodingException {
+		digest.update(value.getBytes("UTF-8"));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * A cached archive.
+	 */
+	private static class Entry {
+		private final String path;
+		private final File file;
+		private final long size;
+
+		Entry(String path, File file, long size) {
+			this.path = path;
+			this.file = file;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Writes to the client and to a cache file. A failure of the cache file
+	 * only stops caching, the client still gets the whole archive.
+	 */
+	private static class CachingOutputStream extends FilterOutputStream {
+		private final File temp;
+		private OutputStream cache;
+
+		CachingOutputStream(OutputStream output, File temp) {
+			super(output);
+			this.temp = temp;
+			try {
+				cache = new BufferedOutputStream(new FileOutputStream(temp));
+			} catch (IOException e) {
+				cache = null;
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			if (cache != null) {
+				try {
+					cache.write(b);
+				} catch (IOException e) {
+					abort();
+				}
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			if (cache != null) {
+				try {
+					cache.write(b, off, len);
+				} catch (IOException e) {
+					abort();
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			// the client stream is closed by the caller
+			flush();
+		}
+
+		/**
+		 * Closes the cache file.
+		 * 
+		 * @return Whether the cache file is complete.
+		 */
+		boolean finish() {
+			if (cache == null) {
+				return false;
+			}
+			try {
+				cache.close();
+				cache = null;
+				return true;
+			} catch (IOException e) {
+				abort();
+				return false;
+			}
+		}
+
+		/**
+		 * Closes and deletes an incomplete cache file.
+		 */
+		void abort() {
+			if (cache != null) {
+				try {
+					cache.close();
+				} catch (IOException e) {
+					// nothing
+				}
+				cache = null;
+			}
+			if (temp.exists()) {
+				temp.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package core.web.util;
+
+/**
+ * A single byte range of an HTTP Range request, e.g. "bytes=100-199",
+ * "bytes=100-" or "bytes=-100". Requests with more than one range are served
+ * as a whole, which the HTTP specification allows.
+ * 
+ * @author jani
+ * 
+ */
+public class ByteRange {
+	/**
+	 * Unit of supported ranges.
+	 */
+	public static final String UNIT = "bytes";
+
+	/**
+	 * A range, which does not overlap the content.
+	 */
+	public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+	private final long start;
+	private final long end;
+
+	private ByteRange(long start, long end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Parses a Range header value.
+	 * 
+	 * @param header
+	 *            Value of the Range header, may be null.
+	 * @param length
+	 *            Length of the content.
+	 * @return The range, {@link #UNSATISFIABLE} or null if the whole content
+	 *         should be sent.
+	 */
+	public static ByteRange parse(String header, long length) {
+		if (header == null || !header.startsWith(UNIT + "=")) {
+			return null;
+		}
+		String spec = header.substring(UNIT.length() + 1).trim();
+		if (spec.contains(",")) {
+			return null;
+		}
+		int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return null;
+		}
+
+		long start;
+		long end;
+		try {
+			String first = spec.substring(0, dash).trim();
+			String last = spec.substring(dash + 1).trim();
+			if (first.isEmpty()) {
+				// suffix range
+				if (last.isEmpty()) {
+					return null;
+				}
+				long suffix = Long.parseLong(last);
+				if (suffix <= 0) {
+					return UNSATISFIABLE;
+				}
+				start = Math.max(0, length - suffix);
+				end = length - 1;
+			} else {
+				start = Long.parseLong(first);
+				if (last.isEmpty()) {
+					end = length - 1;
+				} else {
+					long requested = Long.parseLong(last);
+					if (requested < start) {
+						// syntactically invalid, ignored
+						return null;
+					}
+					end = Math.min(requested, length - 1);
+				}
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+
+		if (start < 0 || start >= length || end < start) {
+			return UNSATISFIABLE;
+		}
+		return new ByteRange(start, end);
+	}
+
+	/**
+	 * Gets the first byte of the range.
+	 * 
+	 * @return Offset of the first byte.
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * Gets the last byte of the range, inclusive.
+	 * 
+	 * @return Offset of the last byte.
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * Gets the number of bytes in the range.
+	 * 
+	 * @return Length of the range.
+	 */
+	public long getLength() {
+		return end - start + 1;
+	}
+
+	/**
+	 * Builds the Content-Range header value for the range.
+	 * 
+	 * @param length
+	 *            Length of the whole content.
+	 * @return Content-Range value.
+	 */
+	public String toContentRange(long length) {
+		if (this == UNSATISFIABLE) {
+			return String.format("%s */%d", UNIT, length);
+		}
+		return String.format("%s %d-%d/%d", UNIT, start, end, length);
+	}
+}
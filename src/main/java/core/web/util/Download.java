@@ -0,0 +1,181 @@
+package core.web.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import core.util.FileUtil;
+
+/**
+ * A download, which is written directly to an output stream. Nothing is
+ * buffered in memory except for inline contents, so the size of an archive
+ * does not affect the memory usage.
+ * 
+ * @author jani
+ * 
+ */
+public class Download {
+	private final DownloadBuilder builder;
+	private final File file;
+	private final byte[] inline;
+	private FileChannel channel;
+
+	/**
+	 * Constructor. Exactly one of the sources should be set.
+	 * 
+	 * @param builder
+	 *            {@link DownloadBuilder} of a zip.
+	 * @param file
+	 *            File or directory.
+	 * @param inline
+	 *            Contents, which are not on the file system.
+	 */
+	protected Download(DownloadBuilder builder, File file, byte[] inline) {
+		this.builder = builder;
+		this.file = file;
+		this.inline = inline;
+	}
+
+	/**
+	 * Creates a download of a zip, built by a {@link DownloadBuilder}.
+	 * 
+	 * @param builder
+	 *            {@link DownloadBuilder} with the archive contents.
+	 * @return {@link Download}
+	 */
+	public static Download ofZip(DownloadBuilder builder) {
+		return new Download(builder, null, null);
+	}
+
+	/**
+	 * Creates a download of a file. A directory is sent as a zip.
+	 * 
+	 * @param file
+	 *            File or directory.
+	 * @return {@link Download}
+	 */
+	public static Download ofFile(File file) {
+		return new Download(null, file, null);
+	}
+
+	/**
+	 * Creates a download of a plain file, which is opened at once. The
+	 * download can be sent even if the file is deleted meanwhile, but only
+	 * once.
+	 * 
+	 * @param file
+	 *            Plain file.
+	 * @return {@link Download}
+	 * @throws IOException
+	 *             If the file cannot be opened.
+	 */
+	public static Download ofOpenFile(File file) throws IOException {
+		Download res = new Download(null, file, null);
+		res.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		return res;
+	}
+
+	/**
+	 * Creates a download of contents, which are not on the file system.
+	 * 
+	 * @param inline
+	 *            Contents.
+	 * @return {@link Download}
+	 */
+	public static Download ofInline(byte[] inline) {
+		return new Download(null, null, inline);
+	}
+
+	/**
+	 * Gets the file of the download, if it is a plain file.
+	 * 
+	 * @return The file or null.
+	 */
+	public File getFile() {
+		if (file != null && (channel != null || file.isFile())) {
+			return file;
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the length of the download in bytes, if it is known in advance.
+	 * 
+	 * @return Length or -1 if unknown.
+	 */
+	public long getLength() {
+		if (inline != null) {
+			return inline.length;
+		}
+		if (channel != null) {
+			try {
+				return channel.size();
+			} catch (IOException e) {
+				return -1;
+			}
+		}
+		if (getFile() != null) {
+			return file.length();
+		}
+		return -1;
+	}
+
+	/**
+	 * Opens a channel for reading the download, if it is a plain file. The
+	 * caller closes the channel.
+	 * 
+	 * @return {@link FileChannel} or null, if the download is not a plain
+	 *         file.
+	 * @throws IOException
+	 */
+	public FileChannel openChannel() throws IOException {
+		if (channel != null) {
+			return channel;
+		}
+		if (getFile() != null) {
+			return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the download to a stream. The stream is not closed.
+	 * 
+	 * @param output
+	 *            Destination stream.
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream output) throws IOException {
+		if (builder != null) {
+			builder.writeZip(output);
+		} else if (inline != null) {
+			output.write(inline);
+		} else if (channel == null && file.isDirectory()) {
+			FileUtil.writeZip(file, output);
+		} else {
+			FileChannel input = openChannel();
+			if (input == null) {
+				throw new IOException(String.format("%s does not exist", file));
+			}
+			try {
+				WritableByteChannel target = Channels.newChannel(output);
+				long position = 0;
+				long count = input.size();
+				while (position < count) {
+					long sent = input.transferTo(position, count - position,
+							target);
+					if (sent <= 0) {
+						break;
+					}
+					position += sent;
+				}
+			} finally {
+				input.close();
+			}
+		}
+	}
+}
@@ -3,6 +3,7 @@ package core.web.util;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -121,23 +122,7 @@ public class DownloadBuilder {
 	public byte[] toZip() {
 		try {
 			ByteArrayOutputStream res = new ByteArrayOutputStream();
-
-			ZipOutputStream zip = new ZipOutputStream(res);
-
-			for (String name : getInline().keySet()) {
-				zip.putNextEntry(new ZipEntry(name));
-				zip.write(getInline().get(name));
-				zip.closeEntry();
-			}
-			for (String name : getRefs().keySet()) {
-				if (!getInline().containsKey(name)) {
-					FileUtil.addToZip(zip, getRefs().get(name), name);
-				}
-			}
-
-			zip.flush();
-			zip.close();
-
+			writeZip(res);
 			return res.toByteArray();
 		} catch (IOException e) {
 			log.error("DownloadBuilder.toZip(): Error creating zip: "
@@ -145,4 +130,30 @@ public class DownloadBuilder {
 			return null;
 		}
 	}
+
+	/**
+	 * Writes the zip directly to a stream, reading the ref files while
+	 * writing. The stream is not closed, but the zip is finished.
+	 * 
+	 * @param output
+	 *            Destination stream.
+	 * @throws IOException
+	 */
+	public void writeZip(OutputStream output) throws IOException {
+		ZipOutputStream zip = new ZipOutputStream(output);
+
+		for (String name : getInline().keySet()) {
+			zip.putNextEntry(new ZipEntry(name));
+			zip.write(getInline().get(name));
+			zip.closeEntry();
+		}
+		for (String name : getRefs().keySet()) {
+			if (!getInline().containsKey(name)) {
+				FileUtil.addToZip(zip, getRefs().get(name), name);
+			}
+		}
+
+		zip.finish();
+		zip.flush();
+	}
 }
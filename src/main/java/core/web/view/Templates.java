@@ -0,0 +1,140 @@
+package core.web.view;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import core.config.WebConfig;
+
+import freemarker.cache.StrongCacheStorage;
+import freemarker.cache.TemplateLoader;
+import freemarker.cache.WebappTemplateLoader;
+import freemarker.template.Configuration;
+
+/**
+ * Application-wide Freemarker configuration. All views share its template
+ * cache, so a template is read and parsed once and not on every request. All
+ * templates are parsed when the configuration is created.
+ * 
+ * The update delay sets how often a cached template is checked for changes:
+ * 0 checks on every use, {@link #NO_UPDATE} never checks.
+ * 
+ * @author jani
+ * 
+ */
+public class Templates {
+	private static Logger log = LoggerFactory.getLogger(Templates.class);
+
+	private static final Templates instance = new Templates();
+
+	/**
+	 * Update delay, which never checks templates for changes.
+	 */
+	public static final int NO_UPDATE = Integer.MAX_VALUE;
+
+	private static final String TEMPLATE_EXTENSION = ".ftl";
+
+	private volatile Configuration configuration;
+
+	/**
+	 * Gets the shared instance.
+	 * 
+	 * @return {@link Templates}
+	 */
+	public static Templates getInstance() {
+		return instance;
+	}
+
+	private Templates() {
+	}
+
+	/**
+	 * Creates the configuration for the templates of a web application and
+	 * parses all of them.
+	 * 
+	 * @param context
+	 *            Servlet context of the application.
+	 * @param updateDelay
+	 *            Seconds between checks of a template for changes.
+	 */
+	public void configure(ServletContext context, int updateDelay) {
+		List<String> names = new ArrayList<String>();
+		String root = "/" + WebConfig.TEMPLATES_LOCATION + "/";
+		listTemplates(context, root, root.length(), names);
+		configure(new WebappTemplateLoader(context,
+				WebConfig.TEMPLATES_LOCATION), names, updateDelay);
+	}
+
+	/**
+	 * Creates the configuration and parses the specified templates.
+	 * 
+	 * @param loader
+	 *            Loader of the templates.
+	 * @param names
+	 *            Names of the templates to parse.
+	 * @param updateDelay
+	 *            Seconds between checks of a template for changes.
+	 * @return Number of parsed templates.
+	 */
+	public int configure(TemplateLoader loader, List<String> names,
+			int updateDelay) {
+		Configuration config = new Configuration();
+		config.setTemplateLoader(loader);
+		config.setCacheStorage(new StrongCacheStorage());
+		config.setLocale(WebConfig.FTL_LOCALE);
+		config.setTemplateUpdateDelay(updateDelay);
+		config.setEncoding(WebConfig.FTL_LOCALE,
+				WebConfig.FTL_TEMPLATE_ENCODING);
+		config.setOutputEncoding(WebConfig.FTL_OUTPUT_ENCODING);
+		config.setLocalizedLookup(false);
+
+		int res = 0;
+		for (String name : names) {
+			try {
+				config.getTemplate(name);
+				res++;
+			} catch (IOException e) {
+				// reported again, when the template is used
+				log.error(String.format(
+						"Templates.configure(): Unable to parse %s: %s", name,
+						e.getMessage()));
+			}
+		}
+		configuration = config;
+		return res;
+	}
+
+	/**
+	 * Gets the shared configuration.
+	 * 
+	 * @return {@link Configuration} or null, if not configured.
+	 */
+	public Configuration getConfiguration() {
+		return configuration;
+	}
+
+	private static void listTemplates(ServletContext context, String path,
+			int rootLength, List<String> names) {
+		@SuppressWarnings("unchecked")
+		Set<String> paths = context.getResourcePaths(path);
+		if (paths == null) {
+			return;
+		}
+		List<String> sorted = new ArrayList<String>(paths);
+		Collections.sort(sorted);
+		for (String child : sorted) {
+			if (child.endsWith("/")) {
+				listTemplates(context, child, rootLength, names);
+			} else if (child.endsWith(TEMPLATE_EXTENSION)) {
+				names.add(child.substring(rootLength));
+			}
+		}
+	}
+}
@@ -5,8 +5,6 @@ import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 
-import javax.servlet.ServletContext;
-
 import core.config.WebConfig;
 
 import freemarker.core.ParseException;
@@ -15,37 +13,22 @@ import freemarker.template.Template;
 import freemarker.template.TemplateException;
 
 /**
- * A view of a web page. Contains an instance of Freemarker and a model which
- * feeds it.
+ * A view of a web page. Contains a model which feeds the templates of the
+ * shared Freemarker configuration of {@link Templates}.
  * 
  * @author jani
  * 
  */
 public class View {
 
-	private Configuration config;
-
 	private Map<String, Object> model;
 
 	private String masterTemplate;
 
 	/**
 	 * Constructor.
-	 * 
-	 * @param context
-	 *            Servlet which owns the view.
 	 */
-	public View(ServletContext context) {
-		config = new Configuration();
-		config.setServletContextForTemplateLoading(context,
-				WebConfig.TEMPLATES_LOCATION);
-		config.setLocale(WebConfig.FTL_LOCALE);
-		config.setTemplateUpdateDelay(0);
-		config.setEncoding(WebConfig.FTL_LOCALE,
-				WebConfig.FTL_TEMPLATE_ENCODING);
-		config.setOutputEncoding(WebConfig.FTL_OUTPUT_ENCODING);
-		config.setLocalizedLookup(false);
-
+	public View() {
 		model = new HashMap<String, Object>();
 
 		masterTemplate = WebConfig.DEFAULT_MASTER_TEMPLATE;
@@ -72,6 +55,11 @@ public class View {
 	 *             Error while parsing
 	 */
 	public String parse(String templateFile) throws ViewException {
+		Configuration config = Templates.getInstance().getConfiguration();
+		if (config == null) {
+			throw new ViewException("Templates are not configured", null);
+		}
+
 		Template template = null;
 		try {
 			template = config.getTemplate(templateFile);
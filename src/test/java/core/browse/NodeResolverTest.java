@@ -0,0 +1,63 @@
+package core.browse;
+
+import java.io.File;
+
+import core.util.TestBase;
+
+/**
+ * Tests {@link NodeResolver}.
+ * 
+ * @author jani
+ * 
+ */
+public class NodeResolverTest extends TestBase {
+	private File tempDir;
+	private File seriesRoot;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		extractTestZip(tempDir, TEST_REPO);
+		seriesRoot = new File(tempDir, "series");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests {@link NodeResolver#get(String)} and
+	 * {@link NodeResolver#invalidate(String)}.
+	 */
+	public void testResolve() {
+		NodeResolver nodes = new NodeResolver(seriesRoot, "milo");
+
+		Node contest = nodes.get("/series_1/contest_1");
+		assertSame(contest, nodes.get("series_1/contest_1/"));
+		assertEquals("contest_1", contest.getResouce().getId());
+		Node problem = nodes.get("/series_1/contest_1/problem_1");
+		Node series = nodes.get("/series_1");
+		assertEquals(3, nodes.size());
+
+		// new resources are visible after invalidation
+		Node created = nodes.get("/series_1/contest_1/problem_9");
+		assertNull(created.getResouce());
+		assertTrue(contest.addResource("problem_9").isValid());
+		nodes.invalidate("/series_1/contest_1/problem_9");
+		created = nodes.get("/series_1/contest_1/problem_9");
+		assertEquals("problem_9", created.getResouce().getId());
+
+		nodes.invalidate("series_1/contest_1");
+		assertNotSame(contest, nodes.get("/series_1/contest_1"));
+		assertNotSame(problem, nodes.get("/series_1/contest_1/problem_1"));
+		assertSame(series, nodes.get("/series_1"));
+
+		nodes.invalidate("/");
+		assertEquals(0, nodes.size());
+	}
+}
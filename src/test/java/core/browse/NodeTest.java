@@ -1,5 +1,6 @@
 package core.browse;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.util.List;
 
@@ -149,4 +150,29 @@ public class NodeTest extends TestBase {
 		assertEquals(new File(seriesRoot, "series_1/contest_1"),
 				child.getFile());
 	}
+
+	/**
+	 * Tests that {@link Node#getVersion()} changes with the content and
+	 * differs between users.
+	 */
+	public void testGetVersion() {
+		Node node = new Node(seriesRoot, "series_1/contest_1", "milo");
+		NodeVersion version = node.getVersion();
+		assertNotNull(version);
+		assertEquals(version.getHash(), new Node(seriesRoot,
+				"series_1/contest_1", "milo").getVersion().getHash());
+		assertFalse(version.getHash().equals(
+				new Node(seriesRoot, "series_1/contest_1", "jani").getVersion()
+						.getHash()));
+
+		Node child = new Node(seriesRoot, "series_1/contest_1/problem_1",
+				"milo");
+		assertTrue(child.addFile(new ByteArrayInputStream("1 2".getBytes()),
+				"test.01.in", true).isValid());
+		assertFalse(version.getHash().equals(
+				new Node(seriesRoot, "series_1/contest_1", "milo").getVersion()
+						.getHash()));
+
+		assertNull(new Node(seriesRoot, "series_1/wrong", "milo").getVersion());
+	}
 }
@@ -0,0 +1,179 @@
+package core.browse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+
+import core.config.ResourceFileConfig;
+import core.model.Resource;
+import core.model.ResourceKind;
+import core.util.BlobStore;
+import core.util.FileUtil;
+import core.util.TestBase;
+import core.util.Validator;
+
+/**
+ * Tests {@link ResourceImport}.
+ * 
+ * @author jani
+ * 
+ */
+public class ResourceImportTest extends TestBase {
+	private File tempDir;
+	private File seriesRoot;
+	private File contest;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		extractTestZip(tempDir, TEST_REPO);
+		seriesRoot = new File(tempDir, "series");
+		contest = new File(seriesRoot, "series_1/contest_1");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests replacing an existing resource through {@link Node#addZip}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testReplace() throws IOException {
+		File problem = new File(contest, "problem_1");
+		byte[] zip = FileUtil.createZip(problem);
+		new File(problem, "solution.cpp").createNewFile();
+		assertNotNull(new Node(seriesRoot, "series_1/contest_1/problem_1",
+				"milo").getResouce());
+
+		Node node = new Node(seriesRoot, "series_1/contest_1", "milo");
+		Validator res = node.addZip(new ByteArrayInputStream(zip));
+		assertTrue(res.toString(), res.isValid());
+
+		// the old content is replaced, not merged
+		assertTrue(new File(problem, "description.txt").isFile());
+		assertFalse(new File(problem, "solution.cpp").exists());
+		Resource loaded = new Node(seriesRoot, "series_1/contest_1/problem_1",
+				"milo").getResouce();
+		assertNotNull(loaded);
+		assertEquals(problem.getAbsoluteFile(), loaded.getDirectory()
+				.getAbsoluteFile());
+
+		assertStagingEmpty();
+	}
+
+	/**
+	 * Tests that zips with files, which are not allowed, are rejected and the
+	 * existing resource is kept.
+	 * 
+	 * @throws IOException
+	 */
+	public void testRejected() throws IOException {
+		File problem = new File(contest, "problem_1");
+
+		Validator res = runImport(zip("problem_1/problem.json", "{}",
+				"problem_1/unknown.txt", "x"));
+		assertFalse(res.isValid());
+		assertTrue(new File(problem, "test.in").isFile());
+
+		res = runImport(zip("problem_1/_files/../../../evil.txt", "x"));
+		assertFalse(res.isValid());
+		assertFalse(new File(seriesRoot, "evil.txt").exists());
+
+		res = runImport(zip("problem_1/description.txt", "x",
+				"problem_2/description.txt", "x"));
+		assertFalse(res.isValid());
+
+		res = runImport(zip("problem_3/_files/a.txt", "x"));
+		assertFalse(res.isValid());
+		assertFalse(new File(contest, "problem_3").exists());
+
+		assertStagingEmpty();
+	}
+
+	/**
+	 * Tests that imported test files are deduplicated by {@link BlobStore}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testBlobStore() throws IOException {
+		BlobStore store = BlobStore.getInstance();
+		store.configure(new File(tempDir, "blobs"));
+		try {
+			long stored = store.getStored();
+			long deduplicated = store.getDeduplicated();
+			File problem = new File(contest, "problem_1");
+			FileUtils.writeStringToFile(new File(problem, "test.in"), "1 2");
+			FileUtils.writeStringToFile(new File(problem, "test.ans"), "3");
+			byte[] zip = FileUtil.createZip(problem);
+			assertTrue(runImport(zip).isValid());
+			assertTrue(runImport(zip).isValid());
+
+			assertEquals(stored + 2, store.getStored());
+			assertEquals(deduplicated + 2, store.getDeduplicated());
+			assertEquals("1 2", FileUtils.readFileToString(new File(contest,
+					"problem_1/test.in")));
+		} finally {
+			store.configure(null);
+		}
+	}
+
+	/**
+	 * Tests {@link ResourceImport#sweep(File)}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testSweep() throws IOException {
+		File root = new File(seriesRoot,
+				ResourceFileConfig.STAGING_DIRECTORY_NAME);
+		long stale = System.currentTimeMillis()
+				- ResourceFileConfig.STAGING_MAX_AGE - 1000;
+		File crashed = new File(root, "crashed");
+		assertTrue(new File(crashed, "problem_1").mkdirs());
+		assertTrue(crashed.setLastModified(stale));
+		File running = new File(root, "running");
+		assertTrue(new File(running, "problem_1").mkdirs());
+		File kept = new File(root, "kept");
+		assertTrue(new File(kept, "_old").mkdirs());
+		assertTrue(kept.setLastModified(stale));
+
+		ResourceImport.sweep(seriesRoot);
+		assertFalse(crashed.exists());
+		assertTrue(running.exists());
+		assertTrue(new File(kept, "_old").exists());
+	}
+
+	private Validator runImport(byte[] zip) {
+		return new ResourceImport(seriesRoot, contest, ResourceKind.PROBLEM)
+				.run(new ByteArrayInputStream(zip));
+	}
+
+	private void assertStagingEmpty() {
+		File staging = new File(seriesRoot,
+				ResourceFileConfig.STAGING_DIRECTORY_NAME);
+		assertEquals(0, staging.list().length);
+	}
+
+	private static byte[] zip(String... entries) throws IOException {
+		ByteArrayOutputStream res = new ByteArrayOutputStream();
+		ZipOutputStream zip = new ZipOutputStream(res);
+		for (int i = 0; i < entries.length; i += 2) {
+			zip.putNextEntry(new ZipEntry(entries[i]));
+			zip.write(entries[i + 1].getBytes());
+			zip.closeEntry();
+		}
+		zip.close();
+		return res.toByteArray();
+	}
+}
@@ -0,0 +1,186 @@
+package core.judge;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+
+import core.util.TestBase;
+
+/**
+ * Tests {@link CheckerCache}. Python checkers are used, as they are cached
+ * without a compiler.
+ * 
+ * @author jani
+ * 
+ */
+public class CheckerCacheTest extends TestBase {
+	private File tempDir;
+	private File cacheDir;
+	private CheckerCache cache;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		cacheDir = new File(tempDir, "cache");
+		cache = CheckerCache.getInstance();
+		cache.configure(cacheDir, 1024 * 1024);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		cache.configure(cacheDir, 0);
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests {@link CheckerCache#get(File)}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testGet() throws IOException {
+		File source = write("checker.py", "print(1)\n");
+		long misses = cache.getMisses();
+		long hits = cache.getHits();
+
+		Program program = cache.get(source);
+		assertTrue(program.isCompiled());
+		assertEquals(misses + 1, cache.getMisses());
+		assertEquals(cacheDir, program.getSource().getParentFile()
+				.getParentFile());
+		assertFalse(source.equals(program.getSource()));
+
+		assertSame(program, cache.get(source));
+		assertEquals(hits + 1, cache.getHits());
+		assertEquals(misses + 1, cache.getMisses());
+
+		write("checker.py", "print(2)\n");
+		assertNotSame(program, cache.get(source));
+		assertEquals(misses + 2, cache.getMisses());
+
+		try {
+			cache.get(write("checker.txt", ""));
+			fail();
+		} catch (IOException e) {
+			// unknown language
+		}
+	}
+
+	/**
+	 * Tests that a checker, which another process has put into the directory
+	 * meanwhile, is reused and not replaced.
+	 * 
+	 * @throws IOException
+	 */
+	public void testCompiledByOtherProcess() throws IOException {
+		File source = write("checker.py", "print(1)\n");
+		File compiled = cache.get(source).getSource().getParentFile();
+
+		File otherDir = new File(tempDir, "other");
+		cache.configure(otherDir, 1024 * 1024);
+		File target = new File(otherDir, compiled.getName());
+		FileUtils.copyDirectory(compiled, target);
+		File marker = new File(target, "marker");
+		assertTrue(marker.createNewFile());
+
+		long misses = cache.getMisses();
+		Program program = cache.get(source);
+		assertTrue(program.isCompiled());
+		assertEquals(misses + 1, cache.getMisses());
+		assertEquals(target, program.getSource().getParentFile());
+		assertTrue(marker.exists());
+		assertEquals(1, otherDir.list().length);
+	}
+
+	/**
+	 * Tests that concurrent requests compile a checker once.
+	 * 
+	 * @throws Exception
+	 */
+	public void testConcurrent() throws Exception {
+		final File source = write("checker.py", "print(3)\n");
+		long misses = cache.getMisses();
+
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<Program>> futures = new ArrayList<Future<Program>>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(pool.submit(new Callable<Program>() {
+				@Override
+				public Program call() throws IOException {
+					return cache.get(source);
+				}
+			}));
+		}
+		Program program = futures.get(0).get();
+		for (Future<Program> future : futures) {
+			assertSame(program, future.get());
+		}
+		pool.shutdown();
+		assertEquals(misses + 1, cache.getMisses());
+	}
+
+	/**
+	 * Tests eviction and reusing cached checkers after configuring.
+	 * 
+	 * @throws IOException
+	 */
+	public void testEvict() throws IOException {
+		File first = write("first.py", "print(4)\n");
+		File second = write("second.py", "print(5)\n");
+		Program program = cache.get(first);
+		File dir = program.getSource().getParentFile();
+
+		cache.configure(cacheDir, 1);
+		assertTrue(dir.isDirectory());
+		long misses = cache.getMisses();
+		assertEquals(dir, cache.get(first).getSource().getParentFile());
+		assertEquals(misses, cache.getMisses());
+
+		cache.get(second);
+		assertFalse(dir.exists());
+		cache.get(first);
+		assertEquals(misses + 2, cache.getMisses());
+	}
+
+	/**
+	 * Tests that a directory is created private and that a directory, which
+	 * others may write, is refused.
+	 * 
+	 * @throws IOException
+	 */
+	public void testPrivateDirectory() throws IOException {
+		if (!FileSystems.getDefault().supportedFileAttributeViews()
+				.contains("posix")) {
+			return;
+		}
+		assertTrue(cache.isEnabled());
+		assertEquals("rwx------", PosixFilePermissions.toString(Files
+				.getPosixFilePermissions(cacheDir.toPath())));
+
+		File sharedDir = new File(tempDir, "shared");
+		assertTrue(sharedDir.mkdir());
+		Files.setPosixFilePermissions(sharedDir.toPath(),
+				PosixFilePermissions.fromString("rwxrwxrwx"));
+		cache.configure(sharedDir, 1024 * 1024);
+		assertFalse(cache.isEnabled());
+	}
+
+	private File write(String name, String content) throws IOException {
+		File res = new File(tempDir, name);
+		FileUtils.writeStringToFile(res, content);
+		return res;
+	}
+}
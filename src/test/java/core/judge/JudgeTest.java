@@ -0,0 +1,182 @@
+package core.judge;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+
+import core.model.Problem;
+import core.model.ResourceKind;
+import core.model.ResourceUtil;
+import core.util.DirectoryIndex;
+import core.util.TestBase;
+
+/**
+ * Tests {@link Judge}. The tests, which compile solutions or run checkers,
+ * are skipped if there is no C compiler or Python.
+ * 
+ * @author jani
+ * 
+ */
+public class JudgeTest extends TestBase {
+	private static final String SUM = "#include <stdio.h>\n"
+			+ "int main() { long a, b; scanf(\"%ld %ld\", &a, &b);"
+			+ " printf(\"%ld\\n\", a + b); return 0; }\n";
+
+	private File tempDir;
+	private File dir;
+	private Problem problem;
+	private Judge judge;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		extractTestZip(tempDir, TEST_REPO);
+		dir = new File(tempDir, "series/series_1/contest_1/problem_1");
+		new File(dir, "test.in").delete();
+		new File(dir, "test.ans").delete();
+		FileUtils.writeStringToFile(new File(dir, "test.00.in"), "1 2\n");
+		FileUtils.writeStringToFile(new File(dir, "test.00.ans"), "3\n");
+		FileUtils.writeStringToFile(new File(dir, "test.01.in"), "40 2\n");
+		FileUtils.writeStringToFile(new File(dir, "test.01.ans"), "42\n");
+		DirectoryIndex.getInstance().invalidate(new File(dir, "test.00.in"));
+
+		problem = ResourceUtil.loadResource(dir, ResourceKind.PROBLEM);
+		problem.setChecker("diff");
+		problem.setTimeLimit(1);
+		problem.setTestWeights(Arrays.asList(30, 70));
+		judge = new Judge(2);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		judge.shutdown();
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests {@link Judge#judge(Problem, File)} with accepted and rejected
+	 * solutions.
+	 * 
+	 * @throws IOException
+	 */
+	public void testJudge() throws IOException {
+		if (!isInstalled("gcc")) {
+			return;
+		}
+		JudgeResult result = judge.judge(problem, write("solution.c", SUM));
+		assertEquals(Verdict.ACCEPTED, result.getVerdict());
+		assertEquals(2, result.getTests().size());
+		assertEquals(100, result.getScore());
+
+		result = judge.judge(problem, write("wrong.c", SUM.replace("a + b",
+				"a + b + (a == 1)")));
+		assertEquals(Verdict.WRONG_ANSWER, result.getVerdict());
+		assertEquals(Verdict.WRONG_ANSWER, result.getTests().get(0)
+				.getVerdict());
+		assertEquals(Verdict.ACCEPTED, result.getTests().get(1).getVerdict());
+		assertEquals(70, result.getScore());
+		assertEquals(100, result.getMaxScore());
+
+		result = judge.judge(problem, write("crash.c",
+				"int main() { return 3; }\n"));
+		assertEquals(Verdict.RUNTIME_ERROR, result.getVerdict());
+
+		result = judge.judge(problem, write("slow.c",
+				"int main() { for (;;); }\n"));
+		assertEquals(Verdict.TIME_LIMIT_EXCEEDED, result.getVerdict());
+
+		problem.setMemoryLimit(64);
+		result = judge.judge(problem, write("hungry.c",
+				"#include <stdio.h>\n#include <stdlib.h>\n"
+						+ "#include <string.h>\n"
+						+ "int main() { size_t n = 200 << 20, i;"
+						+ " char *p = malloc(n); long s = 0;"
+						+ " memset(p, getchar(), n);"
+						+ " for (i = 0; i < n; i += 4096) s += p[i];"
+						+ " printf(\"%ld\\n\", s); return 0; }\n"));
+		assertEquals(Verdict.MEMORY_LIMIT_EXCEEDED, result.getVerdict());
+		problem.setMemoryLimit(null);
+
+		result = judge.judge(problem, write("broken.c", "int main() {\n"));
+		assertEquals(Verdict.COMPILATION_ERROR, result.getVerdict());
+		assertFalse(result.getMessage().isEmpty());
+		assertTrue(result.getTests().isEmpty());
+	}
+
+	/**
+	 * Tests {@link Problem#validate(Judge)}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testValidate() throws IOException {
+		if (!isInstalled("gcc")) {
+			return;
+		}
+		FileUtils.writeStringToFile(new File(dir, "solution.c"), SUM);
+		DirectoryIndex.getInstance().invalidate(new File(dir, "solution.c"));
+		assertTrue(problem.validate(judge).isValid());
+
+		FileUtils.writeStringToFile(new File(dir, "solution_wrong.c"),
+				"int main() { return 0; }\n");
+		DirectoryIndex.getInstance().invalidate(
+				new File(dir, "solution_wrong.c"));
+		assertTrue(problem.validate().isValid());
+		assertFalse(problem.validate(judge).isValid());
+	}
+
+	/**
+	 * Tests a custom checker, which is compiled through {@link CheckerCache}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testCustomChecker() throws IOException {
+		if (!isInstalled("gcc") || !isInstalled("python3")) {
+			return;
+		}
+		// accepts any output with the same parity as the answer
+		FileUtils.writeStringToFile(new File(dir, "checker.py"),
+				"import sys\n" + "a = int(open(sys.argv[2]).read())\n"
+						+ "o = int(open(sys.argv[3]).read())\n"
+						+ "sys.exit(0 if a % 2 == o % 2 else 1)\n");
+		new File(dir, "checker.cpp").delete();
+		DirectoryIndex.getInstance().invalidate(new File(dir, "checker.py"));
+		problem.setChecker("custom");
+
+		CheckerCache cache = CheckerCache.getInstance();
+		File cacheDir = new File(tempDir, "checkers");
+		cache.configure(cacheDir, 1024 * 1024);
+		try {
+			long misses = cache.getMisses();
+			JudgeResult result = judge.judge(problem, write("solution.c",
+					SUM.replace("a + b", "a + b + 2")));
+			assertEquals(Verdict.ACCEPTED, result.getVerdict());
+			result = judge.judge(problem, write("wrong.c", SUM.replace(
+					"a + b", "a + b + 1")));
+			assertEquals(Verdict.WRONG_ANSWER, result.getVerdict());
+			assertEquals(misses + 1, cache.getMisses());
+		} finally {
+			cache.configure(cacheDir, 0);
+		}
+	}
+
+	private File write(String name, String content) throws IOException {
+		File res = new File(tempDir, name);
+		FileUtils.writeStringToFile(res, content);
+		return res;
+	}
+
+	private static boolean isInstalled(String command) {
+		for (String path : System.getenv("PATH").split(File.pathSeparator)) {
+			if (new File(path, command).canExecute()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,116 @@
+package core.judge;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+
+import core.util.TestBase;
+
+/**
+ * Tests {@link TokenChecker}.
+ * 
+ * @author jani
+ * 
+ */
+public class TokenCheckerTest extends TestBase {
+	private File tempDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests {@link TokenChecker.Mode#LINES}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testLines() throws IOException {
+		TokenChecker checker = new TokenChecker();
+		assertTrue(compare(checker, "1 2\n3\n", "1 2\n3\n"));
+		assertTrue(compare(checker, "1 2\n3\n", "1  2 \r\n3"));
+		assertTrue(compare(checker, "1 2\n3\n", "1 2\n3\n\n\n"));
+		assertTrue(compare(checker, "1 2\n3\n\n", "1 2\n3"));
+		assertTrue(compare(checker, "", "\n"));
+		assertFalse(compare(checker, "1 2\n3\n", "1 2 3\n"));
+		assertFalse(compare(checker, "1\n\n2\n", "1\n2\n"));
+		assertFalse(compare(checker, "1 2\n3\n", "1 2\n"));
+		assertFalse(compare(checker, "1 2\n", "1 2\n3\n"));
+		assertFalse(compare(checker, "12", "1"));
+		assertFalse(compare(checker, "1", "12"));
+		assertFalse(compare(checker, "1.0", "1"));
+	}
+
+	/**
+	 * Tests {@link TokenChecker.Mode#TOKENS}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testTokens() throws IOException {
+		TokenChecker checker = new TokenChecker(TokenChecker.Mode.TOKENS, 0);
+		assertTrue(compare(checker, "1 2\n3\n", "1\n2 3"));
+		assertTrue(compare(checker, "1\n\n2\n", "\t1 2"));
+		assertFalse(compare(checker, "1 2 3", "1 2"));
+		assertFalse(compare(checker, "abc", "abd"));
+	}
+
+	/**
+	 * Tests the tolerance of numbers.
+	 * 
+	 * @throws IOException
+	 */
+	public void testTolerance() throws IOException {
+		TokenChecker checker = new TokenChecker(TokenChecker.Mode.LINES,
+				1e-6);
+		assertTrue(compare(checker, "1.0 0.5\n", "1 0.5000001\n"));
+		assertTrue(compare(checker, "1000000", "1000000.5"));
+		assertTrue(compare(checker, "2.5e3", "2500.0"));
+		assertFalse(compare(checker, "0.5", "0.50001"));
+		assertFalse(compare(checker, "NaN", "NaN1"));
+		assertFalse(compare(checker, "1", "1d"));
+		assertFalse(compare(checker, "abc", "abd"));
+	}
+
+	/**
+	 * Tests the offsets of a mismatch.
+	 * 
+	 * @throws IOException
+	 */
+	public void testMismatch() throws IOException {
+		CheckResult result = new TokenChecker().compare(
+				write("answer", "1 2\n3 4\n"), write("output", "1  2\n3 5\n"));
+		assertEquals(Verdict.WRONG_ANSWER, result.getVerdict());
+		assertEquals(
+				"Mismatch at byte 7 of the output, byte 6 of the answer",
+				result.getMessage());
+
+		result = new TokenChecker().compare(write("answer", "10 20 30\n"),
+				write("output", "10 20 31\n"));
+		assertEquals(
+				"Mismatch at byte 6 of the output, byte 6 of the answer",
+				result.getMessage());
+	}
+
+	private boolean compare(TokenChecker checker, String expected,
+			String actual) throws IOException {
+		CheckResult result = checker.compare(write("answer", expected),
+				write("output", actual));
+		return result.getVerdict() == Verdict.ACCEPTED;
+	}
+
+	private File write(String name, String content) throws IOException {
+		File res = new File(tempDir, name);
+		FileUtils.writeStringToFile(res, content);
+		return res;
+	}
+}
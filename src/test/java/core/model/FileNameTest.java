@@ -0,0 +1,77 @@
+package core.model;
+
+import java.util.EnumSet;
+
+import core.util.TestBase;
+
+/**
+ * Tests {@link FileName}.
+ * 
+ * @author jani
+ * 
+ */
+public class FileNameTest extends TestBase {
+
+	/**
+	 * Tests {@link FileName#parse(String)}.
+	 */
+	public void testParse() {
+		assertSame(FileRole.TEST_INPUT, FileName.parse("test.in").getRole());
+		assertEquals(-1, FileName.parse("test.in").getTestIndex());
+		assertSame(FileRole.TEST_ANSWER, FileName.parse("test.ans").getRole());
+
+		FileName name = FileName.parse("test.07.in");
+		assertSame(FileRole.TEST_INPUT, name.getRole());
+		assertEquals(7, name.getTestIndex());
+		name = FileName.parse("test.12.ans");
+		assertSame(FileRole.TEST_ANSWER, name.getRole());
+		assertEquals(12, name.getTestIndex());
+
+		assertSame(FileRole.DESCRIPTION, FileName.parse("description.pdf")
+				.getRole());
+		assertSame(FileRole.CHECKER, FileName.parse("checker.cpp").getRole());
+		assertSame(FileRole.SOLUTION, FileName.parse("solution.c").getRole());
+		assertSame(FileRole.SECURITY, FileName.parse("_security.json")
+				.getRole());
+		assertSame(FileRole.PUBLIC_DIRECTORY, FileName.parse("_public_files")
+				.getRole());
+		assertSame(FileRole.PRIVATE_DIRECTORY, FileName.parse("_files")
+				.getRole());
+		assertSame(FileRole.RESOURCE_FILE, FileName.parse("contest.json")
+				.getRole());
+
+		assertSame(FileRole.UNKNOWN, FileName.parse("test.1.in").getRole());
+		assertSame(FileRole.UNKNOWN, FileName.parse("test.out").getRole());
+		assertSame(FileRole.UNKNOWN, FileName.parse("_security_json")
+				.getRole());
+		assertSame(FileRole.UNKNOWN, FileName.parse("contest_1").getRole());
+	}
+
+	/**
+	 * Tests {@link FileName#isAllowed(java.util.Set, ResourceKind)}.
+	 */
+	public void testIsAllowed() {
+		EnumSet<FileRole> roles = EnumSet.of(FileRole.RESOURCE_FILE,
+				FileRole.DESCRIPTION);
+		assertTrue(FileName.parse("problem.json").isAllowed(roles,
+				ResourceKind.PROBLEM));
+		assertFalse(FileName.parse("contest.json").isAllowed(roles,
+				ResourceKind.PROBLEM));
+		assertTrue(FileName.parse("description.txt").isAllowed(roles,
+				ResourceKind.PROBLEM));
+		assertFalse(FileName.parse("_files").isAllowed(roles,
+				ResourceKind.PROBLEM));
+	}
+
+	/**
+	 * Tests {@link FileName#isResourceId(String)}.
+	 */
+	public void testIsResourceId() {
+		assertTrue(FileName.isResourceId("contest_1"));
+		assertTrue(FileName.isResourceId("0-a"));
+		assertFalse(FileName.isResourceId("_files"));
+		assertFalse(FileName.isResourceId("Contest"));
+		assertFalse(FileName.isResourceId(""));
+		assertFalse(FileName.isResourceId(null));
+	}
+}
@@ -1,6 +1,16 @@
 package core.model;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import core.util.DirectoryIndex;
 import core.util.TestBase;
 
 /**
@@ -78,4 +88,56 @@ public class ProblemTest extends TestBase {
 
 		assertSame(0, p.loadChildren().size());
 	}
+
+	/**
+	 * Tests {@link Problem#getTestCases()}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testGetTestCases() throws IOException {
+		File dir = new File(seriesRoot, "series_1/contest_1/problem_1");
+		Problem p = ResourceUtil.loadResource(dir, ResourceKind.PROBLEM);
+
+		List<TestCase> tests = p.getTestCases();
+		assertEquals(1, tests.size());
+		assertEquals(0, tests.get(0).getIndex());
+		assertEquals(1, tests.get(0).getWeight());
+		File input = new File(dir, "test.in");
+		assertEquals(input, tests.get(0).getInput().getFile());
+		assertEquals(input.length(), tests.get(0).getInput().getSize());
+
+		new File(dir, "test.in").delete();
+		new File(dir, "test.ans").delete();
+		FileUtils.writeStringToFile(new File(dir, "test.00.in"), "1 2");
+		FileUtils.writeStringToFile(new File(dir, "test.00.ans"), "3");
+		FileUtils.writeStringToFile(new File(dir, "test.01.in"), "40 2");
+		FileUtils.writeStringToFile(new File(dir, "test.01.ans"), "42");
+		FileUtils.writeStringToFile(new File(dir, "test.02.in"), "no answer");
+		DirectoryIndex.getInstance().invalidate(new File(dir, "test.00.in"));
+		p.setTestWeights(Arrays.asList(30, 70));
+
+		tests = p.getTestCases();
+		assertEquals(2, tests.size());
+		assertEquals(0, tests.get(0).getIndex());
+		assertEquals(30, tests.get(0).getWeight());
+		assertEquals(1, tests.get(1).getIndex());
+		assertEquals(70, tests.get(1).getWeight());
+		assertEquals(4, tests.get(1).getInput().getSize());
+		assertEquals(2, tests.get(1).getAnswer().getSize());
+
+		MappedByteBuffer mapped = tests.get(1).getInput().map();
+		assertEquals(4, mapped.remaining());
+		assertEquals('4', mapped.get(0));
+		mapped = tests.get(1).getInput().map(3, 1);
+		assertEquals('2', mapped.get());
+
+		ReadableByteChannel channel = tests.get(1).getAnswer().open();
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate(8);
+			assertEquals(2, channel.read(buffer));
+			assertEquals("42", new String(buffer.array(), 0, 2, "UTF-8"));
+		} finally {
+			channel.close();
+		}
+	}
 }
@@ -0,0 +1,120 @@
+package core.model;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+
+import core.util.TestBase;
+
+/**
+ * Tests {@link ResourceCache}.
+ * 
+ * @author jani
+ * 
+ */
+public class ResourceCacheTest extends TestBase {
+	private File tempDir;
+	private File seriesRoot;
+	private ResourceCache cache;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		extractTestZip(tempDir, TEST_REPO);
+		seriesRoot = new File(tempDir, "series");
+		cache = ResourceCache.getInstance();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests {@link ResourceCache#getHits()} and
+	 * {@link ResourceCache#getMisses()}.
+	 */
+	public void testHitsAndMisses() {
+		File dir = new File(seriesRoot, "series_1/contest_1");
+		long hits = cache.getHits();
+		long misses = cache.getMisses();
+
+		Contest c1 = cache.get(dir, ResourceKind.CONTEST);
+		assertNotNull(c1);
+		assertEquals(misses + 1, cache.getMisses());
+
+		Contest c2 = cache.get(dir, ResourceKind.CONTEST);
+		assertNotNull(c2);
+		assertEquals(hits + 1, cache.getHits());
+		assertEquals("contest_1", c2.getId());
+		assertEquals(dir, c2.getDirectory());
+	}
+
+	/**
+	 * Tests that the cached snapshot is not affected by modifications of the
+	 * loaded copies.
+	 */
+	public void testSnapshot() {
+		File dir = new File(seriesRoot, "series_1/contest_1");
+		Contest c1 = cache.get(dir, ResourceKind.CONTEST);
+		String title = c1.getTitle();
+		c1.setTitle("changed");
+		c1.getProblemOrder().add("other");
+
+		Contest c2 = cache.get(dir, ResourceKind.CONTEST);
+		assertNotSame(c1, c2);
+		assertEquals(title, c2.getTitle());
+		assertFalse(c2.getProblemOrder().contains("other"));
+	}
+
+	/**
+	 * Tests that saving a resource invalidates the cache.
+	 */
+	public void testSave() {
+		File dir = new File(seriesRoot, "series_1/contest_1/problem_1");
+		Problem p1 = cache.get(dir, ResourceKind.PROBLEM);
+		p1.setTitle("new title");
+		p1.save();
+
+		Problem p2 = cache.get(dir, ResourceKind.PROBLEM);
+		assertEquals("new title", p2.getTitle());
+	}
+
+	/**
+	 * Tests {@link ResourceCache#invalidate(File)}.
+	 */
+	public void testInvalidate() {
+		File dir = new File(seriesRoot, "series_1/contest_1");
+		assertNotNull(cache.get(dir, ResourceKind.CONTEST));
+		cache.invalidate(new File(seriesRoot, "series_1"));
+
+		long misses = cache.getMisses();
+		assertNotNull(cache.get(dir, ResourceKind.CONTEST));
+		assertEquals(misses + 1, cache.getMisses());
+
+		assertNull(cache.get(dir, ResourceKind.SERIES));
+	}
+
+	/**
+	 * Tests that a change of the JSON file is noticed without an event of the
+	 * file watcher.
+	 * 
+	 * @throws IOException
+	 */
+	public void testExternalChange() throws IOException {
+		File dir = new File(seriesRoot, "series_1/contest_1/problem_1");
+		File file = new File(dir, "problem.json");
+		Problem p1 = cache.get(dir, ResourceKind.PROBLEM);
+		String json = FileUtils.readFileToString(file);
+		FileUtils.writeStringToFile(file,
+				json.replace(p1.getTitle(), p1.getTitle() + " changed"));
+
+		Problem p2 = cache.get(dir, ResourceKind.PROBLEM);
+		assertEquals(p1.getTitle() + " changed", p2.getTitle());
+	}
+}
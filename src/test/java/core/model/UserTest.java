@@ -103,4 +103,17 @@ public class UserTest extends TestBase {
 		user.setConfirmPassword("password2");
 		assertFalse(user.validate(manager).isValid());
 	}
+
+	/**
+	 * Tests {@link User#copy()}.
+	 */
+	public void testCopy() {
+		User copy = user.copy();
+		copy.getOrganizations().add("orga3");
+		assertEquals(2, user.getOrganizations().size());
+		assertEquals("realname", copy.getRealName());
+
+		user.setOrganizations(null);
+		assertNull(user.copy().getOrganizations());
+	}
 }
@@ -0,0 +1,140 @@
+package core.model;
+
+import java.io.File;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+import core.util.FileUtil;
+import core.util.TestBase;
+import core.util.Validator;
+
+/**
+ * Tests {@link ValidationEngine}.
+ * 
+ * @author jani
+ * 
+ */
+public class ValidationEngineTest extends TestBase {
+	private File tempDir;
+	private File seriesRoot;
+	private ValidationEngine engine;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		extractTestZip(tempDir, TEST_REPO);
+		seriesRoot = new File(tempDir, "series");
+		engine = new ValidationEngine(4);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		engine.shutdown();
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests {@link ValidationEngine#validateAll(File)}.
+	 */
+	public void testValidateAll() {
+		Map<String, Validator> res = engine.validateAll(seriesRoot);
+
+		assertTrue(res.containsKey("series_1"));
+		assertTrue(res.containsKey("series_1/contest_1"));
+		assertTrue(res.containsKey("series_1/contest_1/problem_1"));
+		assertFalse(res.containsKey("series_1/contest_1/problem_1/wrong"));
+
+		// results match the sequential validation of each resource
+		for (String path : res.keySet()) {
+			ResourceKind kind = ResourceKind.NESTING.get(path.split("/").length
+					- 1);
+			Resource resource = ResourceUtil.loadResource(new File(seriesRoot,
+					path), kind);
+			assertNotNull(path, resource);
+			assertEquals(path, resource.validateOwn().getErrors(),
+					res.get(path).getErrors());
+		}
+
+		Series series = ResourceUtil.loadResource(new File(seriesRoot,
+				"invalid_series_1"), ResourceKind.SERIES);
+		assertFalse(series.validate().isValid());
+		boolean valid = true;
+		for (String path : res.keySet()) {
+			if (path.equals("invalid_series_1")
+					|| path.startsWith("invalid_series_1/")) {
+				valid = valid && res.get(path).isValid();
+			}
+		}
+		assertFalse(valid);
+	}
+
+	/**
+	 * Tests {@link ValidationEngine#validate(Resource)}.
+	 */
+	public void testValidate() {
+		Contest contest = ResourceUtil.loadResource(new File(seriesRoot,
+				"series_1/contest_1"), ResourceKind.CONTEST);
+		Map<String, Validator> res = engine.validate(contest);
+
+		assertTrue(res.containsKey("contest_1"));
+		assertTrue(res.containsKey("contest_1/problem_1"));
+		for (Validator validator : res.values()) {
+			assertTrue(validator.isValid());
+		}
+	}
+
+	/**
+	 * Tests {@link ValidationEngine#validateAll(File, ValidationManifest)}.
+	 */
+	public void testValidateAllIncremental() throws Exception {
+		File manifestFile = new File(tempDir, "manifest.json");
+		ValidationManifest manifest = ValidationManifest.load(manifestFile);
+		Map<String, Validator> full = engine.validateAll(seriesRoot, manifest);
+		assertEquals(0, manifest.getHits());
+		assertTrue(manifest.save(manifestFile));
+
+		// nothing changed, all results are reused
+		manifest = ValidationManifest.load(manifestFile);
+		Map<String, Validator> res = engine.validateAll(seriesRoot, manifest);
+		assertEquals(full.size(), manifest.getHits());
+		assertEquals(full.keySet(), res.keySet());
+		for (String path : full.keySet()) {
+			assertEquals(path, full.get(path).getErrors(), res.get(path)
+					.getErrors());
+		}
+
+		// an edit of the same size and modification time is still noticed
+		File contest = new File(seriesRoot, "series_1/contest_1");
+		File problem = new File(contest, "problem_1");
+		File problemFile = new File(problem, "problem.json");
+		long modified = problemFile.lastModified();
+		String json = FileUtils.readFileToString(problemFile, "UTF-8");
+		FileUtils.writeStringToFile(problemFile, json.replace("milo", "mila"),
+				"UTF-8");
+		assertTrue(problemFile.setLastModified(modified));
+		manifest = ValidationManifest.load(manifestFile);
+		engine.validateAll(seriesRoot, manifest);
+		assertEquals(full.size() - 2, manifest.getHits());
+		FileUtils.writeStringToFile(problemFile, json, "UTF-8");
+
+		// a new problem changes the problem IDs of the contest
+		assertTrue(FileUtil.copyDirectory(problem, new File(contest,
+				"problem_9")));
+		manifest = ValidationManifest.load(manifestFile);
+		res = engine.validateAll(seriesRoot, manifest);
+		assertEquals(full.size() - 1, manifest.getHits());
+		assertTrue(res.containsKey("series_1/contest_1/problem_9"));
+		assertFalse(res.get("series_1/contest_1").isValid());
+		assertTrue(full.get("series_1/contest_1").isValid());
+
+		// removed resources are dropped from the manifest
+		res = engine.validateAll(new File(tempDir, "wrong"), manifest);
+		assertTrue(res.isEmpty());
+		assertTrue(manifest.getEntries().isEmpty());
+	}
+}
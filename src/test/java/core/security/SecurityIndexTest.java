@@ -0,0 +1,115 @@
+package core.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import core.browse.Node;
+import core.util.TestBase;
+import core.util.Validator;
+
+/**
+ * Tests {@link SecurityIndex}.
+ * 
+ * @author jani
+ * 
+ */
+public class SecurityIndexTest extends TestBase {
+	private File tempDir;
+	private File seriesRoot;
+	private SecurityIndex index;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		extractTestZip(tempDir, TEST_REPO);
+		seriesRoot = new File(tempDir, "series");
+		index = SecurityIndex.forRoot(seriesRoot);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests {@link SecurityIndex#getAccessRight(File, String)}.
+	 */
+	public void testGetAccessRight() {
+		File series = new File(seriesRoot, "series_1");
+		File contest = new File(series, "contest_1");
+		File problem = new File(contest, "problem_1");
+
+		assertSame(AccessRight.VIEW, index.getAccessRight(seriesRoot, "jani"));
+		assertSame(AccessRight.VIEW_FULL, index.getAccessRight(problem, "jani"));
+		assertSame(AccessRight.VIEW_FULL, index.getAccessRight(problem, "milo"));
+
+		// list is not inherited
+		assertSame(AccessRight.LIST, index.getAccessRight(series, "deni"));
+		assertSame(AccessRight.NONE, index.getAccessRight(contest, "deni"));
+		assertSame(AccessRight.LIST, index.getAccessRight(seriesRoot, "petko"));
+		assertSame(AccessRight.NONE, index.getAccessRight(series, "petko"));
+		assertSame(AccessRight.VIEW_FULL,
+				index.getAccessRight(contest, "petko"));
+		assertSame(AccessRight.VIEW_FULL,
+				index.getAccessRight(problem, "petko"));
+
+		// files get the rights of their directory
+		assertSame(AccessRight.VIEW_FULL, index.getAccessRight(new File(
+				problem, "description.txt"), "petko"));
+
+		assertSame(AccessRight.NONE, index.getAccessRight(problem, null));
+		assertSame(AccessRight.NONE, index.getAccessRight(problem, ""));
+		assertSame(AccessRight.NONE,
+				index.getAccessRight(new File(series, "wrong"), "jani"));
+	}
+
+	/**
+	 * Tests {@link SecurityIndex#getChildAccessRights(File, List, String)}.
+	 */
+	public void testGetChildAccessRights() {
+		File series = new File(seriesRoot, "series_1");
+		List<String> ids = Arrays.asList("contest_1", "contest_2", "wrong");
+
+		Map<String, AccessRight> rights = index.getChildAccessRights(series,
+				ids, "petko");
+		assertEquals(3, rights.size());
+		for (String id : ids) {
+			assertSame(index.getAccessRight(new File(series, id), "petko"),
+					rights.get(id));
+		}
+		assertSame(AccessRight.VIEW_FULL, rights.get("contest_1"));
+		assertSame(AccessRight.NONE, rights.get("contest_2"));
+		assertSame(AccessRight.NONE, rights.get("wrong"));
+
+		rights = index.getChildAccessRights(series, ids, "jani");
+		assertSame(AccessRight.VIEW_FULL, rights.get("contest_2"));
+
+		rights = index.getChildAccessRights(series, ids, null);
+		assertSame(AccessRight.NONE, rights.get("contest_1"));
+	}
+
+	/**
+	 * Tests that writing a security file through {@link Node} updates the
+	 * rights of the whole subtree.
+	 */
+	public void testInvalidate() {
+		File contest = new File(seriesRoot, "series_1/contest_2");
+		assertSame(AccessRight.NONE, index.getAccessRight(contest, "eli"));
+
+		Node node = new Node(seriesRoot, "series_1", "milo");
+		String json = "{\"grants\": {\"eli\": \"view\"}}";
+		Validator res = node.addFile(
+				new ByteArrayInputStream(json.getBytes()), "_security.json",
+				true);
+		assertTrue(res.isValid());
+
+		assertSame(AccessRight.VIEW, index.getAccessRight(contest, "eli"));
+	}
+}
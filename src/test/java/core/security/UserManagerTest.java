@@ -1,9 +1,13 @@
 package core.security;
 
 import java.io.File;
+import java.io.FileOutputStream;
+
+import org.apache.commons.io.FileUtils;
 
 import core.model.User;
 import core.util.FileUtil;
+import core.util.FileWatcher;
 import core.util.TestBase;
 
 /**
@@ -94,4 +98,72 @@ public class UserManagerTest extends TestBase {
 		FileUtil.delete(file.getParentFile());
 		assertFalse(file.exists());
 	}
+
+	/**
+	 * Tests that users are cached and that changes are picked up.
+	 * 
+	 * @throws Exception
+	 */
+	public void testUserCache() throws Exception {
+		UserCache cache = UserCache.forRoot(usersRoot);
+		long misses = cache.getMisses();
+
+		User user = manager.loadUser("jani");
+		user.setRealName("Changed");
+		assertEquals("Jani", manager.loadUser("jani").getRealName());
+		assertEquals(misses + 1, cache.getMisses());
+
+		// write-through
+		assertTrue(manager.save(user));
+		assertEquals("Changed", manager.loadUser("jani").getRealName());
+		assertEquals("Changed", new UserManager(usersRoot).loadUser("jani")
+				.getRealName());
+
+		// out-of-band edit
+		File file = manager.getUserFile("jani");
+		String json = new String(FileUtil.read(file), "UTF-8");
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(json.replace("Changed", "Edited").getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+		for (int i = 0; i < 100; i++) {
+			if ("Edited".equals(manager.loadUser("jani").getRealName())) {
+				break;
+			}
+			Thread.sleep(50);
+		}
+		assertEquals("Edited", manager.loadUser("jani").getRealName());
+
+		assertNull(manager.loadUser("other"));
+	}
+
+	/**
+	 * Tests that evicted users are no longer watched.
+	 * 
+	 * @throws Exception
+	 */
+	public void testUserCacheEviction() throws Exception {
+		FileWatcher watcher = FileWatcher.getInstance();
+		if (!watcher.isEnabled()) {
+			return;
+		}
+		UserCache cache = UserCache.forRoot(usersRoot);
+		cache.clear();
+		File first = manager.getUserFile("jani").getParentFile();
+		assertNotNull(manager.loadUser("jani"));
+		assertTrue(watcher.isWatched(first));
+
+		byte[] json = FileUtil.read(manager.getUserFile("jani"));
+		for (int i = 0; i < UserCache.MAX_SIZE; i++) {
+			String login = "user" + i;
+			File file = manager.getUserFile(login);
+			file.getParentFile().mkdirs();
+			FileUtils.writeByteArrayToFile(file, json);
+			assertNotNull(manager.loadUser(login));
+		}
+		assertEquals(UserCache.MAX_SIZE, cache.size());
+		assertFalse(watcher.isWatched(first));
+	}
 }
@@ -0,0 +1,157 @@
+package core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import core.security.AccessRight;
+import core.web.util.ArchiveCache;
+import core.web.util.Download;
+import core.web.util.DownloadBuilder;
+
+/**
+ * Unit test for {@link ArchiveCache}.
+ * 
+ * @author jani
+ * 
+ */
+public class ArchiveCacheTest extends TestBase {
+
+	private File tempDir;
+	private File cacheDir;
+	private ArchiveCache cache;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		extractTestZip(tempDir, TestBase.TEST_FILES);
+		cacheDir = new File(tempDir, "cache");
+		cache = ArchiveCache.getInstance();
+		cache.configure(cacheDir, 1024 * 1024);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		cache.configure(cacheDir, 0);
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests that a repeated download is served from the cached file.
+	 * 
+	 * @throws IOException
+	 */
+	public void testGet() throws IOException {
+		long hits = cache.getHits();
+		long misses = cache.getMisses();
+
+		Download first = cache.get("series_1", AccessRight.VIEW,
+				createBuilder("content"));
+		assertNull(first.getFile());
+		byte[] expected = write(first);
+		assertEquals(misses + 1, cache.getMisses());
+		assertTrue(cache.getSize() > 0);
+
+		Download second = cache.get("series_1", AccessRight.VIEW,
+				createBuilder("content"));
+		assertNotNull(second.getFile());
+		assertEquals(hits + 1, cache.getHits());
+		assertTrue(Arrays.equals(expected, write(second)));
+
+		// different access, content or path is a different archive
+		assertNull(cache.get("series_1", AccessRight.VIEW_FULL,
+				createBuilder("content")).getFile());
+		assertNull(cache.get("series_1", AccessRight.VIEW,
+				createBuilder("changed")).getFile());
+		assertNull(cache.get("series_2", AccessRight.VIEW,
+				createBuilder("content")).getFile());
+	}
+
+	/**
+	 * Tests {@link ArchiveCache#invalidate(String)}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testInvalidate() throws IOException {
+		write(cache.get("series_1/contest_1", AccessRight.VIEW,
+				createBuilder("content")));
+		write(cache.get("series_2", AccessRight.VIEW, createBuilder("content")));
+
+		cache.invalidate("series_1/contest_1/problem_1");
+		assertNull(cache.get("series_1/contest_1", AccessRight.VIEW,
+				createBuilder("content")).getFile());
+		assertNotNull(cache.get("series_2", AccessRight.VIEW,
+				createBuilder("content")).getFile());
+	}
+
+	/**
+	 * Tests that the least recently used archives are evicted.
+	 * 
+	 * @throws IOException
+	 */
+	public void testEviction() throws IOException {
+		write(cache.get("a", AccessRight.VIEW, createBuilder("content")));
+		long size = cache.getSize();
+		cache.configure(cacheDir, size * 2 + size / 2);
+		assertEquals(size, cache.getSize());
+
+		write(cache.get("b", AccessRight.VIEW, createBuilder("content")));
+		assertNotNull(cache.get("a", AccessRight.VIEW, createBuilder("content"))
+				.getFile());
+		write(cache.get("c", AccessRight.VIEW, createBuilder("content")));
+
+		assertTrue(cache.getSize() <= size * 2 + size / 2);
+		assertNotNull(cache.get("a", AccessRight.VIEW, createBuilder("content"))
+				.getFile());
+		assertNull(cache.get("b", AccessRight.VIEW, createBuilder("content"))
+				.getFile());
+	}
+
+	/**
+	 * Tests that a cached archive can be sent after it is evicted.
+	 * 
+	 * @throws IOException
+	 */
+	public void testEvictedHit() throws IOException {
+		byte[] expected = write(cache.get("a", AccessRight.VIEW,
+				createBuilder("content")));
+		Download hit = cache.get("a", AccessRight.VIEW,
+				createBuilder("content"));
+		cache.clear();
+		assertTrue(Arrays.equals(expected, write(hit)));
+	}
+
+	/**
+	 * Tests that a change of a referenced file changes the archive.
+	 * 
+	 * @throws IOException
+	 */
+	public void testChangedRef() throws IOException {
+		write(cache.get("a", AccessRight.VIEW, createBuilder("content")));
+		File file = new File(tempDir, "nonempty/added.txt");
+		FileUtil.saveStream(new ByteArrayInputStream("x".getBytes()), file,
+				true);
+		ContentVersions.getInstance().invalidate(file);
+		assertNull(cache.get("a", AccessRight.VIEW, createBuilder("content"))
+				.getFile());
+	}
+
+	private DownloadBuilder createBuilder(String inline) {
+		DownloadBuilder res = new DownloadBuilder();
+		res.addRef("dir", new File(tempDir, "nonempty"));
+		res.addInline("inline.txt", inline.getBytes());
+		return res;
+	}
+
+	private static byte[] write(Download download) throws IOException {
+		ByteArrayOutputStream res = new ByteArrayOutputStream();
+		download.writeTo(res);
+		return res.toByteArray();
+	}
+}
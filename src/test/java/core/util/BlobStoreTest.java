@@ -0,0 +1,137 @@
+package core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Unit test for {@link BlobStore}.
+ * 
+ * @author jani
+ * 
+ */
+public class BlobStoreTest extends TestBase {
+
+	private File tempDir;
+	private BlobStore store;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		store = BlobStore.getInstance();
+		store.configure(new File(tempDir, "blobs"));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		store.configure(null);
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests that equal contents are stored once and that writing a file does
+	 * not change the stored content.
+	 * 
+	 * @throws Exception
+	 */
+	public void testSaveStream() throws Exception {
+		File dir1 = new File(tempDir, "problem_1");
+		File dir2 = new File(tempDir, "problem_2");
+		dir1.mkdirs();
+		dir2.mkdirs();
+		File file1 = new File(dir1, "test.00.in");
+		File file2 = new File(dir2, "test.00.in");
+		long stored = store.getStored();
+		long deduplicated = store.getDeduplicated();
+
+		byte[] content = "1 2 3\n".getBytes();
+		assertTrue(store.saveStream(new ByteArrayInputStream(content), file1,
+				false).isValid());
+		assertTrue(store.saveStream(new ByteArrayInputStream(content), file2,
+				false).isValid());
+		assertEquals(stored + 1, store.getStored());
+		assertEquals(deduplicated + 1, store.getDeduplicated());
+		assertTrue(Files.isSameFile(file1.toPath(), file2.toPath()));
+
+		// replacing a file breaks the link only
+		FileUtil.saveStream(new ByteArrayInputStream("4\n".getBytes()), file1,
+				true);
+		assertEquals("4\n", FileUtils.readFileToString(file1));
+		assertEquals("1 2 3\n", FileUtils.readFileToString(file2));
+
+		assertEquals(0, store.collect());
+		assertTrue(file2.delete());
+		assertEquals(1, store.collect());
+		assertEquals(0, store.collect());
+	}
+
+	/**
+	 * Tests that a stored content, which was edited in place, is not linked
+	 * to further files.
+	 * 
+	 * @throws Exception
+	 */
+	public void testEditedInPlace() throws Exception {
+		File file1 = new File(tempDir, "test.00.in");
+		File file2 = new File(tempDir, "test.01.in");
+		long stored = store.getStored();
+		assertTrue(store.saveStream(new ByteArrayInputStream("1 2 3\n"
+				.getBytes()), file1, false).isValid());
+
+		FileOutputStream output = new FileOutputStream(file1);
+		try {
+			output.write("1 2 4\n".getBytes());
+		} finally {
+			output.close();
+		}
+		// in case the edit falls within the time stamp resolution
+		assertTrue(file1.setLastModified(file1.lastModified() + 1000));
+
+		assertTrue(store.saveStream(new ByteArrayInputStream("1 2 3\n"
+				.getBytes()), file2, false).isValid());
+		assertEquals(stored + 2, store.getStored());
+		assertFalse(Files.isSameFile(file1.toPath(), file2.toPath()));
+		assertEquals("1 2 4\n", FileUtils.readFileToString(file1));
+		assertEquals("1 2 3\n", FileUtils.readFileToString(file2));
+	}
+
+	/**
+	 * Tests that unused contents are removed in the background.
+	 * 
+	 * @throws Exception
+	 */
+	public void testCollectLater() throws Exception {
+		File file = new File(tempDir, "test.00.in");
+		assertTrue(store.saveStream(new ByteArrayInputStream("1 2 3\n"
+				.getBytes()), file, false).isValid());
+		File blob = new File(tempDir, "blobs").listFiles()[0].listFiles()[0];
+		assertTrue(file.delete());
+
+		store.collectLater();
+		for (int i = 0; i < 100 && blob.exists(); i++) {
+			Thread.sleep(50);
+		}
+		assertFalse(blob.exists());
+	}
+
+	/**
+	 * Tests that a disabled store saves plain files.
+	 */
+	public void testDisabled() {
+		store.configure(null);
+		assertFalse(store.isEnabled());
+
+		File file = new File(tempDir, "test.in");
+		assertTrue(store.saveStream(new ByteArrayInputStream("x".getBytes()),
+				file, false).isValid());
+		assertTrue(file.isFile());
+		assertFalse(store.store(file));
+	}
+}
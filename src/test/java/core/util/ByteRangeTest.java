@@ -0,0 +1,57 @@
+package core.util;
+
+import core.web.util.ByteRange;
+
+/**
+ * Unit test for {@link ByteRange}.
+ * 
+ * @author jani
+ * 
+ */
+public class ByteRangeTest extends TestBase {
+
+	/**
+	 * Tests {@link ByteRange#parse(String, long)} with valid ranges.
+	 */
+	public void testParse() {
+		ByteRange range = ByteRange.parse("bytes=100-199", 1000);
+		assertEquals(100, range.getStart());
+		assertEquals(199, range.getEnd());
+		assertEquals(100, range.getLength());
+		assertEquals("bytes 100-199/1000", range.toContentRange(1000));
+
+		range = ByteRange.parse("bytes=900-", 1000);
+		assertEquals(900, range.getStart());
+		assertEquals(999, range.getEnd());
+
+		range = ByteRange.parse("bytes=-100", 1000);
+		assertEquals(900, range.getStart());
+		assertEquals(999, range.getEnd());
+
+		range = ByteRange.parse("bytes=-5000", 1000);
+		assertEquals(0, range.getStart());
+
+		range = ByteRange.parse("bytes=990-5000", 1000);
+		assertEquals(999, range.getEnd());
+		assertEquals(10, range.getLength());
+	}
+
+	/**
+	 * Tests {@link ByteRange#parse(String, long)} with ignored and
+	 * unsatisfiable ranges.
+	 */
+	public void testParseInvalid() {
+		assertNull(ByteRange.parse(null, 1000));
+		assertNull(ByteRange.parse("items=0-1", 1000));
+		assertNull(ByteRange.parse("bytes=0-1,5-6", 1000));
+		assertNull(ByteRange.parse("bytes=abc", 1000));
+		assertNull(ByteRange.parse("bytes=5-1", 1000));
+		assertNull(ByteRange.parse("bytes=-", 1000));
+
+		assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=1000-", 1000));
+		assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", 1000));
+		assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=0-", 0));
+		assertEquals("bytes */1000",
+				ByteRange.UNSATISFIABLE.toContentRange(1000));
+	}
+}
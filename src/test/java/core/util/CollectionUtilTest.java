@@ -45,52 +45,6 @@ public class CollectionUtilTest extends TestBase {
 		assertTrue(res.isEmpty());
 	}
 
-	/**
-	 * Tests {@link CollectionUtil#filterRegex(List, String)}.
-	 */
-	public void testFilterRegex() {
-		List<String> testList = Arrays.asList(new String[] { "word_123", "345",
-				"567_word" });
-		List<String> res = CollectionUtil.filterRegex(testList, "\\w+");
-		assertTrue(res.contains("word_123"));
-		assertTrue(res.contains("345"));
-		assertTrue(res.contains("567_word"));
-
-		res = CollectionUtil.filterRegex(testList, "\\d+");
-		assertEquals(res.size(), 1);
-		assertFalse(res.contains("word_123"));
-		assertTrue(res.contains("345"));
-		assertFalse(res.contains("567_word"));
-
-		res = CollectionUtil.filterRegex(testList, "word_123|345");
-		assertEquals(res.size(), 2);
-		assertTrue(res.contains("word_123"));
-		assertTrue(res.contains("345"));
-		assertFalse(res.contains("567_word"));
-
-		res = CollectionUtil.filterRegex(testList, "wrong");
-		assertTrue(res.isEmpty());
-	}
-
-	/**
-	 * Tests {@link CollectionUtil#getMatches(List, String, int)}.
-	 */
-	public void testGetMatches() {
-		List<String> testList = Arrays.asList(new String[] { "entry_00",
-				"other_01", "entry_02" });
-
-		List<String> res = CollectionUtil.getMatches(testList,
-				"entry_([0-9]{2})", 1);
-
-		assertEquals(res.size(), 2);
-		assertTrue(res.contains("00"));
-		assertFalse(res.contains("01"));
-		assertTrue(res.contains("02"));
-
-		res = CollectionUtil.getMatches(testList, "wrong_([0-9]{2})", 1);
-		assertTrue(res.isEmpty());
-	}
-
 	/**
 	 * Tests {@link CollectionUtil#join(List, String)}.
 	 */
@@ -0,0 +1,79 @@
+package core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+/**
+ * Unit test for {@link ContentVersions}.
+ * 
+ * @author jani
+ * 
+ */
+public class ContentVersionsTest extends TestBase {
+
+	private File tempDir;
+	private ContentVersions versions;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		extractTestZip(tempDir, TestBase.TEST_FILES);
+		versions = ContentVersions.getInstance();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests that versions are stable and change with the content.
+	 */
+	public void testGetVersion() {
+		File dir = new File(tempDir, "nonempty");
+		ContentVersions.Version version = versions.getVersion(tempDir);
+		ContentVersions.Version dirVersion = versions.getVersion(dir);
+		assertNotNull(version);
+		assertEquals(version.getHash(), versions.getVersion(tempDir).getHash());
+		assertFalse(version.getHash().equals(dirVersion.getHash()));
+
+		File file = new File(dir, "new.txt");
+		FileUtil.saveStream(new ByteArrayInputStream("x".getBytes()),
+				file, true);
+		versions.invalidate(file);
+		assertFalse(version.getHash().equals(
+				versions.getVersion(tempDir).getHash()));
+		assertFalse(dirVersion.getHash().equals(
+				versions.getVersion(dir).getHash()));
+		assertTrue(versions.getVersion(tempDir).getLastModified() >= file
+				.lastModified());
+
+		assertNull(versions.getVersion(new File(tempDir, "wrong")));
+	}
+
+	/**
+	 * Tests that versions survive an invalidation without changes and that a
+	 * replaced file changes the version, even if its size and modification
+	 * time do not change.
+	 */
+	public void testInvalidate() {
+		File dir = new File(tempDir, "nonempty");
+		File file = new File(dir, "same.txt");
+		FileUtil.saveStream(new ByteArrayInputStream("a".getBytes()), file,
+				true);
+		long lastModified = file.lastModified();
+		String hash = versions.getVersion(dir).getHash();
+		versions.invalidate(dir);
+		assertEquals(hash, versions.getVersion(dir).getHash());
+
+		FileUtil.saveStream(new ByteArrayInputStream("b".getBytes()), file,
+				true);
+		file.setLastModified(lastModified);
+		versions.invalidate(file);
+		assertFalse(hash.equals(versions.getVersion(dir).getHash()));
+	}
+}
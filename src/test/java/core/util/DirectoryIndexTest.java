@@ -0,0 +1,93 @@
+package core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.List;
+
+/**
+ * Unit test for {@link DirectoryIndex}.
+ * 
+ * @author jani
+ * 
+ */
+public class DirectoryIndexTest extends TestBase {
+
+	private File tempDir;
+	private DirectoryIndex index;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		extractTestZip(tempDir, TestBase.TEST_FILES);
+		index = DirectoryIndex.getInstance();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		index.invalidate(tempDir);
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests {@link DirectoryIndex#getEntries(File)}.
+	 */
+	public void testGetEntries() {
+		List<DirectoryIndex.Entry> entries = index.getEntries(tempDir);
+		List<File> files = FileUtil.getDirectoryFiles(tempDir);
+		assertEquals(files.size(), entries.size());
+		for (int i = 0; i < files.size(); i++) {
+			File file = files.get(i);
+			DirectoryIndex.Entry entry = entries.get(i);
+			assertEquals(file, entry.getFile());
+			assertEquals(file.getName(), entry.getName());
+			assertEquals(file.isDirectory(), entry.isDirectory());
+			if (file.isFile()) {
+				assertEquals(file.length(), entry.length());
+			}
+		}
+
+		// directories first
+		boolean file = false;
+		for (DirectoryIndex.Entry entry : entries) {
+			assertFalse(file && entry.isDirectory());
+			file = entry.isFile();
+		}
+
+		assertSame(entries, index.getEntries(tempDir));
+		assertTrue(index.getEntries(new File(tempDir, "wrong")).isEmpty());
+	}
+
+	/**
+	 * Tests that {@link DirectoryIndex#invalidate(File)} drops the listing of
+	 * the parent directory only.
+	 */
+	public void testInvalidate() {
+		File dir = new File(tempDir, "nonempty");
+		int size = index.getEntries(dir).size();
+		List<DirectoryIndex.Entry> parent = index.getEntries(tempDir);
+
+		File file = new File(dir, "new.txt");
+		FileUtil.saveStream(new ByteArrayInputStream("xyz".getBytes()), file,
+				true);
+		index.invalidate(file);
+
+		List<DirectoryIndex.Entry> entries = index.getEntries(dir);
+		assertEquals(size + 1, entries.size());
+		// the grandparent does not change
+		assertSame(parent, index.getEntries(tempDir));
+
+		boolean found = false;
+		for (DirectoryIndex.Entry entry : entries) {
+			if (entry.getName().equals("new.txt")) {
+				found = true;
+				assertEquals(3, entry.length());
+				assertTrue(entry.isFile());
+			}
+		}
+		assertTrue(found);
+	}
+}
@@ -1,6 +1,13 @@
 package core.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import core.web.util.DownloadBuilder;
 
@@ -71,4 +78,35 @@ public class DownloadBuilderTest extends TestBase {
 		byte[] zip = res.toZip();
 		assertNotNull(zip);
 	}
+
+	/**
+	 * Tests {@link DownloadBuilder#writeZip(java.io.OutputStream)} and that it
+	 * produces the same entries as {@link DownloadBuilder#toZip()}.
+	 * 
+	 * @throws IOException
+	 */
+	public void testWriteZip() throws IOException {
+		DownloadBuilder res = new DownloadBuilder();
+		res.addRef("dir", new File(tempDir, "nonempty"));
+		res.addInline("inline.txt", "inline content".getBytes());
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		res.writeZip(output);
+		assertEquals(zipEntries(res.toZip()), zipEntries(output.toByteArray()));
+		assertTrue(zipEntries(output.toByteArray()).contains("inline.txt"));
+	}
+
+	private static List<String> zipEntries(byte[] zip) throws IOException {
+		List<String> res = new ArrayList<String>();
+		ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip));
+		try {
+			ZipEntry entry;
+			while ((entry = input.getNextEntry()) != null) {
+				res.add(entry.getName());
+			}
+		} finally {
+			input.close();
+		}
+		return res;
+	}
 }
@@ -1,11 +1,20 @@
 package core.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
 
@@ -181,6 +190,137 @@ public class FileUtilTest extends TestBase {
 
 	}
 
+	/**
+	 * Tests that concurrent
+	 * {@link FileUtil#saveStream(InputStream, File, boolean)} calls for the
+	 * same file never leave a mixed or partial file.
+	 * 
+	 * @throws Exception
+	 */
+	public void testSaveStreamConcurrent() throws Exception {
+		final File destination = new File(tempDir, "concurrent.txt");
+		final int threads = 8;
+		final int size = 64 * 1024;
+		final List<Throwable> errors = new ArrayList<Throwable>();
+
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final byte[] content = new byte[size];
+			Arrays.fill(content, (byte) ('a' + i));
+			workers[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 20; j++) {
+						Validator res = FileUtil.saveStream(
+								new ByteArrayInputStream(content),
+								destination, true);
+						if (!res.isValid()) {
+							synchronized (errors) {
+								errors.add(new AssertionError(res.toString()));
+							}
+						}
+					}
+				}
+			};
+			workers[i].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+
+		byte[] res = FileUtils.readFileToByteArray(destination);
+		assertEquals(size, res.length);
+		for (byte b : res) {
+			assertEquals(res[0], b);
+		}
+
+		// no temporary files are left
+		assertEquals(1, tempDir.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.getName().contains("concurrent.txt");
+			}
+		}).length);
+
+		assertSame(WriteLocks.forFile(destination),
+				WriteLocks.forDirectory(tempDir));
+	}
+
+	/**
+	 * Tests that other writers of the directory are not blocked while
+	 * {@link FileUtil#saveStream(InputStream, File, boolean)} reads its input.
+	 * 
+	 * @throws Exception
+	 */
+	public void testSaveStreamUnlocked() throws Exception {
+		final File destination = new File(tempDir, "slow.txt");
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final Callable<Boolean> tryLock = new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				Lock lock = WriteLocks.forFile(destination);
+				if (lock.tryLock()) {
+					lock.unlock();
+					return true;
+				}
+				return false;
+			}
+		};
+		final List<Boolean> locked = new ArrayList<Boolean>();
+		InputStream input = new ByteArrayInputStream("content".getBytes()) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				try {
+					locked.add(executor.submit(tryLock).get());
+				} catch (Exception e) {
+					locked.add(false);
+				}
+				return super.read(b, off, len);
+			}
+		};
+		try {
+			assertTrue(FileUtil.saveStream(input, destination, false)
+					.isValid());
+		} finally {
+			executor.shutdown();
+		}
+		assertFalse(locked.isEmpty());
+		assertFalse(locked.contains(false));
+		assertEquals("content", FileUtils.readFileToString(destination));
+	}
+
+	/**
+	 * Tests that temporary files left over by a crash are skipped.
+	 * 
+	 * @throws IOException
+	 */
+	public void testTempFiles() throws IOException {
+		File temp = FileUtil.getTempFile(new File(tempDir, "binary.png"));
+		FileUtils.writeStringToFile(temp, "partial");
+		assertTrue(FileUtil.isTempFile(temp.getName()));
+		assertFalse(FileUtil.isTempFile("binary.png"));
+		assertFalse(FileUtil.isTempFile(".binary.png.tmp"));
+
+		assertFalse(FileUtil.getDirectoryFiles(tempDir).contains(temp));
+		assertFalse(DirectoryIndex.getInstance().getEntries(tempDir).isEmpty());
+		for (DirectoryIndex.Entry entry : DirectoryIndex.getInstance()
+				.getEntries(tempDir)) {
+			assertFalse(entry.getName().equals(temp.getName()));
+		}
+
+		ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(
+				FileUtil.createZip(tempDir)));
+		try {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				assertFalse(entry.getName().endsWith(temp.getName()));
+			}
+		} finally {
+			zip.close();
+		}
+	}
+
 	/**
 	 * Tests {@link FileUtil#read(File)}.
 	 */
@@ -0,0 +1,77 @@
+package core.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.codehaus.jackson.JsonNode;
+
+/**
+ * Tests {@link JsonSchemas}.
+ * 
+ * @author jani
+ * 
+ */
+public class JsonSchemasTest extends TestBase {
+	private static final String USER_SCHEMA = "/schema/user.json";
+
+	/**
+	 * Tests that a schema is loaded only once.
+	 * 
+	 * @throws IOException
+	 */
+	public void testGetSchema() throws IOException {
+		JsonNode schema = JsonSchemas.getSchema(USER_SCHEMA);
+		assertNotNull(schema);
+		assertSame(schema, JsonSchemas.getSchema(USER_SCHEMA));
+
+		try {
+			JsonSchemas.getSchema("/schema/wrong.json");
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(JsonSchemas.validate(JsonUtil.objectToJson("x"),
+				"/schema/wrong.json").isValid());
+	}
+
+	/**
+	 * Tests {@link JsonSchemas#validate(JsonNode, String)} from several
+	 * threads at once.
+	 * 
+	 * @throws Exception
+	 */
+	public void testValidateConcurrent() throws Exception {
+		Map<String, Object> user = new HashMap<String, Object>();
+		user.put("login", "x");
+		final JsonNode invalid = JsonUtil.objectToJson(user);
+		final int errors = JsonSchemas.validate(invalid, USER_SCHEMA)
+				.getErrors().size();
+		assertTrue(errors > 0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < 200; i++) {
+				futures.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						return JsonSchemas.validate(invalid, USER_SCHEMA)
+								.getErrors().size();
+					}
+				}));
+			}
+			for (Future<Integer> future : futures) {
+				assertEquals(errors, future.get().intValue());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -5,6 +5,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import core.security.ResourceViews;
+
 /**
  * Unit test for {@link JsonUtil}.
  * 
@@ -70,4 +72,17 @@ public class JsonUtilTest extends TestBase {
 		String json = JsonUtil.objectToJsonString(o);
 		assertEquals("{\"key\":\"value\"}", json);
 	}
+
+	/**
+	 * Tests that {@link JsonMappers} reuses readers and writers.
+	 */
+	public void testMappers() {
+		assertSame(JsonMappers.getReader(Map.class),
+				JsonMappers.getReader(Map.class));
+		assertSame(JsonMappers.getWriter(ResourceViews.Private.class),
+				JsonMappers.getWriter(ResourceViews.Private.class));
+		assertSame(JsonMappers.getWriter(null), JsonMappers.getWriter(null));
+		assertNotSame(JsonMappers.getWriter(ResourceViews.Basic.class),
+				JsonMappers.getWriter(ResourceViews.Private.class));
+	}
 }
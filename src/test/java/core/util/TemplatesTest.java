@@ -0,0 +1,79 @@
+package core.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import core.web.view.Templates;
+import core.web.view.View;
+import core.web.view.ViewException;
+
+import freemarker.cache.FileTemplateLoader;
+
+/**
+ * Tests {@link Templates}.
+ * 
+ * @author jani
+ * 
+ */
+public class TemplatesTest extends TestBase {
+	private File tempDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		tempDir.mkdirs();
+		write("master.ftl", "<#include \"lib/name.ftl\">Hello ${name}!");
+		new File(tempDir, "lib").mkdirs();
+		write("lib/name.ftl", "<#assign name = \"world\">");
+		write("broken.ftl", "<#if true>unclosed");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests that templates are parsed once and shared by all views.
+	 * 
+	 * @throws Exception
+	 */
+	public void testConfigure() throws Exception {
+		int parsed = Templates.getInstance().configure(
+				new FileTemplateLoader(tempDir),
+				Arrays.asList("master.ftl", "lib/name.ftl", "broken.ftl"),
+				Templates.NO_UPDATE);
+		assertEquals(2, parsed);
+		assertEquals("Hello world!", new View().parse());
+
+		// cached templates are not read again
+		write("master.ftl", "Changed");
+		assertEquals("Hello world!", new View().parse());
+
+		try {
+			new View().parse("broken.ftl");
+			fail();
+		} catch (ViewException e) {
+			// expected
+		}
+
+		Templates.getInstance().configure(new FileTemplateLoader(tempDir),
+				Arrays.asList("master.ftl"), 0);
+		assertEquals("Changed", new View().parse());
+	}
+
+	private void write(String name, String content) throws IOException {
+		FileOutputStream output = new FileOutputStream(new File(tempDir, name));
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+}
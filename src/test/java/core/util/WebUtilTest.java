@@ -0,0 +1,31 @@
+package core.util;
+
+/**
+ * Unit test for {@link WebUtil}.
+ * 
+ * @author jani
+ * 
+ */
+public class WebUtilTest extends TestBase {
+
+	/**
+	 * Tests {@link WebUtil#isRangeCurrent(String, String, String)}.
+	 */
+	public void testIsRangeCurrent() {
+		String etag = "\"file-abc\"";
+		String date = "Sun, 18 Oct 2026 10:00:00 GMT";
+
+		assertTrue(WebUtil.isRangeCurrent(null, etag, date));
+		assertTrue(WebUtil.isRangeCurrent(null, null, null));
+
+		assertTrue(WebUtil.isRangeCurrent(etag, etag, date));
+		assertFalse(WebUtil.isRangeCurrent("\"file-old\"", etag, date));
+		assertFalse(WebUtil.isRangeCurrent("W/" + etag, etag, date));
+		assertFalse(WebUtil.isRangeCurrent(etag, null, date));
+
+		assertTrue(WebUtil.isRangeCurrent(date, etag, date));
+		assertFalse(WebUtil.isRangeCurrent("Sat, 17 Oct 2026 10:00:00 GMT",
+				etag, date));
+		assertFalse(WebUtil.isRangeCurrent(date, etag, null));
+	}
+}
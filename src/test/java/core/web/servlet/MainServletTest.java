@@ -0,0 +1,201 @@
+package core.web.servlet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import core.config.ConfigurationManager;
+import core.util.TestBase;
+import core.web.util.ArchiveCache;
+import core.web.view.Templates;
+
+import freemarker.cache.FileTemplateLoader;
+
+/**
+ * Tests that {@link MainServlet} keeps concurrent requests apart.
+ * 
+ * @author jani
+ * 
+ */
+public class MainServletTest extends TestBase {
+	private static final int THREADS = 16;
+	private static final int REQUESTS = 2000;
+	private static final List<String> PAGES = Arrays.asList("index",
+			"about", "problem-format", "contest-format", "series-format");
+
+	private File tempDir;
+	private MainServlet servlet;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		tempDir.mkdirs();
+		FileOutputStream output = new FileOutputStream(new File(tempDir,
+				"master.ftl"));
+		try {
+			output.write("${appRoot}|${template}|${htmlTitle}".getBytes());
+		} finally {
+			output.close();
+		}
+
+		servlet = new MainServlet();
+		servlet.init(fake(ServletConfig.class,
+				new ConcurrentHashMap<String, Object>()));
+		Templates.getInstance().configure(new FileTemplateLoader(tempDir),
+				new ArrayList<String>(), Templates.NO_UPDATE);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		ArchiveCache.getInstance().configure(
+				new ConfigurationManager().getArchiveCacheDir(), 0);
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Serves many requests from many threads and checks that every response
+	 * is built only from its own request.
+	 * 
+	 * @throws Exception
+	 */
+	public void testConcurrentRequests() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for (int i = 0; i < REQUESTS; i++) {
+			final String appRoot = "/app-" + i;
+			final String page = PAGES.get(i % PAGES.size());
+			results.add(executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					start.await();
+					return get(appRoot, page);
+				}
+			}));
+		}
+		start.countDown();
+
+		try {
+			for (int i = 0; i < REQUESTS; i++) {
+				String page = PAGES.get(i % PAGES.size());
+				String[] parts = results.get(i).get().split("\\|");
+				assertEquals("/app-" + i, parts[0]);
+				assertEquals("page/" + page, parts[1]);
+				if (page.equals("index")) {
+					assertFalse(parts[2].contains(" - "));
+				} else {
+					assertTrue(parts[2].endsWith(" - " + getTitle(page)));
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private String getTitle(String page) {
+		if (page.equals("about")) {
+			return "About";
+		}
+		String[] words = page.split("-");
+		return Character.toUpperCase(words[0].charAt(0))
+				+ words[0].substring(1) + " Format";
+	}
+
+	private String get(String appRoot, String page) throws Exception {
+		Map<String, Object> values = new ConcurrentHashMap<String, Object>();
+		values.put("getMethod", "GET");
+		values.put("getProtocol", "HTTP/1.1");
+		values.put("getContextPath", appRoot);
+		values.put("getServletPath", "/main");
+		values.put("getRequestURL", "http://localhost" + appRoot + "/main");
+		values.put("controller", "page");
+		values.put("page", page);
+		values.put("getSession", fake(HttpSession.class,
+				new ConcurrentHashMap<String, Object>()));
+		HttpServletRequest request = fake(HttpServletRequest.class, values);
+
+		StringWriter writer = new StringWriter();
+		Map<String, Object> responseValues = new ConcurrentHashMap<String, Object>();
+		responseValues.put("getWriter", new PrintWriter(writer));
+		HttpServletResponse response = fake(HttpServletResponse.class,
+				responseValues);
+
+		servlet.service(request, response);
+		((PrintWriter) responseValues.get("getWriter")).flush();
+		return writer.toString();
+	}
+
+	/**
+	 * Creates a fake of a servlet API interface. Getters return the value
+	 * stored under the method name, attributes are stored in the same map.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T fake(final Class<T> clazz,
+			final Map<String, Object> values) {
+		return (T) Proxy.newProxyInstance(clazz.getClassLoader(),
+				new Class<?>[] { clazz }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method,
+							Object[] args) throws Throwable {
+						String name = method.getName();
+						if (name.equals("getAttribute")) {
+							return values.get(args[0]);
+						}
+						if (name.equals("setAttribute")) {
+							values.put((String) args[0], args[1]);
+							return null;
+						}
+						if (name.equals("removeAttribute")) {
+							values.remove(args[0]);
+							return null;
+						}
+						if (name.equals("getServletContext")) {
+							return fake(ServletContext.class, values);
+						}
+						if (name.equals("getRequestURL")) {
+							return new StringBuffer((String) values.get(name));
+						}
+						if (values.containsKey(name)) {
+							return values.get(name);
+						}
+						if (name.equals("getDateHeader")
+								|| name.equals("getIntHeader")) {
+							return -1L;
+						}
+						Class<?> type = method.getReturnType();
+						if (type == boolean.class) {
+							return false;
+						} else if (type == int.class) {
+							return 0;
+						} else if (type == long.class) {
+							return 0L;
+						}
+						return null;
+					}
+				});
+	}
+}
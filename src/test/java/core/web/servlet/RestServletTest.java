@@ -0,0 +1,179 @@
+package core.web.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.codehaus.jackson.JsonNode;
+
+import core.config.ConfigurationManager;
+import core.config.RestConfig;
+import core.security.UserManager;
+import core.util.JsonUtil;
+import core.util.StringUtil;
+import core.util.TestBase;
+
+/**
+ * Tests {@link RestServlet}.
+ * 
+ * @author jani
+ * 
+ */
+public class RestServletTest extends TestBase {
+	private static final String LOGIN = "jani";
+	private static final String PROBLEM = "series_1/contest_1/problem_1";
+	private static final String FILES = PROBLEM + "/_files";
+
+	private File tempDir;
+	private File filesDir;
+	private RestServlet servlet;
+	private String passwordHash;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		tempDir = getTempDir();
+		extractTestZip(tempDir, TEST_REPO);
+		filesDir = new File(tempDir, "series/" + FILES);
+
+		Properties properties = new Properties();
+		properties.setProperty("repo_root", tempDir.getPath());
+		properties.setProperty("users_root",
+				new File(tempDir, "souls/users").getPath());
+		ConfigurationManager config = new ConfigurationManager(properties);
+		servlet = new RestServlet(config);
+		passwordHash = new UserManager(config.getUsersRoot()).loadUser(LOGIN)
+				.getPassword();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		deleteDir(tempDir);
+	}
+
+	/**
+	 * Tests a batch of mixed operations, one of which fails while reading its
+	 * content.
+	 * 
+	 * @throws Exception
+	 */
+	public void testBatch() throws Exception {
+		String operations = "["
+				+ "{'method':'PUT','path':'" + FILES
+				+ "/notes.txt','content':'hello'},"
+				+ "{'method':'GET','path':'" + FILES + "/notes.txt'},"
+				+ "{'method':'PUT','path':'" + FILES
+				+ "/broken.txt','content_base64':'!!!!'},"
+				+ "{'method':'GET','path':'" + PROBLEM + "'},"
+				+ "{'method':'DELETE','path':'" + FILES + "/notes.txt'},"
+				+ "{'method':'MOVE','path':'" + PROBLEM + "'}]";
+		JsonNode res = batch(operations.replace('\'', '"'));
+		JsonNode results = res.get("results");
+		assertEquals(6, results.size());
+
+		assertEquals(RestConfig.HTTP_CREATED, results.get(0).get("status")
+				.getIntValue());
+
+		assertEquals(RestConfig.HTTP_OK, results.get(1).get("status")
+				.getIntValue());
+		assertEquals("hello", new String(results.get(1)
+				.get("content_base64").getBinaryValue(), "UTF-8"));
+
+		assertEquals(RestConfig.HTTP_BAD_REQUEST,
+				results.get(2).get("status").getIntValue());
+		assertNotNull(results.get(2).get("error"));
+		assertNull(results.get(2).get("content_base64"));
+		assertFalse(new File(filesDir, "broken.txt").exists());
+
+		assertEquals(RestConfig.HTTP_OK, results.get(3).get("status")
+				.getIntValue());
+		assertTrue(results.get(3).get("body").isObject());
+
+		assertEquals(RestConfig.HTTP_OK, results.get(4).get("status")
+				.getIntValue());
+		assertFalse(new File(filesDir, "notes.txt").exists());
+
+		assertEquals(RestConfig.HTTP_BAD_REQUEST,
+				results.get(5).get("status").getIntValue());
+	}
+
+	private JsonNode batch(String operations) throws Exception {
+		long stamp = System.currentTimeMillis();
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("getMethod", "POST");
+		values.put("getProtocol", "HTTP/1.1");
+		values.put("getContentType", "application/json");
+		values.put("getRemoteAddr", "127.0.0.1");
+		values.put("path", "/" + RestConfig.BATCH_URI_PREFIX);
+		values.put("login", LOGIN);
+		values.put("stamp", String.valueOf(stamp));
+		values.put("token", StringUtil.sha256("127.0.0.1" + stamp
+				+ passwordHash));
+		final ByteArrayInputStream input = new ByteArrayInputStream(
+				operations.getBytes("UTF-8"));
+		values.put("getInputStream", new ServletInputStream() {
+			@Override
+			public int read() {
+				return input.read();
+			}
+		});
+		HttpServletRequest request = fake(HttpServletRequest.class, values);
+
+		StringWriter writer = new StringWriter();
+		Map<String, Object> responseValues = new HashMap<String, Object>();
+		responseValues.put("getWriter", new PrintWriter(writer));
+		HttpServletResponse response = fake(HttpServletResponse.class,
+				responseValues);
+
+		servlet.service(request, response);
+		((PrintWriter) responseValues.get("getWriter")).flush();
+		return JsonUtil.readJsonString(writer.toString(), JsonNode.class);
+	}
+
+	/**
+	 * Creates a fake of a servlet API interface. Getters, attributes and
+	 * parameters return the value stored under their name.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T fake(final Class<T> clazz,
+			final Map<String, Object> values) {
+		return (T) Proxy.newProxyInstance(clazz.getClassLoader(),
+				new Class<?>[] { clazz }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method,
+							Object[] args) throws Throwable {
+						String name = method.getName();
+						if (name.equals("getAttribute")
+								|| name.equals("getParameter")) {
+							return values.get(args[0]);
+						}
+						if (values.containsKey(name)) {
+							return values.get(name);
+						}
+						Class<?> type = method.getReturnType();
+						if (type == boolean.class) {
+							return false;
+						} else if (type == int.class) {
+							return 0;
+						} else if (type == long.class) {
+							return -1L;
+						}
+						return null;
+					}
+				});
+	}
+}